@@ -0,0 +1,19 @@
+package com.foo.client.dispatch;
+
+import org.tessell.GenDispatch;
+import org.tessell.In;
+import org.tessell.Out;
+
+@GenDispatch(cacheKey = true)
+public class CachedSpec {
+
+	@In(1)
+	String name;
+	@In(2)
+	int pint;
+	@In(3)
+	String[] strings;
+	@Out(1)
+	Integer bar;
+
+}
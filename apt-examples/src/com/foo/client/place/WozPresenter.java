@@ -2,16 +2,20 @@ package com.foo.client.place;
 
 import org.tessell.GenPlace;
 import org.tessell.place.PlaceRequest;
+import org.tessell.place.Prefetch;
 
 import com.google.gwt.event.shared.EventBus;
 import com.google.gwt.event.shared.SimpleEventBus;
 
 public class WozPresenter {
 
-	@GenPlace(name = "woz", async = false)
+	@GenPlace(name = "woz", async = false, prefetch = "warm")
 	public static void onRequest(EventBus bus, PlaceRequest request) {
 	}
 
+	public static void warm(Prefetch prefetch) {
+	}
+
 	public static void test() {
 		// this isn't async, so we don't need the FailureCallback
 		new WozPlace(new SimpleEventBus());
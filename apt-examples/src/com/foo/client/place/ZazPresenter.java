@@ -2,6 +2,7 @@ package com.foo.client.place;
 
 import org.tessell.GenPlace;
 import org.tessell.place.PlaceRequest;
+import org.tessell.place.Prefetch;
 import org.tessell.util.FailureCallback;
 
 import com.google.gwt.event.shared.EventBus;
@@ -9,10 +10,13 @@ import com.google.gwt.event.shared.SimpleEventBus;
 
 public class ZazPresenter {
 
-	@GenPlace(name = "zaz")
+	@GenPlace(name = "zaz", prefetch = "warm")
 	public static void onRequest(EventBus bus, PlaceRequest request) {
 	}
 
+	public static void warm(PlaceRequest request, Prefetch prefetch, EventBus bus) {
+	}
+
 	public static void test() {
 		FailureCallback failureCallback = null;
 		new ZazPlace(new SimpleEventBus(), failureCallback);
@@ -1,8 +1,18 @@
 package com.foo.client.dispatch;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.gwt.user.client.rpc.SerializationException;
+import com.google.gwt.user.client.rpc.SerializationStreamReader;
+import com.google.gwt.user.client.rpc.SerializationStreamWriter;
+import com.google.gwt.user.server.rpc.RPC;
+import com.google.gwt.user.server.rpc.impl.ServerSerializationStreamWriter;
+
 public class Dispatches {
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws SerializationException {
 		new BarAction(1);
 		new BarResult("foo", 2);
 
@@ -23,8 +33,140 @@ public class Dispatches {
 
 		System.out.println(new BarAction(1).toString());
 		System.out.println(new BarAction(null).toString());
+
+		// cacheKey = true
+		System.out.println(new CachedAction("a", 1, new String[] { "b" }).equals(new CachedAction("a", 1, new String[] { "b" })));
+		System.out.println(new CachedAction("a", 1, new String[] { "b" }).hashCode() == new CachedAction("a", 1, new String[] { "b" }).hashCode());
+		System.out.println(!new CachedAction("a", 1, null).equals(new CachedAction("a", 2, null)));
+		System.out.println(new CachedAction(null, 1, null).equals(new CachedAction(null, 1, null)));
+		System.out.println(new CachedAction("a", 1, new String[] { "b" }).toCacheKey());
+		System.out.println(!new CachedAction("a|1", 1, null).toCacheKey().equals(new CachedAction("a", 1, null).toCacheKey()));
+
+		// custom field serializers read back what they write, for String, boxed, primitive, and array properties
+		Stream stream = new Stream();
+		FooAction_CustomFieldSerializer.serialize(stream, new FooAction(1));
+		System.out.println(FooAction_CustomFieldSerializer.instantiate(stream).equals(new FooAction(1)));
+		FooAction_CustomFieldSerializer.serialize(stream, new FooAction(null));
+		System.out.println(FooAction_CustomFieldSerializer.instantiate(stream).equals(new FooAction(null)));
+		FooResult_CustomFieldSerializer.serialize(stream, new FooResult("a", 2));
+		FooResult foo = FooResult_CustomFieldSerializer.instantiate(stream);
+		System.out.println(foo.getFoo().equals("a") && foo.getBar().equals(2));
+		CachedAction cached = new CachedAction("a", 1, new String[] { "b" });
+		CachedAction_CustomFieldSerializer.serialize(stream, cached);
+		System.out.println(CachedAction_CustomFieldSerializer.instantiate(stream).toCacheKey().equals(cached.toCacheKey()));
+		CachedAction_CustomFieldSerializer.serialize(stream, new CachedAction(null, 0, null));
+		CachedAction nulls = CachedAction_CustomFieldSerializer.instantiate(stream);
+		System.out.println(nulls.getName() == null && nulls.getPint() == 0 && nulls.getStrings() == null);
+		System.out.println(stream.isEmpty());
+
+		// and the server writes them through the generated serializers
+		ServerSerializationStreamWriter writer = new ServerSerializationStreamWriter(RPC.getDefaultSerializationPolicy());
+		writer.prepareToWrite();
+		writer.writeObject(new FooAction(1));
+		writer.writeObject(new FooResult("a", 2));
+		writer.writeObject(cached);
+		System.out.println(writer.toString().length() > 0);
 	}
 	
+	/**
+	 * Reads back values in the order they were written.
+	 *
+	 * The server writer's output is in the server-to-client format, which {@code ServerSerializationStreamReader}
+	 * can't read, so this checks the generated serializers against each other instead.
+	 */
+	private static class Stream implements SerializationStreamWriter, SerializationStreamReader {
+		private final List<Object> values = new ArrayList<Object>();
+
+		private boolean isEmpty() {
+			return values.isEmpty();
+		}
+
+		private Object next() {
+			return values.remove(0);
+		}
+
+		public void writeBoolean(boolean value) {
+			values.add(value);
+		}
+
+		public void writeByte(byte value) {
+			values.add(value);
+		}
+
+		public void writeChar(char value) {
+			values.add(value);
+		}
+
+		public void writeDouble(double value) {
+			values.add(value);
+		}
+
+		public void writeFloat(float value) {
+			values.add(value);
+		}
+
+		public void writeInt(int value) {
+			values.add(value);
+		}
+
+		public void writeLong(long value) {
+			values.add(value);
+		}
+
+		public void writeObject(Object value) {
+			// copy arrays, so we don't just hand back the same instance
+			values.add(value instanceof Object[] ? Arrays.copyOf((Object[]) value, ((Object[]) value).length, ((Object[]) value).getClass()) : value);
+		}
+
+		public void writeShort(short value) {
+			values.add(value);
+		}
+
+		public void writeString(String value) {
+			values.add(value);
+		}
+
+		public boolean readBoolean() {
+			return (Boolean) next();
+		}
+
+		public byte readByte() {
+			return (Byte) next();
+		}
+
+		public char readChar() {
+			return (Character) next();
+		}
+
+		public double readDouble() {
+			return (Double) next();
+		}
+
+		public float readFloat() {
+			return (Float) next();
+		}
+
+		public int readInt() {
+			return (Integer) next();
+		}
+
+		public long readLong() {
+			return (Long) next();
+		}
+
+		public Object readObject() {
+			return next();
+		}
+
+		public short readShort() {
+			return (Short) next();
+		}
+
+		public String readString() {
+			return (String) next();
+		}
+	}
+
 	// holy crap this is really ghetto testing
 	static void barHasExecuteOverload() {
 		bar.execute(1);
@@ -9,4 +9,12 @@ public @interface GenDispatch {
 	String baseAction() default "";
 
 	String baseResult() default "";
+
+	/**
+	 * Whether the action is used as a cache key, e.g. in an {@code ActionCache}, so should precompute its hash code,
+	 * check the cheapest fields first in equals, and have a {@code toCacheKey} method.
+	 *
+	 * The {@code @In} params must be primitives, boxed primitives, Strings, enums, or arrays of primitives/boxes/Strings.
+	 */
+	boolean cacheKey() default false;
 }
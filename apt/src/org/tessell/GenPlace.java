@@ -11,4 +11,14 @@ public @interface GenPlace {
 	boolean async() default true;
 
 	String[] params() default {};
+
+	/** A route like {@code "orders/{id:long}/lines/{lineId}"}, with optional {@code :long}, {@code :int} or {@code :string} types. */
+	String route() default "";
+
+	/**
+	 * The name of a static method on the presenter that warms the place's data when it's prefetched, e.g. via {@code Prefetch.warm}.
+	 *
+	 * Its parameters can be any of this method's, matched by name, plus the {@code PlaceRequest} and {@code Prefetch}.
+	 */
+	String prefetch() default "";
 }
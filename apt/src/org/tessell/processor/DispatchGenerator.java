@@ -2,16 +2,25 @@ package org.tessell.processor;
 
 import static joist.sourcegen.Argument.arg;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
 import javax.tools.Diagnostic.Kind;
 
 import joist.sourcegen.Argument;
@@ -31,6 +40,10 @@ import org.tessell.Out;
 
 public class DispatchGenerator {
 
+	private static final String serializationException = "com.google.gwt.user.client.rpc.SerializationException";
+	private static final String serializationStreamReader = "com.google.gwt.user.client.rpc.SerializationStreamReader";
+	private static final String serializationStreamWriter = "com.google.gwt.user.client.rpc.SerializationStreamWriter";
+
 	private final ProcessingEnvironment env;
 	private final TypeElement element;
 	private final GClass actionClass;
@@ -61,8 +74,17 @@ public class DispatchGenerator {
 		setResultBaseClassOrInterface();
 		setActionBaseClassOrInterface();
 		addAnnotatedInAndOutParams();
-		generateDto(actionClass, MpvUtil.toProperties(inParams.values()));
-		generateDto(resultClass, MpvUtil.toProperties(outParams.values()));
+		GenDispatch genDispatch = element.getAnnotation(GenDispatch.class);
+		generateDto(actionClass, inParams.values(), genDispatch.cacheKey());
+		addNewCopyIfVersioned();
+		generateDto(resultClass, outParams.values(), false);
+		// a base class may have its own fields, which we don't know about, so leave those to the reflective serializer
+		if (generics.vars.length() == 0 && genDispatch.baseAction().length() == 0) {
+			generateCustomFieldSerializer(actionClass, MpvUtil.toProperties(inParams.values()));
+		}
+		if (generics.vars.length() == 0 && genDispatch.baseResult().length() == 0) {
+			generateCustomFieldSerializer(resultClass, MpvUtil.toProperties(outParams.values()));
+		}
 		makeUiCommandIfOnClasspath();
 	}
 
@@ -151,7 +173,26 @@ public class DispatchGenerator {
 		}
 	}
 
-	private void generateDto(GClass gclass, List<Prop> properties) {
+	/** Implements {@code VersionedListResult.newCopy} for results that extend it, so deltas can be applied to a copy. */
+	private void addNewCopyIfVersioned() {
+		GenDispatch genDispatch = element.getAnnotation(GenDispatch.class);
+		TypeElement versioned = env.getElementUtils().getTypeElement(dispatchPackageName + ".VersionedListResult");
+		if (versioned == null || genDispatch.baseResult().length() == 0) {
+			return;
+		}
+		TypeElement base = env.getElementUtils().getTypeElement(genDispatch.baseResult().replaceAll("<.*", ""));
+		Types types = env.getTypeUtils();
+		if (base == null || !types.isSubtype(types.erasure(base.asType()), types.erasure(versioned.asType()))) {
+			return;
+		}
+		String resultWithoutBounds = simpleName + "Result" + generics.vars;
+		GMethod newCopy = resultClass.getMethod("newCopy").setProtected().returnType(resultWithoutBounds);
+		newCopy.addAnnotation("@Override");
+		newCopy.body.line("return new {}({});", resultWithoutBounds, Join.commaSpace(asNames(outParams.values())));
+	}
+
+	private void generateDto(GClass gclass, Collection<VariableElement> fields, boolean cacheKey) {
+		List<Prop> properties = MpvUtil.toProperties(fields);
 		PropUtil.addGenerated(gclass, DispatchGenerator.class);
 		// move to GClass as a utility method
 		GMethod cstr = gclass.getConstructor();
@@ -162,12 +203,257 @@ public class DispatchGenerator {
 			// re-add the default constructor for serialization
 			gclass.getConstructor().setProtected();
 		}
-		PropUtil.addHashCode(gclass, properties);
-		PropUtil.addEquals(gclass, generics, properties);
+		if (cacheKey) {
+			addCacheKeyMethods(gclass, cstr, fields);
+		} else {
+			PropUtil.addHashCode(gclass, properties);
+			PropUtil.addEquals(gclass, generics, properties);
+		}
 		PropUtil.addToString(gclass, properties);
 		Util.saveCode(env, gclass);
 	}
 
+	/**
+	 * Adds a hashCode that is computed once, in the constructor, an equals that compares the hash codes and then
+	 * the cheapest fields first, and a {@code toCacheKey} string that is stable across sessions.
+	 *
+	 * The cached values are {@code GwtTransient}, so GWT-RPC doesn't send them; a deserialized instance computes them on first use.
+	 */
+	private void addCacheKeyMethods(GClass gclass, GMethod cstr, Collection<VariableElement> fields) {
+		for (VariableElement field : fields) {
+			if (!isKeyType(field.asType(), true)) {
+				env.getMessager().printMessage(Kind.ERROR, field.getSimpleName().toString()
+					+ " can't be part of a cache key, only primitives, boxed primitives, Strings, enums, and arrays of primitives/boxes/Strings can", field);
+			}
+		}
+		gclass.getField("cachedHashCode").type("int").addAnnotation("@com.google.gwt.user.client.rpc.GwtTransient");
+		gclass.getField("cachedKey").type("String").addAnnotation("@com.google.gwt.user.client.rpc.GwtTransient");
+		cstr.body.line("this.cachedHashCode = computeHashCode();");
+
+		GMethod computeHashCode = gclass.getMethod("computeHashCode").returnType("int").setPrivate();
+		computeHashCode.body.line("int hash = 17;");
+		for (VariableElement field : fields) {
+			computeHashCode.body.line("hash = 31 * hash + {};", hashOf(field));
+		}
+		// never 0, so 0 can mean "not computed yet"
+		computeHashCode.body.line("return hash == 0 ? 1 : hash;");
+
+		GMethod hashCode = gclass.getMethod("hashCode").returnType("int").addAnnotation("@Override");
+		hashCode.body.line("if (cachedHashCode == 0) {");
+		hashCode.body.line("  cachedHashCode = computeHashCode();");
+		hashCode.body.line("}");
+		hashCode.body.line("return cachedHashCode;");
+
+		String wildcardName = gclass.getSimpleClassNameWithoutGeneric() + generics.vars.replaceAll("\\w+", "?");
+		GMethod equals = gclass.getMethod("equals", arg("Object", "other")).returnType("boolean").addAnnotation("@Override");
+		equals.body.line("if (this == other) {");
+		equals.body.line("  return true;");
+		equals.body.line("}");
+		equals.body.line("if (other == null || other.getClass() != getClass() || other.hashCode() != hashCode()) {");
+		equals.body.line("  return false;");
+		equals.body.line("}");
+		if (fields.isEmpty()) {
+			equals.body.line("return true;");
+		} else {
+			equals.body.line("final {} o = ({}) other;", wildcardName, wildcardName);
+			StringBuilder comparisons = new StringBuilder();
+			for (VariableElement field : byEqualsCost(fields)) {
+				comparisons.append(comparisons.length() == 0 ? "" : "\n  && ").append(equalsOf(field));
+			}
+			equals.body.line("return {};", comparisons);
+		}
+
+		GMethod toCacheKey = gclass.getMethod("toCacheKey").returnType("String");
+		toCacheKey.body.line("if (cachedKey == null) {");
+		toCacheKey.body.line("  final StringBuilder sb = new StringBuilder(\"{}\");", gclass.getFullClassNameWithoutGeneric());
+		for (VariableElement field : fields) {
+			toCacheKey.body.line("  appendKey(sb, {});", keyOf(field));
+		}
+		toCacheKey.body.line("  cachedKey = sb.toString();");
+		toCacheKey.body.line("}");
+		toCacheKey.body.line("return cachedKey;");
+
+		// length-prefix each value so the key is unambiguous, with ~ for null
+		GMethod appendKey = gclass.getMethod("appendKey", arg("StringBuilder", "sb"), arg("Object", "value")).setStatic().setPrivate();
+		appendKey.body.line("if (value == null) {");
+		appendKey.body.line("  sb.append(\"|~\");");
+		appendKey.body.line("} else {");
+		appendKey.body.line("  final String s = value.toString();");
+		appendKey.body.line("  sb.append('|').append(s.length()).append(':').append(s);");
+		appendKey.body.line("}");
+	}
+
+	/** @return the fields ordered by how cheap they are to compare, keeping the {@code @In} order for ties */
+	private List<VariableElement> byEqualsCost(Collection<VariableElement> fields) {
+		List<VariableElement> sorted = new ArrayList<VariableElement>(fields);
+		Collections.sort(sorted, new Comparator<VariableElement>() {
+			public int compare(VariableElement a, VariableElement b) {
+				return equalsCost(a.asType()) - equalsCost(b.asType());
+			}
+		});
+		return sorted;
+	}
+
+	private int equalsCost(TypeMirror type) {
+		if (type.getKind().isPrimitive() || isEnum(type)) {
+			return 0; // ==
+		} else if (isBoxed(type)) {
+			return 1;
+		} else if (type.toString().equals("java.lang.String")) {
+			return 2;
+		} else if (type.getKind() == TypeKind.ARRAY) {
+			return 4;
+		}
+		return 3;
+	}
+
+	private String hashOf(VariableElement field) {
+		String name = field.getSimpleName().toString();
+		TypeMirror type = field.asType();
+		switch (type.getKind()) {
+			case BOOLEAN:
+				return "(" + name + " ? 1231 : 1237)";
+			case BYTE:
+			case CHAR:
+			case SHORT:
+			case INT:
+				return name;
+			case LONG:
+				return "(int) (" + name + " ^ (" + name + " >>> 32))";
+			case FLOAT:
+			case DOUBLE:
+				return "Double.valueOf(" + name + ").hashCode()";
+			case ARRAY:
+				return "java.util.Arrays." + (isPrimitiveArray(type) ? "hashCode(" : "deepHashCode(") + name + ")";
+			default:
+				return "(" + name + " == null ? 0 : " + name + ".hashCode())";
+		}
+	}
+
+	private String equalsOf(VariableElement field) {
+		String name = field.getSimpleName().toString();
+		TypeMirror type = field.asType();
+		if (type.getKind().isPrimitive() || isEnum(type)) {
+			return name + " == o." + name;
+		} else if (type.getKind() == TypeKind.ARRAY) {
+			return "java.util.Arrays." + (isPrimitiveArray(type) ? "equals(" : "deepEquals(") + name + ", o." + name + ")";
+		}
+		return "(" + name + " == null ? o." + name + " == null : " + name + ".equals(o." + name + "))";
+	}
+
+	private String keyOf(VariableElement field) {
+		String name = field.getSimpleName().toString();
+		TypeMirror type = field.asType();
+		if (type.getKind() == TypeKind.ARRAY) {
+			return isPrimitiveArray(type) ? "java.util.Arrays.toString(" + name + ")" : "java.util.Arrays.deepToString(" + name + ")";
+		} else if (isEnum(type)) {
+			// the name, as toString may be overridden
+			return "(" + name + " == null ? null : " + name + ".name())";
+		}
+		return name;
+	}
+
+	/** @return whether {@code type} has a stable {@code toString}, so it can be used by {@link #keyOf(VariableElement)} */
+	private boolean isKeyType(TypeMirror type, boolean allowEnum) {
+		if (type.getKind().isPrimitive() || isBoxed(type) || type.toString().equals("java.lang.String")) {
+			return true;
+		} else if (isEnum(type)) {
+			// keyOf uses name() for enums, but deepToString would use an array's enums' toString
+			return allowEnum;
+		} else if (type.getKind() == TypeKind.ARRAY) {
+			return isKeyType(((ArrayType) type).getComponentType(), false);
+		}
+		return false;
+	}
+
+	private boolean isEnum(TypeMirror type) {
+		return type.getKind() == TypeKind.DECLARED && ((DeclaredType) type).asElement().getKind() == ElementKind.ENUM;
+	}
+
+	private boolean isBoxed(TypeMirror type) {
+		try {
+			env.getTypeUtils().unboxedType(type);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	private static boolean isPrimitiveArray(TypeMirror type) {
+		return ((ArrayType) type).getComponentType().getKind().isPrimitive();
+	}
+
+	/**
+	 * Generates a GWT-RPC {@code Xxx_CustomFieldSerializer} for {@code dto} that reads and writes each property
+	 * in order, so neither the client nor the server has to serialize the DTO reflectively.
+	 *
+	 * All of the properties are read in {@code instantiate} and passed to the DTO's constructor.
+	 */
+	private void generateCustomFieldSerializer(GClass dto, List<Prop> properties) {
+		String dtoName = dto.getSimpleClassName();
+		GClass serializer = new GClass(dto.getFullClassNameWithoutGeneric() + "_CustomFieldSerializer");
+		serializer.baseClassName("com.google.gwt.user.client.rpc.CustomFieldSerializer<{}>", dtoName);
+		serializer.addImports(serializationException, serializationStreamReader, serializationStreamWriter);
+
+		GMethod serialize = serializer.getMethod("serialize", arg(serializationStreamWriter, "writer"), arg(dtoName, "instance")).setStatic();
+		serialize.addThrows(serializationException);
+		GMethod deserialize = serializer.getMethod("deserialize", arg(serializationStreamReader, "reader"), arg(dtoName, "instance")).setStatic();
+		deserialize.addThrows(serializationException);
+		deserialize.body.line("// instantiate reads every property");
+		GMethod instantiate = serializer.getMethod("instantiate", arg(serializationStreamReader, "reader")).setStatic().returnType(dtoName);
+		instantiate.addThrows(serializationException);
+
+		boolean unchecked = false;
+		for (Prop p : properties) {
+			String streamType = getStreamType(p.type);
+			if (streamType.equals("Object")) {
+				serialize.body.line("writer.writeObject(instance.get{}());", Util.upper(p.name));
+				instantiate.body.line("{} {} = ({}) reader.readObject();", p.type, p.name, p.type);
+				unchecked |= p.type.contains("<");
+			} else {
+				serialize.body.line("writer.write{}(instance.get{}());", streamType, Util.upper(p.name));
+				instantiate.body.line("{} {} = reader.read{}();", p.type, p.name, streamType);
+			}
+		}
+		instantiate.body.line("return new {}({});", dtoName, Join.commaSpace(Copy.list(properties).map(new Function1<String, Prop>() {
+			public String apply(Prop p) {
+				return p.name;
+			}
+		})));
+		if (unchecked) {
+			instantiate.addAnnotation("@SuppressWarnings(\"unchecked\")");
+		}
+
+		// the server uses these instance methods instead of calling the static ones reflectively
+		GMethod serializeInstance = serializer.getMethod("serializeInstance", arg(serializationStreamWriter, "writer"), arg(dtoName, "instance"));
+		serializeInstance.addAnnotation("@Override").addThrows(serializationException);
+		serializeInstance.body.line("serialize(writer, instance);");
+		GMethod deserializeInstance = serializer.getMethod("deserializeInstance", arg(serializationStreamReader, "reader"), arg(dtoName, "instance"));
+		deserializeInstance.addAnnotation("@Override").addThrows(serializationException);
+		deserializeInstance.body.line("deserialize(reader, instance);");
+		GMethod hasCustomInstantiate = serializer.getMethod("hasCustomInstantiateInstance").returnType("boolean");
+		hasCustomInstantiate.addAnnotation("@Override").body.line("return true;");
+		GMethod instantiateInstance = serializer.getMethod("instantiateInstance", arg(serializationStreamReader, "reader")).returnType(dtoName);
+		instantiateInstance.addAnnotation("@Override").addThrows(serializationException);
+		instantiateInstance.body.line("return instantiate(reader);");
+
+		PropUtil.addGenerated(serializer, DispatchGenerator.class);
+		Util.saveCode(env, serializer, element);
+	}
+
+	/** @return the {@code SerializationStreamReader/Writer} method suffix for {@code type}, e.g. {@code Int}, or {@code Object} */
+	private static String getStreamType(String type) {
+		if (type.equals("java.lang.String") || type.equals("String")) {
+			return "String";
+		}
+		for (String primitive : new String[] { "boolean", "byte", "char", "double", "float", "int", "long", "short" }) {
+			if (type.equals(primitive)) {
+				return Util.upper(primitive);
+			}
+		}
+		return "Object";
+	}
+
 	private String detectDispatchBasePackage(ProcessingEnvironment env) {
 		String dispatchBasePackage = env.getOptions().get("dispatchBasePackage");
 		if (dispatchBasePackage != null) {
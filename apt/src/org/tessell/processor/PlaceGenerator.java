@@ -1,13 +1,17 @@
 package org.tessell.processor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
 import javax.tools.Diagnostic.Kind;
 
 import joist.sourcegen.Argument;
@@ -40,6 +44,13 @@ import org.tessell.GenPlace;
  *     PlaceManager m = ...;
  *     m.registerPlace(new FooPlace(appWideState));
  * </pre>
+ *
+ * If a {@code route} is given, it's checked here, at compile time, and registered with the
+ * {@code RouteTokenizer} when the place is registered; its typed parameters get typed accessors
+ * on the generated {@code FooPlaceRequest}.
+ *
+ * If a {@code prefetch} method is given, the generated place calls it when prefetched, after
+ * loading the presenter's code for async places, so it can warm the data the place will need.
  */
 public class PlaceGenerator {
 
@@ -48,15 +59,24 @@ public class PlaceGenerator {
 	private final GenPlace place;
 	private final GClass placeClass;
 	private final GClass placeRequestClass;
+	private final Map<String, String> routeParams;
+	private final ExecutableElement prefetchMethod;
 
 	public PlaceGenerator(ProcessingEnvironment env, ExecutableElement element, GenPlace place) throws InvalidTypeElementException {
 		if (!element.getModifiers().contains(Modifier.STATIC)) {
 			env.getMessager().printMessage(Kind.ERROR, "GenPlace methods must be static", element);
 			throw new InvalidTypeElementException();
 		}
+		try {
+			routeParams = parseRoute(place.route());
+		} catch (IllegalArgumentException iae) {
+			env.getMessager().printMessage(Kind.ERROR, iae.getMessage(), element);
+			throw new InvalidTypeElementException();
+		}
 		this.env = env;
 		this.element = element;
 		this.place = place;
+		prefetchMethod = findPrefetchMethod();
 		placeClass = new GClass(getPlaceQualifiedClassName()).baseClassName("org.tessell.place.Place");
 		placeRequestClass = new GClass(getPlaceRequestQualifiedClassName()).baseClassName("org.tessell.place.PlaceRequest");
 	}
@@ -69,6 +89,7 @@ public class PlaceGenerator {
 		addCstrSuperCall(cstr);
 		addCstrStaticMethodArguments(cstr);
 		addCstrFailureCallbackIfNeeded(cstr);
+		addRoute();
 		if (place.async()) {
 			addAsyncHandleRequest();
 		} else {
@@ -80,6 +101,7 @@ public class PlaceGenerator {
 		addPlaceRequestCstrTwo();
 		addPlaceRequestCstrThree();
 		addPlaceRequestParameters();
+		addPlaceRequestRouteParameters();
 		Util.saveCode(env, placeRequestClass, element);
 	}
 
@@ -92,6 +114,15 @@ public class PlaceGenerator {
 		m.body.line("return new {}();", placeRequestClass.getSimpleClassName());
 	}
 
+	private void addRoute() {
+		if (place.route().length() == 0) {
+			return;
+		}
+		placeClass.getField("ROUTE").type("String").setPublic().setStatic().setFinal().initialValue("\"{}\"", place.route());
+		GMethod m = placeClass.getMethod("getRoute").returnType("String").addAnnotation("@Override");
+		m.body.line("return ROUTE;");
+	}
+
 	private void addCstrSuperCall(GMethod cstr) {
 		cstr.body.line("super(NAME);");
 	}
@@ -123,8 +154,48 @@ public class PlaceGenerator {
 
 	private void addAsyncHandleRequest() {
 		GMethod m = placeClass.getMethod("handleRequest").argument("final org.tessell.place.PlaceRequest", "request");
+		m.body.line("load(request, null);");
+		addAsyncPrefetch();
+		addAsyncLoad();
+	}
+
+	private void addAsyncPrefetch() {
+		GMethod m = placeClass.getMethod("prefetch");
+		m.argument("final org.tessell.place.PlaceRequest", "request");
+		m.argument("final org.tessell.place.Prefetch", "prefetch");
+		m.addAnnotation("@Override");
+		m.body.line("super.prefetch(request, prefetch);");
+		m.body.line("prefetch.start();");
+		m.body.line("load(request, prefetch);");
+	}
+
+	private void addSyncPrefetch() {
+		if (prefetchMethod == null) {
+			return;
+		}
+		GMethod m = placeClass.getMethod("prefetch");
+		m.argument("final org.tessell.place.PlaceRequest", "request");
+		m.argument("final org.tessell.place.Prefetch", "prefetch");
+		m.addAnnotation("@Override");
+		m.body.line("super.prefetch(request, prefetch);");
+		m.body.line("{}.{}({});", getPresenterClassName(), place.prefetch(), Join.commaSpace(getPrefetchParamNames()));
+	}
+
+	private void addAsyncLoad() {
+		// GWT.runAsync split points are per call site, so requests and prefetches must share this one
+		GMethod m = placeClass.getMethod("load").setPrivate();
+		m.argument("final org.tessell.place.PlaceRequest", "request");
+		m.argument("final org.tessell.place.Prefetch", "prefetch");
 		m.body.line("GWT.runAsync(new RunAsyncCallback() {");
 		m.body.line("    public void onSuccess() {");
+		m.body.line("        if (prefetch != null) {");
+		if (prefetchMethod != null) {
+			// called here, rather than in prefetch, so the presenter stays behind the split point
+			m.body.line("            {}.{}({});", getPresenterClassName(), place.prefetch(), Join.commaSpace(getPrefetchParamNames()));
+		}
+		m.body.line("            prefetch.done();");
+		m.body.line("            return; // prefetching");
+		m.body.line("        }");
 		m.body.line("        if (request == null) {");
 		m.body.line("            return; // prefetching");
 		m.body.line("        }");
@@ -132,6 +203,10 @@ public class PlaceGenerator {
 		m.body.line("    }");
 		m.body.line("");
 		m.body.line("    public void onFailure(Throwable caught) {");
+		m.body.line("        if (prefetch != null) {");
+		m.body.line("            prefetch.done();");
+		m.body.line("            return; // the real request will try again");
+		m.body.line("        }");
 		m.body.line("        failureCallback.onFailure(caught);");
 		m.body.line("    }");
 		m.body.line("});");
@@ -144,6 +219,57 @@ public class PlaceGenerator {
 		m.body.line("    return; // prefetching (not needed, just for consistency)");
 		m.body.line("}");
 		m.body.line("{}.{}({});", getPresenterClassName(), getMethodName(), Join.commaSpace(getMethodParamNames()));
+		addSyncPrefetch();
+	}
+
+	/** @return the presenter's {@code prefetch} method, checking its parameters can all be passed from the place */
+	private ExecutableElement findPrefetchMethod() throws InvalidTypeElementException {
+		if (place.prefetch().length() == 0) {
+			return null;
+		}
+		for (ExecutableElement method : ElementFilter.methodsIn(element.getEnclosingElement().getEnclosedElements())) {
+			if (!method.getSimpleName().toString().equals(place.prefetch())) {
+				continue;
+			}
+			if (!method.getModifiers().contains(Modifier.STATIC)) {
+				env.getMessager().printMessage(Kind.ERROR, "GenPlace prefetch methods must be static", method);
+				throw new InvalidTypeElementException();
+			}
+			for (VariableElement param : method.getParameters()) {
+				if (getPrefetchParamName(param) == null) {
+					env.getMessager().printMessage(Kind.ERROR, "Prefetch parameter " + param.getSimpleName() + " must be a PlaceRequest, a Prefetch, or one of "
+						+ getMethodName() + "'s parameters", method);
+					throw new InvalidTypeElementException();
+				}
+			}
+			return method;
+		}
+		env.getMessager().printMessage(Kind.ERROR, "Prefetch method " + place.prefetch() + " was not found", element);
+		throw new InvalidTypeElementException();
+	}
+
+	private List<String> getPrefetchParamNames() {
+		List<String> paramNames = new ArrayList<String>();
+		for (VariableElement param : prefetchMethod.getParameters()) {
+			paramNames.add(getPrefetchParamName(param));
+		}
+		return paramNames;
+	}
+
+	/** @return the name of the generated variable to pass as {@code param}, or {@code null} if there isn't one */
+	private String getPrefetchParamName(VariableElement param) {
+		String paramType = param.asType().toString();
+		if (paramType.equals("org.tessell.place.PlaceRequest")) {
+			return "request";
+		} else if (paramType.equals("org.tessell.place.Prefetch")) {
+			return "prefetch";
+		}
+		for (VariableElement other : element.getParameters()) {
+			if (other.getSimpleName().contentEquals(param.getSimpleName()) && other.asType().toString().equals(paramType)) {
+				return other.getSimpleName().toString();
+			}
+		}
+		return null;
 	}
 
 	private List<String> getMethodParamNames() {
@@ -184,7 +310,7 @@ public class PlaceGenerator {
 	}
 
 	private void addPlaceRequestCstrThree() {
-		if (place.params() == null || place.params().length == 0) {
+		if ((place.params() == null || place.params().length == 0) && routeParams.isEmpty()) {
 			return;
 		}
 		GMethod cstr = placeRequestClass.getConstructor(//
@@ -211,4 +337,51 @@ public class PlaceGenerator {
 		}
 	}
 
+	private void addPlaceRequestRouteParameters() {
+		List<String> params = place.params() == null ? new ArrayList<String>() : Arrays.asList(place.params());
+		for (Map.Entry<String, String> e : routeParams.entrySet()) {
+			String param = e.getKey();
+			if (params.contains(param)) {
+				continue; // already has string accessors
+			}
+			GMethod getter = placeRequestClass.getMethod(param);
+			if (e.getValue().equals("long")) {
+				getter.returnType("Long").body.line("return getLongParameter(\"{}\", null);", param);
+			} else if (e.getValue().equals("int")) {
+				getter.returnType("Integer").body.line("return getIntegerParameter(\"{}\", null);", param);
+			} else {
+				getter.returnType("String").body.line("return getParameter(\"{}\", null);", param);
+			}
+
+			GMethod setter = placeRequestClass.getMethod(param, Argument.arg("Object", "value")).returnType(placeRequestClass.getSimpleClassName());
+			setter.body.line("return new {}(this, \"{}\", ObjectUtils.toStr(value, \"\"));", placeRequestClass.getSimpleClassName(), param);
+			placeRequestClass.addImports("org.tessell.util.ObjectUtils");
+		}
+	}
+
+	/** Checks {@code route} at compile time, so bad routes don't fail when the place is registered, and returns its parameter names/types. */
+	private static Map<String, String> parseRoute(String route) {
+		Map<String, String> params = new LinkedHashMap<String, String>();
+		if (route.length() == 0) {
+			return params;
+		}
+		for (String part : route.split("/", -1)) {
+			if (part.startsWith("{") && part.endsWith("}")) {
+				int colon = part.indexOf(':');
+				String name = part.substring(1, colon == -1 ? part.length() - 1 : colon);
+				String type = colon == -1 ? "string" : part.substring(colon + 1, part.length() - 1);
+				if (name.length() == 0 || params.containsKey(name)) {
+					throw new IllegalArgumentException("Invalid parameter " + part + " in route " + route);
+				}
+				if (!type.equals("string") && !type.equals("long") && !type.equals("int")) {
+					throw new IllegalArgumentException("Unknown parameter type " + type + " in route " + route);
+				}
+				params.put(name, type);
+			} else if (part.length() == 0 || part.contains("{") || part.contains("}")) {
+				throw new IllegalArgumentException("Invalid segment '" + part + "' in route " + route);
+			}
+		}
+		return params;
+	}
+
 }
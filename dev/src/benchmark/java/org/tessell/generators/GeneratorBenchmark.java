@@ -0,0 +1,275 @@
+package org.tessell.generators;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+
+import com.google.gwt.junit.GWTMockUtilities;
+
+/**
+ * Times the {@link Generator} against a synthetic project, so we can catch regressions in generation time.
+ *
+ * Scenarios:
+ *
+ * <ul>
+ * <li>{@code cold}: an empty output directory, e.g. after {@code ant clean}</li>
+ * <li>{@code warm}: nothing changed since the last run, so everything should come from the caches</li>
+ * <li>{@code changedView}: one {@code ui.xml} file changed</li>
+ * <li>{@code changedCss}: one CSS file changed</li>
+ * </ul>
+ *
+ * Each scenario uses a new {@link Generator}, like a build would, and the min/median/max times are written as a
+ * properties file. Pass a previous results file as {@code --baseline} to fail if any median got slower than
+ * {@code --tolerance} (a fraction, defaults to 0.2).
+ *
+ * Args (all optional): {@code --views 200 --fields 20 --withs 2 --styles 1 --cssFiles 50 --images 50 --iterations 5
+ * --threads n --directory target/benchmark --results target/benchmark.properties --baseline old.properties}.
+ */
+public class GeneratorBenchmark {
+
+  private static final String viewsPackage = "bench.views";
+  private static final String resourcesPackage = "bench.resources";
+  private static final String[] widgets = { "TextBox", "Label", "Anchor", "FlowPanel" };
+  private final Map<String, String> settings;
+  private final File input;
+  private final File output;
+  private final int views;
+  private final int fields;
+  private final int withs;
+  private final int styles;
+  private final int cssFiles;
+  private final int images;
+  private final int iterations;
+  private final Properties results = new Properties();
+  private int changes;
+
+  public static void main(final String[] args) throws Exception {
+    GWTMockUtilities.disarm();
+    final Map<String, String> settings = GenUtils.parseArgs(args);
+    final GeneratorBenchmark b = new GeneratorBenchmark(settings);
+    b.run();
+    b.saveResults(new File(get(settings, "results", "target/benchmark.properties")));
+    if (settings.containsKey("baseline")) {
+      final double tolerance = Double.parseDouble(get(settings, "tolerance", "0.2"));
+      if (!b.compareTo(new File(settings.get("baseline")), tolerance)) {
+        System.exit(1);
+      }
+    }
+  }
+
+  public GeneratorBenchmark(final Map<String, String> settings) {
+    this.settings = settings;
+    final File directory = new File(get(settings, "directory", "target/benchmark"));
+    input = new File(directory, "input");
+    output = new File(directory, "output");
+    views = getInt(settings, "views", 200);
+    fields = getInt(settings, "fields", 20);
+    withs = getInt(settings, "withs", 2);
+    styles = getInt(settings, "styles", 1);
+    cssFiles = getInt(settings, "cssFiles", 50);
+    images = getInt(settings, "images", 50);
+    iterations = getInt(settings, "iterations", 5);
+  }
+
+  public void run() throws Exception {
+    FileUtils.deleteDirectory(input);
+    synthesize();
+    results.setProperty("project.views", Integer.toString(views));
+    results.setProperty("project.fields", Integer.toString(fields));
+    results.setProperty("project.withs", Integer.toString(withs));
+    results.setProperty("project.styles", Integer.toString(styles));
+    results.setProperty("project.cssFiles", Integer.toString(cssFiles));
+    results.setProperty("project.images", Integer.toString(images));
+    results.setProperty("project.iterations", Integer.toString(iterations));
+
+    // one untimed run to warm up the JIT
+    cold();
+
+    final long[] cold = new long[iterations];
+    final long[] warm = new long[iterations];
+    final long[] changedView = new long[iterations];
+    final long[] changedCss = new long[iterations];
+    for (int i = 0; i < iterations; i++) {
+      cold[i] = cold();
+      warm[i] = time();
+      changeView();
+      changedView[i] = time();
+      changeCss();
+      changedCss[i] = time();
+    }
+    record("cold", cold);
+    record("warm", warm);
+    record("changedView", changedView);
+    record("changedCss", changedCss);
+  }
+
+  public void saveResults(final File file) throws IOException {
+    GenUtils.mkdirs(file.getAbsoluteFile().getParentFile());
+    final OutputStream out = new FileOutputStream(file);
+    try {
+      results.store(out, "GeneratorBenchmark results, times in milliseconds");
+    } finally {
+      out.close();
+    }
+    for (final String key : new TreeSet<String>(results.stringPropertyNames())) {
+      System.out.println(key + "=" + results.getProperty(key));
+    }
+  }
+
+  /** @return false if any scenario's median is more than {@code tolerance} slower than in {@code baselineFile} */
+  public boolean compareTo(final File baselineFile, final double tolerance) throws IOException {
+    final Properties baseline = new Properties();
+    final InputStream in = new FileInputStream(baselineFile);
+    try {
+      baseline.load(in);
+    } finally {
+      in.close();
+    }
+    boolean okay = true;
+    for (final String key : new TreeSet<String>(results.stringPropertyNames())) {
+      if (!key.endsWith(".median") || baseline.getProperty(key) == null) {
+        continue;
+      }
+      final long before = Long.parseLong(baseline.getProperty(key));
+      final long after = Long.parseLong(results.getProperty(key));
+      final boolean slower = after > before * (1 + tolerance) && after - before > 5; // ignore noise on tiny times
+      System.out.println(key + " " + before + "ms -> " + after + "ms" + (slower ? " REGRESSION" : ""));
+      okay &= !slower;
+    }
+    return okay;
+  }
+
+  private long cold() throws Exception {
+    FileUtils.deleteDirectory(output);
+    return time();
+  }
+
+  /** @return how long a new generator takes to run, with its output suppressed so we aren't timing the console */
+  private long time() throws Exception {
+    final PrintStream out = System.out;
+    System.setOut(new PrintStream(new NullOutputStream()));
+    try {
+      final long start = System.nanoTime();
+      new Generator(generatorSettings()).run();
+      return (System.nanoTime() - start) / 1000000;
+    } finally {
+      System.setOut(out);
+    }
+  }
+
+  private Map<String, String> generatorSettings() {
+    final Map<String, String> s = new HashMap<String, String>();
+    s.put("inputDirectory", input.getPath());
+    s.put("outputDirectory", output.getPath());
+    s.put("viewsPackageName", viewsPackage);
+    s.put("resourcesPackageName", resourcesPackage);
+    if (settings.containsKey("threads")) {
+      s.put("threads", settings.get("threads"));
+    }
+    return s;
+  }
+
+  private void record(final String scenario, final long[] times) {
+    final long[] sorted = times.clone();
+    Arrays.sort(sorted);
+    results.setProperty(scenario + ".min", Long.toString(sorted[0]));
+    results.setProperty(scenario + ".median", Long.toString(sorted[sorted.length / 2]));
+    results.setProperty(scenario + ".max", Long.toString(sorted[sorted.length - 1]));
+  }
+
+  private void synthesize() throws IOException {
+    for (int i = 0; i < views; i++) {
+      write(viewFile(i), uiXml(i, ""));
+    }
+    for (int i = 0; i < cssFiles; i++) {
+      write(cssFile(i), css("sheet" + i, ""));
+    }
+    final File resources = new File(input, resourcesPackage.replace(".", File.separator));
+    for (int i = 0; i < images; i++) {
+      GenUtils.writeAtomically(new File(resources, "image" + i + ".png"), new byte[] { (byte) 0x89, 'P', 'N', 'G' });
+    }
+  }
+
+  private void changeView() throws IOException {
+    if (views > 0) {
+      write(viewFile(0), uiXml(0, "<!-- change " + (++changes) + " -->"));
+    }
+  }
+
+  private void changeCss() throws IOException {
+    if (cssFiles > 0) {
+      write(cssFile(0), css("sheet0", ".changed" + (++changes) + " { color: red; }\n"));
+    }
+  }
+
+  private String uiXml(final int i, final String extra) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("<!DOCTYPE ui:UiBinder SYSTEM \"http://dl.google.com/gwt/DTD/xhtml.ent\">\n");
+    sb.append("<ui:UiBinder xmlns:ui=\"urn:ui:com.google.gwt.uibinder\" xmlns:gwt=\"urn:import:com.google.gwt.user.client.ui\">\n");
+    for (int j = 0; j < withs; j++) {
+      sb.append("  <ui:with field=\"w" + j + "\" type=\"" + resourcesPackage + ".With" + j + "\" />\n");
+    }
+    for (int j = 0; j < styles; j++) {
+      sb.append("  <ui:style field=\"s" + j + "\" type=\"" + viewsPackage + ".Page" + i + "Style" + j + "\">\n");
+      sb.append(css("page" + i + "s" + j, ""));
+      sb.append("  </ui:style>\n");
+    }
+    sb.append("  <gwt:HTMLPanel>\n");
+    sb.append("  " + extra + "\n");
+    for (int j = 0; j < fields; j++) {
+      if (j % 5 == 4) {
+        sb.append("    <div ui:field=\"element" + j + "\" />\n");
+      } else {
+        final String widget = widgets[j % widgets.length];
+        sb.append("    <gwt:" + widget + " ui:field=\"field" + j + "\" />\n");
+      }
+    }
+    sb.append("  </gwt:HTMLPanel>\n");
+    sb.append("</ui:UiBinder>\n");
+    return sb.toString();
+  }
+
+  private static String css(final String prefix, final String extra) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("@def " + prefix + "Color #333;\n");
+    for (int k = 0; k < 10; k++) {
+      sb.append("." + prefix + "-class" + k + " { color: " + prefix + "Color; margin: " + k + "px; }\n");
+    }
+    sb.append(extra);
+    return sb.toString();
+  }
+
+  private File viewFile(final int i) {
+    return new File(input, viewsPackage.replace(".", File.separator) + File.separator + "Page" + i + ".ui.xml");
+  }
+
+  private File cssFile(final int i) {
+    return new File(input, resourcesPackage.replace(".", File.separator) + File.separator + "sheet" + i + ".css");
+  }
+
+  private static void write(final File file, final String content) throws IOException {
+    GenUtils.writeAtomically(file, content.getBytes());
+  }
+
+  private static String get(final Map<String, String> settings, final String key, final String defaultValue) {
+    final String value = settings.get(key);
+    return value == null ? defaultValue : value;
+  }
+
+  private static int getInt(final Map<String, String> settings, final String key, final int defaultValue) {
+    return Integer.parseInt(get(settings, key, Integer.toString(defaultValue)));
+  }
+
+}
@@ -1,6 +1,8 @@
 package org.tessell.generators;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -9,42 +11,174 @@ import joist.sourcegen.GClass;
 
 import org.apache.commons.io.FileUtils;
 
+/**
+ * Tracks which files in the output packages are still generated, so the rest can be deleted.
+ *
+ * The generators mark each file they produce, and the produced files are saved in a manifest, so
+ * the next run can find stale files by diffing against the last manifest instead of listing
+ * every file in the output packages. The packages are only listed if there is no manifest yet,
+ * or if the last run of that package didn't finish, as the manifest doesn't have what it wrote.
+ * The packages being generated are kept in a pending file until their run finishes, so a run that
+ * fails, or is killed, is still cleaned up after by the next one.
+ *
+ * Paths are kept relative to the output directory, with {@code /} separators.
+ *
+ * Generators may mark files from multiple threads, so all methods are synchronized.
+ */
 public class Cleanup {
 
   private final File outputDirectory;
-  private final Set<String> filesAssumedBad = new TreeSet<String>();
+  private final String outputPrefix;
+  private final Set<String> packages = new TreeSet<String>();
+  private final Set<String> produced = new HashSet<String>();
+  private final Set<String> listed = new HashSet<String>();
+  // the files produced by the last run, or null if we haven't loaded the manifest yet
+  private Set<String> previous;
+  private boolean hasManifest;
+  // the packages whose runs have started but not finished, kept across reset() and on disk
+  private final Set<String> pending = new TreeSet<String>();
 
   public Cleanup(final File outputDirectory) {
     this.outputDirectory = outputDirectory;
+    outputPrefix = outputDirectory.getAbsolutePath() + File.separator;
+  }
+
+  /** Forgets any previously watched files, so we can be reused for another run. */
+  public synchronized void reset() {
+    packages.clear();
+    produced.clear();
+    listed.clear();
   }
 
   @SuppressWarnings("unchecked")
-  public void watchPackage(String packageName) {
+  public synchronized void watchPackage(String packageName) {
+    final String packagePath = packageName.replace(".", "/") + "/";
+    packages.add(packagePath);
+    loadManifestIfNeeded();
+    final boolean unfinished = !pending.add(packagePath);
+    if (!unfinished) {
+      savePending();
+    }
+    if (hasManifest && !unfinished) {
+      return;
+    }
+    // no manifest, or the last run of this package didn't finish, so fall back on listing the package
     File packageDirectory = new File(outputDirectory, packageName.replace(".", File.separator));
     if (packageDirectory.exists()) {
       for (File file : (List<File>) FileUtils.listFiles(packageDirectory, null, true)) {
-        filesAssumedBad.add(file.getAbsolutePath());
+        listed.add(relative(file));
       }
     }
   }
 
-  public void markTypeOkay(String className) {
-    filesAssumedBad.remove(new File(outputDirectory, className.replace(".", File.separator) + ".java").getAbsolutePath());
+  public synchronized void markTypeOkay(String className) {
+    produced.add(className.replace(".", "/") + ".java");
+  }
+
+  public synchronized void markOkay(File file) {
+    produced.add(relative(file));
+  }
+
+  public synchronized void markOkay(GClass gc) {
+    produced.add(gc.getFileName().replace(File.separatorChar, '/'));
   }
 
-  public void markOkay(File file) {
-    filesAssumedBad.remove(file.getAbsolutePath());
+  public synchronized void deleteLeftOvers() {
+    loadManifestIfNeeded();
+    final Set<String> candidates = new TreeSet<String>(listed);
+    candidates.addAll(previous);
+    for (String candidate : candidates) {
+      if (isWatched(candidate) && !produced.contains(candidate)) {
+        final File bad = new File(outputDirectory, candidate);
+        if (bad.exists()) {
+          System.out.println("deleting " + bad);
+          bad.delete();
+        }
+      }
+    }
+    saveManifest();
+    pending.removeAll(packages);
+    savePending();
   }
 
-  public void markOkay(GClass gc) {
-    filesAssumedBad.remove(new File(outputDirectory, gc.getFileName()).getAbsolutePath());
+  /** Saves what we produced, plus any previous outputs in packages we weren't watching this time. */
+  private void saveManifest() {
+    final Set<String> manifest = new TreeSet<String>(produced);
+    for (String path : previous) {
+      if (!isWatched(path)) {
+        manifest.add(path);
+      }
+    }
+    try {
+      GenUtils.mkdirs(outputDirectory);
+      FileUtils.writeLines(manifest(), manifest);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    previous = manifest;
+    hasManifest = true;
   }
 
-  public void deleteLeftOvers() {
-    for (String bad : filesAssumedBad) {
-      System.out.println("deleting " + bad);
-      new File(bad).delete();
+  private void loadManifestIfNeeded() {
+    if (previous != null) {
+      return;
+    }
+    previous = new HashSet<String>();
+    if (manifest().exists()) {
+      try {
+        for (Object line : FileUtils.readLines(manifest())) {
+          previous.add((String) line);
+        }
+        hasManifest = true;
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }
+    if (pendingFile().exists()) {
+      try {
+        for (Object line : FileUtils.readLines(pendingFile())) {
+          pending.add((String) line);
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  private void savePending() {
+    try {
+      if (pending.isEmpty()) {
+        pendingFile().delete();
+      } else {
+        GenUtils.mkdirs(outputDirectory);
+        FileUtils.writeLines(pendingFile(), pending);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private boolean isWatched(String path) {
+    for (String packagePath : packages) {
+      if (path.startsWith(packagePath)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private String relative(File file) {
+    final String path = file.getAbsolutePath();
+    final String relative = path.startsWith(outputPrefix) ? path.substring(outputPrefix.length()) : path;
+    return relative.replace(File.separatorChar, '/');
+  }
+
+  private File manifest() {
+    return new File(outputDirectory, ".generator.manifest");
+  }
+
+  private File pendingFile() {
+    return new File(outputDirectory, ".generator.pending");
   }
 
 }
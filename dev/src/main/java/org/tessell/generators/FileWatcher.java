@@ -0,0 +1,228 @@
+package org.tessell.generators;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Watches a directory tree for changed files by polling their timestamps and sizes.
+ *
+ * Directories are only re-listed when their own timestamp changes (or changed recently, as some
+ * file systems only have one or two second timestamps), so each poll is a stat of each directory
+ * and watched file, instead of walking the whole tree.
+ *
+ * For the same reason, a file's content is checksummed while its timestamp is within a couple of seconds
+ * of the previous poll, so a same-length save in the same second as the last one isn't missed.
+ *
+ * Bursts of changes (e.g. a branch switch, or an IDE saving several files) are debounced by waiting
+ * until the tree has been quiet for a while before reporting them.
+ */
+public class FileWatcher {
+
+  // how long after a directory or file changes we keep checking it, in case its timestamp is too coarse to see another change
+  private static final long coarseTimestampMillis = 2000;
+  private final File directory;
+  private final String ignoredDirectory;
+  private final String[] extensions;
+  private final Map<File, Listing> listings = new HashMap<File, Listing>();
+  private Map<String, Stamp> last;
+  // the most recent snapshot, which may be newer than last while we're waiting for a burst to finish
+  private Map<String, Stamp> previous = new HashMap<String, Stamp>();
+  private long previousAt;
+
+  /** Watches files under {@code directory} ending in {@code extensions}, ignoring anything under {@code ignored}. */
+  public FileWatcher(final File directory, final File ignored, final String... extensions) {
+    this.directory = directory.getAbsoluteFile();
+    this.ignoredDirectory = ignored == null ? null : ignored.getAbsolutePath();
+    this.extensions = extensions;
+    previousAt = System.currentTimeMillis();
+    last = snapshot();
+  }
+
+  /**
+   * Blocks until files have been added, changed, or removed, and then nothing else has changed for {@code quietMillis}.
+   *
+   * @return the files that changed since the last call
+   */
+  public List<File> awaitChanges(final long pollMillis, final long quietMillis) throws InterruptedException {
+    Map<String, Stamp> current = last;
+    while (current.equals(last)) {
+      Thread.sleep(pollMillis);
+      current = snapshot();
+    }
+    while (true) {
+      Thread.sleep(quietMillis);
+      final Map<String, Stamp> next = snapshot();
+      if (next.equals(current)) {
+        break;
+      }
+      current = next;
+    }
+    final List<File> changed = diff(last, current);
+    last = current;
+    return changed;
+  }
+
+  /** @return the files that changed since the last call, without waiting, or an empty list */
+  List<File> poll() {
+    final Map<String, Stamp> current = snapshot();
+    final List<File> changed = diff(last, current);
+    last = current;
+    return changed;
+  }
+
+  private static List<File> diff(final Map<String, Stamp> before, final Map<String, Stamp> after) {
+    final List<File> changed = new ArrayList<File>();
+    for (final Map.Entry<String, Stamp> e : after.entrySet()) {
+      if (!e.getValue().equals(before.get(e.getKey()))) {
+        changed.add(new File(e.getKey()));
+      }
+    }
+    for (final String path : before.keySet()) {
+      if (!after.containsKey(path)) {
+        changed.add(new File(path));
+      }
+    }
+    return changed;
+  }
+
+  private Map<String, Stamp> snapshot() {
+    final long now = System.currentTimeMillis();
+    refresh(directory);
+    final Map<String, Stamp> files = new HashMap<String, Stamp>();
+    for (final Listing listing : listings.values()) {
+      for (final File file : listing.files) {
+        files.put(file.getPath(), stamp(file, previous.get(file.getPath())));
+      }
+    }
+    previous = files;
+    previousAt = now;
+    return files;
+  }
+
+  /** @return the stamp of {@code file}, checksumming it if it could have changed since the last poll within the same timestamp */
+  private Stamp stamp(final File file, final Stamp before) {
+    final long modified = file.lastModified();
+    final long length = file.length();
+    if (previousAt - modified < coarseTimestampMillis) {
+      return new Stamp(modified, length, checksum(file));
+    }
+    if (before != null && before.modified == modified && before.length == length) {
+      return before; // keep any checksum from when it was recent, so it doesn't look changed as it ages
+    }
+    return new Stamp(modified, length, 0);
+  }
+
+  private static long checksum(final File file) {
+    try {
+      return FileUtils.checksumCRC32(file);
+    } catch (final IOException io) {
+      return -1; // deleted out from under us, the next poll will see it's gone
+    }
+  }
+
+  /** Re-lists {@code dir} if it has changed, and then its sub-directories. */
+  private void refresh(final File dir) {
+    final long modified = dir.lastModified();
+    Listing listing = listings.get(dir);
+    if (listing == null || listing.modified != modified || listing.listed - modified < coarseTimestampMillis) {
+      final Listing old = listing;
+      listing = list(dir, modified);
+      listings.put(dir, listing);
+      if (old != null) {
+        for (final File sub : old.dirs) {
+          if (!listing.dirs.contains(sub)) {
+            forget(sub);
+          }
+        }
+      }
+    }
+    for (final File sub : listing.dirs) {
+      refresh(sub);
+    }
+  }
+
+  private void forget(final File dir) {
+    final Listing listing = listings.remove(dir);
+    if (listing != null) {
+      for (final File sub : listing.dirs) {
+        forget(sub);
+      }
+    }
+  }
+
+  private Listing list(final File dir, final long modified) {
+    final Listing listing = new Listing(modified, System.currentTimeMillis());
+    final File[] children = dir.listFiles();
+    if (children != null) {
+      for (final File child : children) {
+        if (child.isDirectory()) {
+          if (!child.getAbsolutePath().equals(ignoredDirectory)) {
+            listing.dirs.add(child);
+          }
+        } else if (isWatched(child.getName())) {
+          listing.files.add(child);
+        }
+      }
+    }
+    return listing;
+  }
+
+  private boolean isWatched(final String name) {
+    if (name.endsWith("-gen.ui.xml") || name.endsWith(".gen.css")) {
+      return false; // our own output, if it's under the input directory
+    }
+    for (final String extension : extensions) {
+      if (name.endsWith("." + extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** A file's timestamp, length, and, if it changed recently, checksum. */
+  private static class Stamp {
+    private final long modified;
+    private final long length;
+    private final long checksum;
+
+    private Stamp(final long modified, final long length, final long checksum) {
+      this.modified = modified;
+      this.length = length;
+      this.checksum = checksum;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (!(other instanceof Stamp)) {
+        return false;
+      }
+      final Stamp o = (Stamp) other;
+      return modified == o.modified && length == o.length && checksum == o.checksum;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (modified * 31 + length);
+    }
+  }
+
+  /** The watched files and sub-directories of a directory, as of its {@code modified} timestamp. */
+  private static class Listing {
+    private final long modified;
+    private final long listed;
+    private final List<File> files = new ArrayList<File>();
+    private final List<File> dirs = new ArrayList<File>();
+
+    private Listing(final long modified, final long listed) {
+      this.modified = modified;
+      this.listed = listed;
+    }
+  }
+
+}
@@ -1,22 +1,35 @@
 package org.tessell.generators;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
 
 import joist.sourcegen.GClass;
 import joist.util.Inflector;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 
 public class GenUtils {
 
-  /** Hacky way of doing command args -> map. */
+  /** Hacky way of doing command args -> map; flags without a value, e.g. {@code --watch}, map to "true". */
   public static Map<String, String> parseArgs(final String[] args) {
     final Map<String, String> settings = new HashMap<String, String>();
     for (int i = 0; i < args.length;) {
-      settings.put(args[i++].substring(2), args[i++]);
+      final String name = args[i++].substring(2);
+      if (i == args.length || args[i].startsWith("--")) {
+        settings.put(name, "true");
+      } else {
+        settings.put(name, args[i++]);
+      }
     }
     return settings;
   }
@@ -51,21 +64,118 @@ public class GenUtils {
 
   /** Saves {@code gc} to {@code outputDirectory} if needed. */
   public static void saveIfChanged(File outputDirectory, GClass gc) {
+    saveIfChanged(outputDirectory, gc, null);
+  }
+
+  /** Saves {@code gc} to {@code outputDirectory} if needed, see {@link #saveIfChanged(File, String, OutputDigests)}. */
+  public static void saveIfChanged(File outputDirectory, GClass gc, OutputDigests digests) {
     File outputFile = new File(outputDirectory, gc.getFileName());
-    saveIfChanged(outputFile, gc.toCode());
+    saveIfChanged(outputFile, gc.toCode(), digests);
   }
 
   /** Saves {@code newContent} to {@code outputFile} if needed. */
   public static void saveIfChanged(File outputFile, String newContent) {
+    saveIfChanged(outputFile, newContent, null);
+  }
+
+  /**
+   * Saves {@code newContent} to {@code outputFile} if needed.
+   *
+   * If we have {@code digests} of previous outputs, an unchanged file isn't read at all; otherwise
+   * the existing file is compared as a stream. New content is written atomically.
+   */
+  public static void saveIfChanged(File outputFile, String newContent, OutputDigests digests) {
     try {
-      String oldContent = outputFile.exists() ? FileUtils.readFileToString(outputFile) : "";
-      if (!oldContent.equals(newContent)) {
+      final byte[] bytes = newContent.getBytes();
+      final byte[] digest = digest(bytes);
+      if (digests != null && digests.isUnchanged(outputFile, digest)) {
+        return;
+      }
+      if (!hasContent(outputFile, bytes)) {
         System.out.println(outputFile);
-        FileUtils.writeStringToFile(outputFile, newContent);
+        writeAtomically(outputFile, bytes);
+      }
+      if (digests != null) {
+        digests.put(outputFile, digest);
       }
     } catch (IOException io) {
       throw new RuntimeException(io);
     }
   }
 
+  /** @return whether {@code file} exists and contains exactly {@code bytes}, reading it as a stream */
+  static boolean hasContent(File file, byte[] bytes) throws IOException {
+    if (!file.exists() || file.length() != bytes.length) {
+      return false;
+    }
+    final InputStream in = new BufferedInputStream(new FileInputStream(file));
+    try {
+      final byte[] buffer = new byte[8192];
+      int offset = 0;
+      for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+        if (offset + read > bytes.length) {
+          return false;
+        }
+        for (int i = 0; i < read; i++) {
+          if (buffer[i] != bytes[offset + i]) {
+            return false;
+          }
+        }
+        offset += read;
+      }
+      return offset == bytes.length;
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  /** Writes {@code bytes} to a temp file next to {@code file} and renames it, so readers never see a half-written file. */
+  public static void writeAtomically(File file, byte[] bytes) throws IOException {
+    final File directory = file.getAbsoluteFile().getParentFile();
+    mkdirs(directory);
+    final File temp = File.createTempFile("." + file.getName(), ".tmp", directory);
+    try {
+      final OutputStream out = new FileOutputStream(temp);
+      try {
+        out.write(bytes);
+      } finally {
+        out.close();
+      }
+      if (!temp.renameTo(file)) {
+        // windows won't rename over an existing file
+        file.delete();
+        if (!temp.renameTo(file)) {
+          throw new IOException("Could not rename " + temp + " to " + file);
+        }
+      }
+    } finally {
+      temp.delete();
+    }
+  }
+
+  /** @return the SHA-1 digest of {@code bytes} */
+  public static byte[] digest(byte[] bytes) {
+    try {
+      return MessageDigest.getInstance("SHA-1").digest(bytes);
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** @return the SHA-1 digest of {@code content} as UTF-8 */
+  public static byte[] digest(String content) {
+    try {
+      return digest(content.getBytes("UTF-8"));
+    } catch (UnsupportedEncodingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Creates {@code directory}, tolerating other generator threads creating it at the same time. */
+  public static void mkdirs(File directory) throws IOException {
+    if (directory != null && !directory.mkdirs() && !directory.isDirectory()) {
+      throw new IOException("Could not create " + directory);
+    }
+  }
+
 }
@@ -1,6 +1,8 @@
 package org.tessell.generators;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.tessell.generators.resources.ResourcesGenerator;
@@ -12,40 +14,159 @@ import com.google.gwt.junit.GWTMockUtilities;
  * Front-end for resources and views generators.
  *
  * Both run quickly enough now that we can fire them off together.
+ *
+ * With {@code --watch}, the generators stay resident and re-run whenever a {@code ui.xml}, css,
+ * image, etc. file changes. Changed {@code ui.xml} files only regenerate their views, and changed
+ * css/images only regenerate the resources, plus the aggregate classes of whichever generator ran.
  */
 public class Generator {
 
-  /** Args: {@code --inputDirectory src/main/java --viewsPackage com.app.views --resourcesPackage com.app.resources --outputDirectory target/gen}. */
+  private static final String[] watchedExtensions = { "ui.xml", "css", "png", "gif", "jpg", "bmp", "htc", "html", "js" };
+  private final File input;
+  private final File output;
+  private final String viewsPackage;
+  private final String resourcesPackage;
+  private final Cleanup cleanup;
+  private final OutputDigests digests;
+  private final ViewGenerator views;
+  private final Integer threads;
+  private final long pollMillis;
+
+  /**
+   * Args: {@code --inputDirectory src/main/java --viewsPackage com.app.views --resourcesPackage com.app.resources --outputDirectory target/gen}.
+   *
+   * Optionally {@code --threads n} to limit the threads used to generate views and resources, and {@code --watch}
+   * to keep running and regenerate as files change, checking every {@code --pollMillis n} (default 500).
+   */
   public static void main(final String[] args) throws Exception {
     // We use reflection to get at annotations of our widget subclasses,
     // but that wanders into UIObject, which has a static clinit call
     // to UIObject. This makes it return null instead of blowing up.
     GWTMockUtilities.disarm();
 
-    long start = System.currentTimeMillis();
-
     final Map<String, String> settings = GenUtils.parseArgs(args);
-    final File input = new File(settings.get("inputDirectory"));
-    final File output = new File(settings.get("outputDirectory"));
-
-    final Cleanup cleanup = new Cleanup(output);
+    final Generator generator = new Generator(settings);
+    try {
+      generator.run();
+    } catch (final Exception e) {
+      report(e);
+      System.exit(1);
+    }
+    if (settings.containsKey("watch")) {
+      generator.watch();
+    }
+  }
 
-    final String viewsPackage = settings.get("viewsPackageName");
+  public Generator(final Map<String, String> settings) {
+    input = new File(settings.get("inputDirectory"));
+    output = new File(settings.get("outputDirectory"));
+    viewsPackage = settings.get("viewsPackageName");
+    resourcesPackage = settings.get("resourcesPackageName");
+    cleanup = new Cleanup(output);
+    digests = OutputDigests.loadOrCreate(output);
+    threads = settings.get("threads") == null ? null : Integer.valueOf(settings.get("threads"));
+    pollMillis = settings.get("pollMillis") == null ? 500 : Long.parseLong(settings.get("pollMillis"));
     if (viewsPackage != null) {
+      views = new ViewGenerator(input, viewsPackage, output, cleanup);
+      views.setOutputDigests(digests);
+      if (threads != null) {
+        views.setThreads(threads.intValue());
+      }
+    } else {
+      views = null;
+    }
+  }
+
+  /** Runs the generators once. */
+  public void run() throws Exception {
+    run(null);
+  }
+
+  /**
+   * Runs just the generators for {@code changed}, or all of them if it's {@code null}.
+   *
+   * Only the packages of the generators that run are cleaned up, as the others' outputs aren't marked.
+   */
+  void run(final List<File> changed) throws Exception {
+    final List<File> changedUiXmls = new ArrayList<File>();
+    boolean changedResources = false;
+    if (changed != null) {
+      for (final File file : changed) {
+        if (file.getName().endsWith(".ui.xml")) {
+          changedUiXmls.add(file);
+        } else {
+          changedResources = true;
+        }
+      }
+    }
+    boolean runViews = viewsPackage != null && (changed == null || !changedUiXmls.isEmpty());
+    boolean runResources = resourcesPackage != null && (changed == null || changedResources);
+    if (viewsPackage != null && resourcesPackage != null && (runViews || runResources) && overlaps(viewsPackage, resourcesPackage)) {
+      // one's cleanup would delete the other's outputs
+      runViews = true;
+      runResources = true;
+    }
+    if (!runViews && !runResources) {
+      return;
+    }
+
+    long start = System.currentTimeMillis();
+
+    cleanup.reset();
+
+    if (runViews) {
       cleanup.watchPackage(viewsPackage);
-      new ViewGenerator(input, viewsPackage, output, cleanup).generate();
+      if (changed == null || changedUiXmls.isEmpty()) {
+        views.generate();
+      } else {
+        views.generate(changedUiXmls);
+      }
     }
+    final long viewsDone = System.currentTimeMillis();
 
-    final String resourcesPackage = settings.get("resourcesPackageName");
-    if (resourcesPackage != null) {
+    if (runResources) {
       cleanup.watchPackage(resourcesPackage);
-      new ResourcesGenerator(input, cleanup, resourcesPackage, output).run();
+      final ResourcesGenerator resources = new ResourcesGenerator(input, cleanup, resourcesPackage, output);
+      resources.setOutputDigests(digests);
+      if (threads != null) {
+        resources.setThreads(threads.intValue());
+      }
+      resources.run(changed);
     }
+    final long resourcesDone = System.currentTimeMillis();
 
     cleanup.deleteLeftOvers();
+    digests.save(output);
 
     long end = System.currentTimeMillis();
-    System.out.println("Done " + (end - start) + "ms");
+    System.out.println("Done " + (end - start) + "ms (views " + (viewsDone - start) + "ms, resources " + (resourcesDone - viewsDone) + "ms, cleanup "
+      + (end - resourcesDone) + "ms)");
+  }
+
+  /** Re-runs the generators each time the input files change, until the process is killed. */
+  public void watch() throws Exception {
+    final FileWatcher watcher = new FileWatcher(input, output, watchedExtensions);
+    System.out.println("Watching " + input + " for changes");
+    while (true) {
+      final List<File> changed = watcher.awaitChanges(pollMillis, 100);
+      System.out.println("Changed " + changed);
+      try {
+        run(changed);
+      } catch (final Exception e) {
+        // keep watching, the user will probably fix the file and save again
+        report(e);
+      }
+    }
+  }
+
+  /** Reports a failed run, the same way for one-off and watched runs. */
+  static void report(final Exception e) {
+    System.err.println("Generation failed: " + e.getMessage());
+    e.printStackTrace(System.err);
+  }
+
+  private static boolean overlaps(final String package1, final String package2) {
+    return (package1 + ".").startsWith(package2 + ".") || (package2 + ".").startsWith(package1 + ".");
   }
 
 }
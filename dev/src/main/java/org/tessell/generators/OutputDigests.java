@@ -0,0 +1,128 @@
+package org.tessell.generators;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Remembers the digest, length, and timestamp of each file we've written, so {@link GenUtils#saveIfChanged(File, String)}
+ * can tell an output is unchanged without reading it back.
+ *
+ * If a file's length or timestamp doesn't match what we wrote, e.g. it was edited or checked out, we fall back on
+ * comparing its content. As timestamps may only have one or two second resolution, we also compare the content
+ * of files that we recorded within two seconds of their timestamp, as a same-length edit right after our
+ * write could have kept the same timestamp.
+ *
+ * Generators may write files from multiple threads, so all methods are synchronized.
+ */
+public class OutputDigests {
+
+  private static final int magic = 0x6f756432; // "oud2"
+  // how long after a file's timestamp we have to record it before trusting that timestamp
+  private static final long coarseTimestampMillis = 2000;
+  private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+  public static OutputDigests loadOrCreate(final File outputDirectory) {
+    final OutputDigests d = new OutputDigests();
+    final File file = digests(outputDirectory);
+    if (file.exists()) {
+      DataInputStream in = null;
+      try {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        d.read(in);
+      } catch (IOException e) {
+        // a corrupt file just means comparing content again
+        d.entries.clear();
+      } finally {
+        IOUtils.closeQuietly(in);
+      }
+    }
+    return d;
+  }
+
+  private static File digests(final File outputDirectory) {
+    return new File(outputDirectory, "./.generator.digests");
+  }
+
+  /** @return whether {@code file} is known to have {@code digest}, without reading it */
+  public synchronized boolean isUnchanged(final File file, final byte[] digest) {
+    final Entry e = entries.get(file.getAbsolutePath());
+    return e != null
+      && Arrays.equals(e.digest, digest)
+      && e.length == file.length()
+      && e.lastModified == file.lastModified()
+      && e.recorded - e.lastModified >= coarseTimestampMillis;
+  }
+
+  /** Records that {@code file} (which was just written or compared) has {@code digest}. */
+  public synchronized void put(final File file, final byte[] digest) {
+    entries.put(file.getAbsolutePath(), new Entry(digest, file.length(), file.lastModified(), System.currentTimeMillis()));
+  }
+
+  public synchronized void save(final File outputDirectory) {
+    DataOutputStream out = null;
+    try {
+      GenUtils.mkdirs(outputDirectory);
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(digests(outputDirectory))));
+      // drop files that were deleted, e.g. by Cleanup
+      for (final Iterator<String> i = entries.keySet().iterator(); i.hasNext();) {
+        if (!new File(i.next()).exists()) {
+          i.remove();
+        }
+      }
+      out.writeInt(magic);
+      out.writeInt(entries.size());
+      for (final Map.Entry<String, Entry> me : entries.entrySet()) {
+        out.writeUTF(me.getKey());
+        out.writeByte(me.getValue().digest.length);
+        out.write(me.getValue().digest);
+        out.writeLong(me.getValue().length);
+        out.writeLong(me.getValue().lastModified);
+        out.writeLong(me.getValue().recorded);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      IOUtils.closeQuietly(out);
+    }
+  }
+
+  private void read(final DataInputStream in) throws IOException {
+    if (in.readInt() != magic) {
+      return;
+    }
+    final int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      final String path = in.readUTF();
+      final byte[] digest = new byte[in.readUnsignedByte()];
+      in.readFully(digest);
+      entries.put(path, new Entry(digest, in.readLong(), in.readLong(), in.readLong()));
+    }
+  }
+
+  private static class Entry {
+    private final byte[] digest;
+    private final long length;
+    private final long lastModified;
+    private final long recorded;
+
+    private Entry(final byte[] digest, final long length, final long lastModified, final long recorded) {
+      this.digest = digest;
+      this.length = length;
+      this.lastModified = lastModified;
+      this.recorded = recorded;
+    }
+  }
+
+}
@@ -16,121 +16,50 @@
 package org.tessell.generators.css;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
-import java.net.MalformedURLException;
-import java.util.Comparator;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
 
 import joist.sourcegen.GClass;
 
 import org.tessell.generators.Cleanup;
 import org.tessell.generators.GenUtils;
+import org.tessell.generators.OutputDigests;
 
-import com.google.gwt.core.ext.UnableToCompleteException;
-import com.google.gwt.dev.util.log.PrintWriterTreeLogger;
-import com.google.gwt.resources.css.ExtractClassNamesVisitor;
-import com.google.gwt.resources.css.GenerateCssAst;
-import com.google.gwt.resources.css.InterfaceGenerator;
-import com.google.gwt.resources.css.ast.Context;
-import com.google.gwt.resources.css.ast.CssDef;
-import com.google.gwt.resources.css.ast.CssProperty.Value;
-import com.google.gwt.resources.css.ast.CssStylesheet;
-import com.google.gwt.resources.css.ast.CssVisitor;
-
-/**
- * A utility class for creating a Java interface declaration for a given CSS file.
- * 
- * Thanks to everything being private, this is a huge copy/paste from {@link InterfaceGenerator}.
- */
+/** A base class for generating Java code from a {@link CssSheet}. */
 public class AbstractCssGenerator {
 
-  // cache the PrintWriter only if we need it
-  private static PrintWriter logWriter;
-  private final File inputFile;
   private final File outputDirectory;
   private final Cleanup cleanup;
-  private final Map<String, String> classToMethod = new TreeMap<String, String>(CSS_CLASS_COMPARATOR);
-  private final Map<String, Value> defs = new TreeMap<String, Value>();
+  private final CssSheet sheet;
+  private OutputDigests digests;
 
   protected AbstractCssGenerator(File inputFile, final File outputDirectory, final Cleanup cleanup) {
-    this.inputFile = inputFile;
+    this(CssSheet.parse(inputFile, outputDirectory), outputDirectory, cleanup);
+  }
+
+  protected AbstractCssGenerator(CssSheet sheet, final File outputDirectory, final Cleanup cleanup) {
+    this.sheet = sheet;
     this.outputDirectory = outputDirectory;
     this.cleanup = cleanup;
-    lazyInitStaticLogWriter();
-    CssStylesheet sheet = parseFile();
-    extractClassNames(sheet);
-    extractDefs(sheet);
   }
 
-  /** @return a sorted map of class name -> method name for {@code inputFile} */
-  protected Map<String, String> getClassNameToMethodName() {
-    return classToMethod;
+  /** Sets the digests of previous outputs, so unchanged outputs aren't read back, or {@code null} to compare content. */
+  public void setOutputDigests(final OutputDigests digests) {
+    this.digests = digests;
   }
 
-  /** @return a sorted list of defs. */
-  protected Map<String, Value> getDefs() {
-    return defs;
+  /** @return a sorted map of class name -> method name for {@code inputFile} */
+  protected Map<String, String> getClassNameToMethodName() {
+    return sheet.getClassNameToMethodName();
   }
 
-  private void lazyInitStaticLogWriter() {
-    if (logWriter == null) {
-      try {
-        logWriter = new PrintWriter(new File(outputDirectory, ".cssGenerator.log"));
-      } catch (FileNotFoundException e) {
-        throw new RuntimeException(e);
-      }
-    }
+  /** @return a sorted map of def name -> value. */
+  protected Map<String, String> getDefs() {
+    return sheet.getDefs();
   }
 
   protected void markAndSaveIfChanged(GClass gc) {
     cleanup.markOkay(gc);
-    GenUtils.saveIfChanged(outputDirectory, gc);
-  }
-
-  private void extractClassNames(CssStylesheet sheet) {
-    // De-duplicate method names
-    final Set<String> methodNames = new HashSet<String>();
-    for (final String className : ExtractClassNamesVisitor.exec(sheet)) {
-      String methodName = GenUtils.toMethodName(className);
-      while (!methodNames.add(methodName)) {
-        methodName += "_"; // Unusual, handles foo-bar and foo--bar
-      }
-      classToMethod.put(className, methodName);
-    }
-  }
-
-  private void extractDefs(CssStylesheet sheet) {
-    new CssVisitor() {
-      @Override
-      public void endVisit(CssDef x, Context ctx) {
-        if (x.getValues().size() > 0) {
-          defs.put(x.getKey(), x.getValues().get(0));
-        }
-      }
-    }.accept(sheet);
-  }
-
-  private CssStylesheet parseFile() {
-    try {
-      // Create AST
-      PrintWriterTreeLogger logger = new PrintWriterTreeLogger(logWriter);
-      return GenerateCssAst.exec(logger, inputFile.toURI().toURL());
-    } catch (final MalformedURLException e) {
-      throw new RuntimeException(e);
-    } catch (final UnableToCompleteException e) {
-      throw new RuntimeException(e);
-    } finally {
-      logWriter.flush();
-    }
+    GenUtils.saveIfChanged(outputDirectory, gc, digests);
   }
 
-  private static final Comparator<String> CSS_CLASS_COMPARATOR = new Comparator<String>() {
-    public int compare(final String o1, final String o2) {
-      return o1.compareToIgnoreCase(o2);
-    }
-  };
 }
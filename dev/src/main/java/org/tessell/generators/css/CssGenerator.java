@@ -11,7 +11,6 @@ import org.tessell.generators.Cleanup;
 
 import com.google.gwt.core.ext.Generator;
 import com.google.gwt.resources.client.CssResource;
-import com.google.gwt.resources.css.ast.CssProperty.Value;
 
 /** A utility class for creating a Java interface declaration for a given CSS file. */
 public class CssGenerator extends AbstractCssGenerator {
@@ -23,6 +22,12 @@ public class CssGenerator extends AbstractCssGenerator {
     cssInterface = new GClass(interfaceName).setInterface().baseClass(CssResource.class);
   }
 
+  /** Generates from an already-parsed {@code sheet}, e.g. one shared with a {@link CssStubGenerator}. */
+  public CssGenerator(final CssSheet sheet, Cleanup cleanup, final String interfaceName, final File outputDirectory) {
+    super(sheet, outputDirectory, cleanup);
+    cssInterface = new GClass(interfaceName).setInterface().baseClass(CssResource.class);
+  }
+
   public void run() throws IOException {
     addMethods();
     markAndSaveIfChanged(cssInterface);
@@ -40,9 +45,9 @@ public class CssGenerator extends AbstractCssGenerator {
         m.addAnnotation("@ClassName(\"{}\")", Generator.escape(className));
       }
     }
-    for (final Map.Entry<String, Value> def : getDefs().entrySet()) {
+    for (final Map.Entry<String, String> def : getDefs().entrySet()) {
       // need stricter matching
-      if (def.getValue().toString().endsWith("px")) {
+      if (def.getValue().endsWith("px")) {
         cssInterface.getMethod(def.getKey()).returnType(int.class);
       }
     }
@@ -11,7 +11,6 @@ import joist.sourcegen.GClass;
 
 import org.tessell.generators.Cleanup;
 
-import com.google.gwt.resources.css.ast.CssProperty.Value;
 
 /** A utility class for creating a Java stub class for a given CSS file. */
 public class CssStubGenerator extends AbstractCssGenerator {
@@ -20,11 +19,20 @@ public class CssStubGenerator extends AbstractCssGenerator {
 
   public CssStubGenerator(final File inputCssFile, Cleanup cleanup, final String interfaceName, final File outputDirectory) {
     super(inputCssFile, outputDirectory, cleanup);
+    cssStub = new GClass(getStubClassName(interfaceName)).implementsInterface(interfaceName);
+  }
+
+  /** Generates from an already-parsed {@code sheet}, e.g. one shared with a {@link CssGenerator}. */
+  public CssStubGenerator(final CssSheet sheet, Cleanup cleanup, final String interfaceName, final File outputDirectory) {
+    super(sheet, outputDirectory, cleanup);
+    cssStub = new GClass(getStubClassName(interfaceName)).implementsInterface(interfaceName);
+  }
 
-    // break open interfaceName and put Stub in the front of its simple name
+  /** @return {@code interfaceName} with Stub in the front of its simple name */
+  public static String getStubClassName(final String interfaceName) {
     final String packageName = substringBeforeLast(interfaceName, ".");
     final String simpleName = substringAfterLast(interfaceName, ".");
-    cssStub = new GClass(packageName + ".Stub" + simpleName).implementsInterface(interfaceName);
+    return packageName + ".Stub" + simpleName;
   }
 
   public void run() throws IOException {
@@ -45,10 +53,10 @@ public class CssStubGenerator extends AbstractCssGenerator {
       }
       cssStub.getMethod(methodName).returnType(String.class).body.line("return \"{}\";", methodName);
     }
-    for (final Map.Entry<String, Value> def : getDefs().entrySet()) {
+    for (final Map.Entry<String, String> def : getDefs().entrySet()) {
       // need stricter matching
-      if (def.getValue().toString().endsWith("px")) {
-        cssStub.getMethod(def.getKey()).returnType(int.class).body.line("return {};", def.getValue().toString().replace("px", ""));
+      if (def.getValue().endsWith("px")) {
+        cssStub.getMethod(def.getKey()).returnType(int.class).body.line("return {};", def.getValue().replace("px", ""));
       }
     }
 
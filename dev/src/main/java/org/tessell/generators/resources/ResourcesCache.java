@@ -0,0 +1,140 @@
+package org.tessell.generators.resources;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.io.IOUtils;
+import org.tessell.generators.GenUtils;
+import org.tessell.generators.css.CssSheet;
+
+/**
+ * Caches the parsed class names and defs of each CSS file, keyed by its content hash, between
+ * {@link ResourcesGenerator} runs, so unchanged stylesheets aren't rewritten or re-parsed, even
+ * if their generated outputs have to be regenerated.
+ *
+ * CSS files may be processed on multiple threads, so all methods are synchronized.
+ */
+class ResourcesCache {
+
+  /** Bump when the generated output changes, to regenerate every stylesheet. */
+  private static final int generatorVersion = 1;
+  private static final int magic = 0x72657363; // "resc"
+  private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+  static ResourcesCache loadOrCreate(final File outputDirectory) {
+    final ResourcesCache c = new ResourcesCache();
+    final File file = cache(outputDirectory);
+    if (file.exists()) {
+      DataInputStream in = null;
+      try {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        c.read(in);
+      } catch (IOException e) {
+        // a corrupt or old cache just means regenerating everything
+        c.entries.clear();
+      } finally {
+        IOUtils.closeQuietly(in);
+      }
+    }
+    return c;
+  }
+
+  private static File cache(File outputDirectory) {
+    return new File(outputDirectory, "./.resourcesGenerator.cache");
+  }
+
+  /** @return the cached sheet for {@code path} if its content still hashes to {@code hash}, otherwise {@code null} */
+  synchronized CssSheet get(final String path, final byte[] hash) {
+    final Entry e = entries.get(path);
+    return e != null && Arrays.equals(e.hash, hash) ? e.sheet : null;
+  }
+
+  synchronized void put(final String path, final byte[] hash, final CssSheet sheet) {
+    entries.put(path, new Entry(hash, sheet));
+  }
+
+  /** Drops entries for CSS files that no longer exist. */
+  synchronized void retainOnly(final Set<String> paths) {
+    entries.keySet().retainAll(paths);
+  }
+
+  synchronized void save(final File outputDirectory) {
+    DataOutputStream out = null;
+    try {
+      GenUtils.mkdirs(outputDirectory);
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cache(outputDirectory))));
+      write(out);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      IOUtils.closeQuietly(out);
+    }
+  }
+
+  private void read(final DataInputStream in) throws IOException {
+    if (in.readInt() != magic || in.readInt() != generatorVersion) {
+      return; // different generator, so start over
+    }
+    final int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      final String path = in.readUTF();
+      final byte[] hash = new byte[in.readUnsignedByte()];
+      in.readFully(hash);
+      final Map<String, String> classToMethod = readMap(in);
+      final Map<String, String> defs = readMap(in);
+      entries.put(path, new Entry(hash, new CssSheet(classToMethod, defs)));
+    }
+  }
+
+  private void write(final DataOutputStream out) throws IOException {
+    out.writeInt(magic);
+    out.writeInt(generatorVersion);
+    out.writeInt(entries.size());
+    for (final Map.Entry<String, Entry> me : entries.entrySet()) {
+      out.writeUTF(me.getKey());
+      out.writeByte(me.getValue().hash.length);
+      out.write(me.getValue().hash);
+      writeMap(out, me.getValue().sheet.getClassNameToMethodName());
+      writeMap(out, me.getValue().sheet.getDefs());
+    }
+  }
+
+  private static Map<String, String> readMap(final DataInputStream in) throws IOException {
+    final Map<String, String> map = new TreeMap<String, String>();
+    for (int i = in.readInt(); i > 0; i--) {
+      map.put(in.readUTF(), in.readUTF());
+    }
+    return map;
+  }
+
+  private static void writeMap(final DataOutputStream out, final Map<String, String> map) throws IOException {
+    out.writeInt(map.size());
+    for (final Map.Entry<String, String> e : map.entrySet()) {
+      out.writeUTF(e.getKey());
+      out.writeUTF(e.getValue());
+    }
+  }
+
+  /** One entry per CSS file. */
+  private static class Entry {
+    private final byte[] hash;
+    private final CssSheet sheet;
+
+    private Entry(final byte[] hash, final CssSheet sheet) {
+      this.hash = hash;
+      this.sheet = sheet;
+    }
+  }
+
+}
@@ -4,9 +4,17 @@ import static joist.sourcegen.Argument.arg;
 import static org.apache.commons.lang.StringUtils.substringBeforeLast;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -19,7 +27,9 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.tessell.generators.Cleanup;
 import org.tessell.generators.GenUtils;
+import org.tessell.generators.OutputDigests;
 import org.tessell.generators.css.CssGenerator;
+import org.tessell.generators.css.CssSheet;
 import org.tessell.generators.css.CssStubGenerator;
 import org.tessell.gwt.resources.client.StubDataResource;
 import org.tessell.gwt.resources.client.StubImageResource;
@@ -31,7 +41,13 @@ import com.google.gwt.resources.client.DataResource;
 import com.google.gwt.resources.client.ImageResource;
 import com.google.gwt.resources.client.TextResource;
 
-/** A utility class for generating resource interfaces from files in directory. */
+/**
+ * A utility class for generating resource interfaces from files in directory.
+ *
+ * Each CSS file is parsed once, for both its interface and stub, and the results are cached by content
+ * hash, so unchanged stylesheets are skipped entirely, and ones whose outputs were deleted are regenerated
+ * without re-parsing. Changed stylesheets are processed in parallel.
+ */
 public class ResourcesGenerator {
 
   // ignore literal('url(...)') with a negative look behind
@@ -45,6 +61,9 @@ public class ResourcesGenerator {
   private final GClass stubResources;
   private final GClass appResourcesUtil;
   private final GMethod injectAll;
+  private final ResourcesCache cache;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private OutputDigests digests;
 
   public ResourcesGenerator(final File inputDirectory, Cleanup cleanup, final String packageName, final File outputDirectory) {
     this.inputDirectory = inputDirectory;
@@ -55,13 +74,52 @@ public class ResourcesGenerator {
     stubResources = new GClass(packageName + ".StubAppResources");
     appResourcesUtil = new GClass(packageName + ".AppResourcesUtil");
     injectAll = appResourcesUtil.getMethod("injectAll", arg("AppResources", "r")).setStatic();
+    cache = ResourcesCache.loadOrCreate(outputDirectory);
+  }
+
+  /** Sets the digests of previous outputs, so unchanged outputs aren't read back, or {@code null} to compare content. */
+  public void setOutputDigests(final OutputDigests digests) {
+    this.digests = digests;
+  }
+
+  /** Sets the number of threads used to process CSS files, defaults to the number of processors. */
+  public void setThreads(final int threads) {
+    this.threads = threads;
   }
 
   public void run() throws Exception {
+    run(null);
+  }
+
+  /**
+   * Like {@link #run()}, but only checks the CSS files in {@code changed} for changes, e.g. when we're
+   * resident and already know which files changed. The aggregate classes are still regenerated.
+   */
+  public void run(final Collection<File> changed) throws Exception {
     appResources.setInterface().baseClass(ClientBundle.class);
     stubResources.implementsInterface(appResources.getFullName());
 
-    for (final File file : getFilesInInputDirectory()) {
+    final Set<File> changedFiles = new HashSet<File>();
+    if (changed != null) {
+      for (final File file : changed) {
+        changedFiles.add(file.getAbsoluteFile());
+      }
+    }
+    final List<File> files = getFilesInInputDirectory();
+    final List<File> cssFiles = new ArrayList<File>();
+    final List<File> cssToProcess = new ArrayList<File>();
+    for (final File file : files) {
+      if (file.getName().endsWith(".css")) {
+        cssFiles.add(file);
+        if (changed == null || changedFiles.contains(file.getAbsoluteFile())) {
+          cssToProcess.add(file);
+        }
+      }
+    }
+    processAllCss(cssToProcess);
+
+    // add the aggregate methods in path order, so our output is stable
+    for (final File file : files) {
       if (file.getName().endsWith(".css")) {
         addCss(file);
       } else if (file.getName().endsWith(".png")
@@ -78,23 +136,94 @@ public class ResourcesGenerator {
     cleanup.markOkay(appResources);
     cleanup.markOkay(stubResources);
     cleanup.markOkay(appResourcesUtil);
-    GenUtils.saveIfChanged(outputDirectory, appResources);
-    GenUtils.saveIfChanged(outputDirectory, stubResources);
-    GenUtils.saveIfChanged(outputDirectory, appResourcesUtil);
+    GenUtils.saveIfChanged(outputDirectory, appResources, digests);
+    GenUtils.saveIfChanged(outputDirectory, stubResources, digests);
+    GenUtils.saveIfChanged(outputDirectory, appResourcesUtil, digests);
+
+    final Set<String> cssPaths = new HashSet<String>();
+    for (final File cssFile : cssFiles) {
+      cssPaths.add(getRelativePath(cssFile));
+    }
+    cache.retainOnly(cssPaths);
+    cache.save(outputDirectory);
   }
 
-  private void addCss(final File cssFile) throws Exception {
-    final String methodName = GenUtils.toMethodName(cssFile.getName().replace(".css", "").replace(".notstrict", ""));
-    final String newInterfaceName = packageName + "." + suffixIfNeeded(Inflector.capitalize(methodName), "Style");
-    final String stubName = packageName + ".Stub" + suffixIfNeeded(Inflector.capitalize(methodName), "Style");
+  /** Copies, parses, and generates the interface and stub for each of {@code cssFiles}, in parallel if we have more than one thread. */
+  private void processAllCss(final List<File> cssFiles) throws Exception {
+    if (threads <= 1 || cssFiles.size() <= 1) {
+      for (final File cssFile : cssFiles) {
+        processCss(cssFile);
+      }
+      return;
+    }
+    final ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, cssFiles.size()));
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (final File cssFile : cssFiles) {
+        futures.add(pool.submit(new Callable<Void>() {
+          public Void call() throws Exception {
+            processCss(cssFile);
+            return null;
+          }
+        }));
+      }
+      for (final Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (final ExecutionException e) {
+          if (e.getCause() instanceof Exception) {
+            throw (Exception) e.getCause();
+          }
+          throw e;
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /** Generates the copy, interface, and stub for {@code cssFile}, unless its content and outputs haven't changed. */
+  private void processCss(final File cssFile) throws Exception {
+    final String interfaceName = getCssInterfaceName(cssFile);
+    final File cssFileCopy = fileInOutputDirectory(inputDirectory, outputDirectory, cssFile, ".css", ".gen.css");
+    final byte[] content = FileUtils.readFileToByteArray(cssFile);
+    final byte[] hash = GenUtils.digest(content);
+    final String path = getRelativePath(cssFile);
+    final CssSheet cached = cache.get(path, hash);
+    if (cached != null
+      && cssFileCopy.exists()
+      && javaFile(interfaceName).exists()
+      && javaFile(CssStubGenerator.getStubClassName(interfaceName)).exists()) {
+      return;
+    }
 
     // Copy the file and do any url(...) => @url replacement
-    File cssFileCopy = fileInOutputDirectory(inputDirectory, outputDirectory, cssFile, ".css", ".gen.css");
-    String cssContent = FileUtils.readFileToString(cssFile);
+    String cssContent = new String(content);
     cssContent = doUrlSubstitution(cssContent);
     cssContent = doMozWebkitSubstitution(cssContent);
-    GenUtils.saveIfChanged(cssFileCopy, cssContent);
+    GenUtils.saveIfChanged(cssFileCopy, cssContent, digests);
+
+    // parse once for both the interface and the stub, unless only the outputs are missing
+    final CssSheet sheet = cached != null ? cached : CssSheet.parse(cssFile, outputDirectory);
+    final CssGenerator css = new CssGenerator(sheet, cleanup, interfaceName, outputDirectory);
+    css.setOutputDigests(digests);
+    css.run();
+    final CssStubGenerator stub = new CssStubGenerator(sheet, cleanup, interfaceName, outputDirectory);
+    stub.setOutputDigests(digests);
+    stub.run();
+    cache.put(path, hash, sheet);
+  }
+
+  private void addCss(final File cssFile) throws Exception {
+    final String methodName = getCssMethodName(cssFile);
+    final String newInterfaceName = getCssInterfaceName(cssFile);
+    final String stubName = CssStubGenerator.getStubClassName(newInterfaceName);
+
+    // the copy, interface, and stub were generated (or are unchanged) in processCss
+    final File cssFileCopy = fileInOutputDirectory(inputDirectory, outputDirectory, cssFile, ".css", ".gen.css");
     cleanup.markOkay(cssFileCopy);
+    cleanup.markTypeOkay(newInterfaceName);
+    cleanup.markTypeOkay(stubName);
 
     final GMethod m = appResources.getMethod(methodName).returnType(newInterfaceName);
     m.addAnnotation("@Source(\"" + getRelativePath(cssFileCopy) + "\")");
@@ -110,13 +239,22 @@ public class ResourcesGenerator {
     sf.initialValue("new {}()", stubName).autoImportInitialValue();
     stubResources.getMethod(methodName).returnType(stubName).body.line("return {};", methodName);
 
-    new CssGenerator(cssFile, cleanup, newInterfaceName, outputDirectory).run();
-    new CssStubGenerator(cssFile, cleanup, newInterfaceName, outputDirectory).run();
-
     // inject all
     injectAll.body.line("r.{}().ensureInjected();", methodName);
   }
 
+  private String getCssMethodName(final File cssFile) {
+    return GenUtils.toMethodName(cssFile.getName().replace(".css", "").replace(".notstrict", ""));
+  }
+
+  private String getCssInterfaceName(final File cssFile) {
+    return packageName + "." + suffixIfNeeded(Inflector.capitalize(getCssMethodName(cssFile)), "Style");
+  }
+
+  private File javaFile(final String className) {
+    return new File(outputDirectory, className.replace(".", File.separator) + ".java");
+  }
+
   private String suffixIfNeeded(String name, String suffix) {
     return name.endsWith(suffix) ? name : name + suffix;
   }
@@ -221,10 +359,12 @@ public class ResourcesGenerator {
   }
 
   @SuppressWarnings("unchecked")
-  private Collection<File> getFilesInInputDirectory() {
+  private List<File> getFilesInInputDirectory() {
     String[] exts = new String[] { "css", "png", "gif", "jpg", "html", "js", "htc" };
     File packageDirectory = new File(inputDirectory, packageName.replace(".", File.separator));
-    return FileUtils.listFiles(packageDirectory, exts, true);
+    List<File> files = new ArrayList<File>((Collection<File>) FileUtils.listFiles(packageDirectory, exts, true));
+    Collections.sort(files);
+    return files;
   }
 
 }
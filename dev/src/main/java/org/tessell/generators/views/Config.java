@@ -17,6 +17,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.TreeMap;
 
 import org.apache.commons.io.IOUtils;
 import org.tessell.gwt.dom.client.IsElement;
@@ -63,6 +64,13 @@ public class Config {
     return t;
   }
 
+  /** @return a string that changes whenever any of our mappings change */
+  public String getFingerprint() {
+    return new TreeMap<String, String>(typeToInterface).toString()
+      + new TreeMap<String, String>(typeToStub).toString()
+      + new TreeMap<String, List<String>>(stubToCstrParams).toString();
+  }
+
   private void loadViewGenDotProperties() {
     try {
       for (String file : new String[] { "viewgen.properties", "viewgen-root.properties" }) {
@@ -7,11 +7,14 @@ class UiFieldDeclaration implements Comparable<UiFieldDeclaration> {
   final String name;
   final String parentOperation;
   final boolean isElement;
+  // the lazy subtree we're in, if any
+  final UiLazyDeclaration lazy;
 
-  UiFieldDeclaration(final String type, final String name, final String parentOperation) {
+  UiFieldDeclaration(final String type, final String name, final String parentOperation, final UiLazyDeclaration lazy) {
     this.type = type;
     this.name = name;
     this.parentOperation = parentOperation;
+    this.lazy = lazy;
     isElement = type.contains("dom");
   }
 
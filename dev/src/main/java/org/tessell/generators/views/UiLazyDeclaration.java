@@ -0,0 +1,39 @@
+package org.tessell.generators.views;
+
+import org.apache.commons.lang.StringUtils;
+
+/** A DTO for {@code ui:lazy="true"} subtrees, which the Gwt views only create on first access. */
+class UiLazyDeclaration {
+
+  /** the ui:field of the subtree's root widget */
+  final String name;
+  final String type;
+  /** the qualified name of the {@code ui:lazy} attribute, to remove from the root's tag */
+  final String attribute;
+  /** the offsets of the subtree's source in the ui.xml content */
+  final int start;
+  int end;
+
+  UiLazyDeclaration(final String name, final String type, final String attribute, final int start) {
+    this.name = name;
+    this.type = type;
+    this.attribute = attribute;
+    this.start = start;
+  }
+
+  /** @return the name of the inner class that owns this subtree's fields */
+  String getOwnerName() {
+    return "Lazy" + StringUtils.capitalize(name);
+  }
+
+  /** @return the name of the Gwt view's field and method that create the owner on first access */
+  String getAccessorName() {
+    return "lazy" + StringUtils.capitalize(name);
+  }
+
+  /** @return the name of the placeholder panel left in the main template */
+  String getPlaceholderName() {
+    return name + "Placeholder";
+  }
+
+}
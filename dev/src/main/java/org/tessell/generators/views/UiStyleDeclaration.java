@@ -7,6 +7,7 @@ import java.io.File;
 import java.io.IOException;
 
 import org.apache.commons.io.FileUtils;
+import org.tessell.generators.css.CssSheet;
 
 /** A DTO for {@code ui:style} declarations. */
 class UiStyleDeclaration {
@@ -15,6 +16,7 @@ class UiStyleDeclaration {
   final String name;
   String css = "";
   private File cssFile;
+  private CssSheet sheet;
 
   UiStyleDeclaration(final String type, final String name) {
     this.type = type;
@@ -35,6 +37,14 @@ class UiStyleDeclaration {
     return cssFile;
   }
 
+  /** @return our css parsed once, to share between the Gwt and Stub views */
+  CssSheet getSheet(File outputDirectory) {
+    if (sheet == null) {
+      sheet = CssSheet.parse(getCssInFile(), outputDirectory);
+    }
+    return sheet;
+  }
+
   public String getStubClassName() {
     final String packageName = substringBeforeLast(type, ".");
     final String simpleName = substringAfterLast(type, ".");
@@ -1,152 +1,210 @@
 package org.tessell.generators.views;
 
-import static org.apache.commons.lang.StringUtils.join;
-import static org.apache.commons.lang.StringUtils.splitPreserveAllTokens;
-
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import joist.util.Join;
-
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.tessell.generators.GenUtils;
 
 /**
- * Caches the "ui:with" types of {@code ui.xml} files between {@code ViewGenerator}
- * runs so that we don't have to re-parse each file every time.
+ * Caches the content hash, "ui:with" types, etc. of {@code ui.xml} files between {@code ViewGenerator}
+ * runs so that we don't have to re-parse and re-generate each file every time.
+ *
+ * Entries are keyed by the path relative to the input directory and compared by content, so a fresh
+ * checkout or a touched file doesn't cause regeneration. The whole cache is dropped if the generator
+ * version or the {@link Config} mappings change.
+ *
+ * The cache is a small binary file, written with {@link DataOutputStream}.
  */
 public class UiXmlCache {
 
-  private static final int cacheVersion = 9;
+  /** Bump when the generated output changes, to regenerate every view. */
+  static final int generatorVersion = 11;
+  private static final int magic = 0x75697863; // "uixc"
   private final Map<String, Entry> entries = new HashMap<String, Entry>();
+  private final byte[] fingerprint;
 
-  public static UiXmlCache loadOrCreate(final File outputDirectory) {
-    UiXmlCache c = new UiXmlCache();
-    if (cache(outputDirectory).exists()) {
+  public static UiXmlCache loadOrCreate(final File outputDirectory, final Config config) {
+    final UiXmlCache c = new UiXmlCache(GenUtils.digest(generatorVersion + "\n" + config.getFingerprint()));
+    final File file = cache(outputDirectory);
+    if (file.exists()) {
+      DataInputStream in = null;
       try {
-        for (Object line : FileUtils.readLines(cache(outputDirectory))) {
-          Entry e = new Entry((String) line);
-          c.entries.put(e.uiXmlFileName, e);
-        }
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        c.read(in);
       } catch (IOException e) {
-        throw new RuntimeException(e);
+        // a corrupt or old cache just means regenerating everything
+        c.entries.clear();
+      } finally {
+        IOUtils.closeQuietly(in);
       }
     }
     return c;
   }
 
   private static File cache(File outputDirectory) {
-    return new File(outputDirectory, "./.viewGenerator." + cacheVersion + ".cache");
+    return new File(outputDirectory, "./.viewGenerator.cache");
   }
 
-  private UiXmlCache() {
+  private UiXmlCache(final byte[] fingerprint) {
+    this.fingerprint = fingerprint;
   }
 
-  /** @return whether we have an entry for {@code uiXmlFile} */
+  /** @return whether we have an entry for {@code uiXml} with the same content */
   public boolean has(UiXmlFile uiXml) {
-    return entries.keySet().contains(uiXml.getPath());
+    final Entry e = entries.get(uiXml.getRelativePath());
+    return e != null && Arrays.equals(e.hash, uiXml.getContentHash());
   }
 
-  /** Updates the {@code uiXmlFile} entry with {@code withTypes}. */
+  /** Updates the {@code uiXml} entry with its current hash and declarations. */
   public void update(UiXmlFile uiXml) {
-    entries.put(uiXml.getPath(), new Entry(//
-      uiXml.getPath(),
+    entries.put(uiXml.getRelativePath(), new Entry(//
+      uiXml.getContentHash(),
       uiXml.getFreshWiths(),
       uiXml.getFreshStyles(),
-      uiXml.getStubDependencies()));
+      uiXml.getStubDependencies(),
+      uiXml.getFreshLazyNames()));
+  }
+
+  /** Drops entries for {@code ui.xml} files that no longer exist. */
+  public void retainOnly(List<UiXmlFile> uiXmls) {
+    final Set<String> paths = new HashSet<String>();
+    for (final UiXmlFile uiXml : uiXmls) {
+      paths.add(uiXml.getRelativePath());
+    }
+    entries.keySet().retainAll(paths);
   }
 
   /** @return the {@code ui:with} declarations for {@code uiXml}. */
   public List<UiWithDeclaration> getCachedWiths(UiXmlFile uiXml) {
-    return entries.get(uiXml.getPath()).withs;
+    return entries.get(uiXml.getRelativePath()).withs;
   }
 
   /** @return the {@code ui:style} declarations for {@code uiXml}. */
   public List<UiStyleDeclaration> getCachedStyles(UiXmlFile uiXml) {
-    return entries.get(uiXml.getPath()).styles;
+    return entries.get(uiXml.getRelativePath()).styles;
   }
 
   /** @return the stub dependencies for {@code uiXml}. */
   public List<String> getCachedStubDependencies(UiXmlFile uiXml) {
-    return entries.get(uiXml.getPath()).stubDependencies;
+    return entries.get(uiXml.getRelativePath()).stubDependencies;
+  }
+
+  /** @return the names of the ui:lazy subtrees for {@code uiXml}. */
+  public List<String> getCachedLazyNames(UiXmlFile uiXml) {
+    return entries.get(uiXml.getRelativePath()).lazyNames;
   }
 
   /** Saves the cache to the file system for loading next time. */
   public void save(File outputDirectory) {
+    DataOutputStream out = null;
     try {
-      FileUtils.writeLines(cache(outputDirectory), entriesToLines());
+      GenUtils.mkdirs(outputDirectory);
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cache(outputDirectory))));
+      write(out);
     } catch (IOException e) {
       throw new RuntimeException(e);
+    } finally {
+      IOUtils.closeQuietly(out);
+    }
+  }
+
+  private void read(DataInputStream in) throws IOException {
+    if (in.readInt() != magic || !Arrays.equals(readBytes(in), fingerprint)) {
+      return; // different generator or config, so start over
+    }
+    final int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      final String path = in.readUTF();
+      final Entry e = new Entry(readBytes(in));
+      for (int j = in.readInt(); j > 0; j--) {
+        e.withs.add(new UiWithDeclaration(in.readUTF(), in.readUTF()));
+      }
+      for (int j = in.readInt(); j > 0; j--) {
+        e.styles.add(new UiStyleDeclaration(in.readUTF(), in.readUTF()));
+      }
+      for (int j = in.readInt(); j > 0; j--) {
+        e.stubDependencies.add(in.readUTF());
+      }
+      for (int j = in.readInt(); j > 0; j--) {
+        e.lazyNames.add(in.readUTF());
+      }
+      entries.put(path, e);
     }
   }
 
-  /** @return the cache entries as a list of lines. */
-  private List<String> entriesToLines() {
-    List<String> lines = new ArrayList<String>();
-    for (Entry e : entries.values()) {
-      lines.add(e.toLine());
+  private void write(DataOutputStream out) throws IOException {
+    out.writeInt(magic);
+    writeBytes(out, fingerprint);
+    out.writeInt(entries.size());
+    for (final Map.Entry<String, Entry> me : entries.entrySet()) {
+      final Entry e = me.getValue();
+      out.writeUTF(me.getKey());
+      writeBytes(out, e.hash);
+      out.writeInt(e.withs.size());
+      for (final UiWithDeclaration with : e.withs) {
+        out.writeUTF(with.type);
+        out.writeUTF(with.name);
+      }
+      out.writeInt(e.styles.size());
+      for (final UiStyleDeclaration style : e.styles) {
+        out.writeUTF(style.type);
+        out.writeUTF(style.name);
+      }
+      out.writeInt(e.stubDependencies.size());
+      for (final String stubDependency : e.stubDependencies) {
+        out.writeUTF(stubDependency);
+      }
+      out.writeInt(e.lazyNames.size());
+      for (final String lazyName : e.lazyNames) {
+        out.writeUTF(lazyName);
+      }
     }
-    return lines;
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    final byte[] bytes = new byte[in.readUnsignedByte()];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeByte(bytes.length);
+    out.write(bytes);
   }
 
   /** One entry per ui.xml file. */
   private static class Entry {
-    // each entry is serialized to 1 line in the cache file, comma separated into a String[]
-    private final String uiXmlFileName;
+    private final byte[] hash;
     private final ArrayList<UiWithDeclaration> withs = new ArrayList<UiWithDeclaration>();
     private final ArrayList<UiStyleDeclaration> styles = new ArrayList<UiStyleDeclaration>();
     private final ArrayList<String> stubDependencies = new ArrayList<String>();
+    private final ArrayList<String> lazyNames = new ArrayList<String>();
 
-    /** Make a new entry from the cached line. */
-    private Entry(String line) {
-      final String[] parts = splitPreserveAllTokens(line, ";");
-      uiXmlFileName = parts[0];
-      // parse out ui:withs
-      if (parts[1].length() > 0) {
-        for (String with : parts[1].split(",")) {
-          String[] wp = with.split(" ");
-          withs.add(new UiWithDeclaration(wp[0], wp[1]));
-        }
-      }
-      // parse out ui:styles
-      if (parts[2].length() > 0) {
-        for (String style : parts[2].split(",")) {
-          String[] sp = style.split(" ");
-          styles.add(new UiStyleDeclaration(sp[0], sp[1]));
-        }
-      }
-      // parse out stub dependencies
-      if (parts[3].length() > 0) {
-        stubDependencies.addAll(Arrays.asList(parts[3]));
-      }
+    private Entry(byte[] hash) {
+      this.hash = hash;
     }
 
-    /** Make a new entry from a new {@code ui.xml} file with its {@code ui:with} types. */
-    private Entry(String uiXmlFileName, List<UiWithDeclaration> withs, List<UiStyleDeclaration> styles, List<String> stubDependencies) {
-      this.uiXmlFileName = uiXmlFileName;
+    /** Make a new entry from a freshly parsed {@code ui.xml} file. */
+    private Entry(byte[] hash, List<UiWithDeclaration> withs, List<UiStyleDeclaration> styles, List<String> stubDependencies, List<String> lazyNames) {
+      this.hash = hash;
       this.withs.addAll(withs);
       this.styles.addAll(styles);
       this.stubDependencies.addAll(stubDependencies);
-    }
-
-    private String toLine() {
-      final List<String> withStrings = new ArrayList<String>();
-      for (final UiWithDeclaration with : withs) {
-        withStrings.add(with.type + " " + with.name);
-      }
-      final List<String> styleStrings = new ArrayList<String>();
-      for (final UiStyleDeclaration style : styles) {
-        styleStrings.add(style.type + " " + style.name);
-      }
-      final String p0 = uiXmlFileName;
-      final String p1 = Join.comma(withStrings);
-      final String p2 = Join.comma(styleStrings);
-      final String p3 = Join.comma(stubDependencies);
-      return join(new String[] { p0, p1, p2, p3 }, ";");
+      this.lazyNames.addAll(lazyNames);
     }
   }
 
@@ -3,12 +3,15 @@ package org.tessell.generators.views;
 import static joist.sourcegen.Argument.arg;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.regex.Pattern;
 
 import joist.sourcegen.Access;
 import joist.sourcegen.Argument;
@@ -27,7 +30,9 @@ import org.tessell.gwt.dom.client.GwtElement;
 import org.tessell.gwt.dom.client.IsElement;
 import org.tessell.gwt.dom.client.IsStyle;
 import org.tessell.gwt.user.client.ui.IsWidget;
+import org.tessell.gwt.user.client.ui.SimplePanel;
 import org.tessell.widgets.StubView;
+import org.xml.sax.InputSource;
 
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.uibinder.client.UiBinder;
@@ -49,6 +54,9 @@ class UiXmlFile {
 
   // the handler is only created if we have to parser the ui.xml file
   private UiXmlHandler handler;
+  // read lazily, when we first need the hash
+  private byte[] content;
+  private byte[] contentHash;
 
   UiXmlFile(ViewGenerator viewGenerator, final File uiXml) {
     this.viewGenerator = viewGenerator;
@@ -63,19 +71,39 @@ class UiXmlFile {
     stubView = new GClass(packageName + ".Stub" + baseName);
   }
 
-  /** @return whether the {@code ui.xml} file is newer than the last {@code IsXxx} output. */
-  public boolean hasChanged() {
-    File isFile = new File(viewGenerator.output, isView.getFileName());
-    if (!isFile.exists()) {
-      return true;
+  /** @return whether any of our outputs are missing, e.g. the output directory was cleaned. */
+  public boolean isOutputMissing() {
+    return !uiXmlCopy.exists()
+      || !new File(viewGenerator.output, isView.getFileName()).exists()
+      || !new File(viewGenerator.output, gwtView.getFileName()).exists()
+      || !new File(viewGenerator.output, stubView.getFileName()).exists();
+  }
+
+  /** @return the hash of the {@code ui.xml} file's content */
+  byte[] getContentHash() {
+    if (contentHash == null) {
+      contentHash = GenUtils.digest(getContent());
+    }
+    return contentHash;
+  }
+
+  private byte[] getContent() {
+    if (content == null) {
+      try {
+        content = FileUtils.readFileToByteArray(uiXml);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }
-    return uiXml.lastModified() > isFile.lastModified();
+    return content;
   }
 
   public void generate() throws Exception {
     System.out.println(uiXml);
-    handler = new UiXmlHandler();
-    viewGenerator.parser.parse(uiXml, handler);
+    // parse the same text we copy, so the handler's offsets line up with it
+    final String text = new String(getContent());
+    handler = new UiXmlHandler(text);
+    viewGenerator.parser().parse(new InputSource(new StringReader(text)), handler);
 
     generateIsView();
     generateGwtView();
@@ -103,7 +131,7 @@ class UiXmlFile {
     // extra ensureDebugIdSuffix
     isView.getMethod("ensureDebugIdSuffix", arg("String", "suffix"));
 
-    viewGenerator.markAndSave(isView);
+    viewGenerator.markAndSaveIfChanged(isView);
   }
 
   private void generateGwtView() throws Exception {
@@ -126,12 +154,20 @@ class UiXmlFile {
     }
 
     {
-      String uiXmlContent = FileUtils.readFileToString(uiXml);
-      uiXmlContent = ResourcesGenerator.doMozWebkitSubstitution(uiXmlContent);
-      // use the tessell subclasses that implement the IsXxx interfaces
-      uiXmlContent = uiXmlContent.replace("urn:import:com.google.gwt.user.client.ui", "urn:import:org.tessell.gwt.user.client.ui");
-      GenUtils.saveIfChanged(uiXmlCopy, uiXmlContent);
-      viewGenerator.cleanup.markOkay(uiXmlCopy);
+      final String text = new String(getContent());
+      saveTemplate(uiXmlCopy, withPlaceholders(text));
+      for (final UiLazyDeclaration lazy : handler.lazies) {
+        saveTemplate(getLazyUiXmlCopy(lazy.name), lazyTemplate(text, lazy));
+      }
+    }
+
+    // for each ui:lazy subtree, an inner class to own its fields, with its own uibinder
+    if (handler.lazies.size() > 0) {
+      gwtView.getField("baseDebugId").type(String.class);
+      debugId.body.line("this.baseDebugId = baseDebugId;");
+    }
+    for (final UiLazyDeclaration lazy : handler.lazies) {
+      generateLazy(lazy, debugId);
     }
 
     // for each ui:with, add a @UiField(provided=true) field, getter method, and a constructor arg
@@ -148,7 +184,9 @@ class UiXmlFile {
       gwtView.getField(style.name).type(style.type).setAccess(Access.PACKAGE).addAnnotation("@UiField");
       gwtView.getMethod(style.name).returnType(style.type).body.line("return {};", style.name);
       gwtView.addImports(UiField.class);
-      new CssGenerator(style.getCssInFile(), viewGenerator.cleanup, style.type, viewGenerator.output).run();
+      final CssGenerator g = new CssGenerator(style.getSheet(viewGenerator.output), viewGenerator.cleanup, style.type, viewGenerator.output);
+      g.setOutputDigests(viewGenerator.digests);
+      g.run();
     }
 
     // for each ui:field, make @UiField (usually provided=true) and getter methods
@@ -156,25 +194,29 @@ class UiXmlFile {
       if (field.isAnonymous()) {
         continue;
       }
+      // fields in a lazy subtree live in its owner, which the getter creates if needed
+      final GClass owner = field.lazy == null ? gwtView : gwtView.getInnerClass(field.lazy.getOwnerName());
+      final GMethod ownerDebugId = field.lazy == null ? debugId : owner.getMethod("onEnsureDebugId", arg("String", "baseDebugId"));
+      final String access = field.lazy == null ? field.name : field.lazy.getAccessorName() + "()." + field.name;
       final String interfaceType = viewGenerator.config.getInterface(field.type);
-      final GField f = gwtView.getField(field.name);
+      final GField f = owner.getField(field.name);
       final GMethod m = gwtView.getMethod(field.name).returnType(interfaceType);
 
       if (field.isElement) {
         f.type(field.type).setAccess(Access.PACKAGE).addAnnotation("@UiField");
-        m.body.line("return new {}({});", GwtElement.class.getName(), field.name);
+        m.body.line("return new {}({});", GwtElement.class.getName(), access);
       } else {
         // let UiBinder instantiate the type, which as a bonus means it will handle UiConstructor logic
         f.type(field.type).setAccess(Access.PACKAGE).addAnnotation("@UiField");
-        m.body.line("return {};", field.name);
+        m.body.line("return {};", access);
       }
       gwtView.addImports(UiField.class);
 
       if (field.isElement) {
-        debugId.body.line("UIObject.ensureDebugId({}, baseDebugId + \"-{}\");", field.name, field.name);
+        ownerDebugId.body.line("UIObject.ensureDebugId({}, baseDebugId + \"-{}\");", field.name, field.name);
         gwtView.addImports(UIObject.class);
       } else {
-        debugId.body.line("{}.ensureDebugId(baseDebugId + \"-{}\");", field.name, field.name);
+        ownerDebugId.body.line("{}.ensureDebugId(baseDebugId + \"-{}\");", field.name, field.name);
       }
     }
 
@@ -193,7 +235,91 @@ class UiXmlFile {
     getIsElement.body.line("return new GwtElement(getElement());");
     gwtView.addImports(GwtElement.class);
 
-    viewGenerator.markAndSave(gwtView);
+    viewGenerator.markAndSaveIfChanged(gwtView);
+  }
+
+  /**
+   * Adds an owner class and uibinder for {@code lazy}'s template, a {@code @UiField} for the placeholder
+   * in the main template, and a method to create the owner and fill the placeholder on first access.
+   */
+  private void generateLazy(final UiLazyDeclaration lazy, final GMethod debugId) {
+    final String ownerName = lazy.getOwnerName();
+    final String binderName = ownerName + "UiBinder";
+    final String binderField = StringUtils.uncapitalize(binderName);
+    final String accessor = lazy.getAccessorName();
+
+    final GClass uibinder = gwtView.getInnerClass(binderName).setInterface();
+    uibinder.baseClassName("{}<{}, {}>", UiBinder.class.getName(), lazy.type, ownerName);
+    uibinder.addAnnotation("@UiTemplate(\"{}\")", getLazyUiXmlCopy(lazy.name).getName());
+    gwtView.getField(binderField).type(binderName).setStatic().setFinal().initialValue("GWT.create({}.class)", binderName);
+
+    // the owner shares our ui:withs, and its @UiFields are added with the rest below
+    final GClass owner = gwtView.getInnerClass(ownerName);
+    final GMethod ownerCstr = owner.getConstructor();
+    for (final UiWithDeclaration with : handler.withFields) {
+      owner.getField(with.name).type(with.type).setAccess(Access.PACKAGE).addAnnotation("@UiField(provided = true)");
+      ownerCstr.body.line("{} = {}.this.{};", with.name, gwtView.getSimpleName(), with.name);
+    }
+    ownerCstr.body.line("{}.createAndBindUi(this);", binderField);
+    owner.getMethod("onEnsureDebugId", arg("String", "baseDebugId"));
+
+    gwtView.getField(lazy.getPlaceholderName()).type(SimplePanel.class).setAccess(Access.PACKAGE).addAnnotation("@UiField");
+    gwtView.getField(accessor).type(ownerName);
+    final GMethod m = gwtView.getMethod(accessor).returnType(ownerName).setAccess(Access.PRIVATE);
+    m.body.line("if ({} == null) {", accessor);
+    m.body.line("  {} = new {}();", accessor, ownerName);
+    m.body.line("  {}.setWidget({}.{});", lazy.getPlaceholderName(), accessor, lazy.name);
+    m.body.line("  if (baseDebugId != null) {");
+    m.body.line("    {}.onEnsureDebugId(baseDebugId);", accessor);
+    m.body.line("  }");
+    m.body.line("}");
+    m.body.line("return {};", accessor);
+
+    debugId.body.line("if ({} != null) {", accessor);
+    debugId.body.line("  {}.onEnsureDebugId(baseDebugId);", accessor);
+    debugId.body.line("}");
+  }
+
+  /** Saves {@code template}, a ui.xml file for UiBinder, after switching it to the tessell widgets. */
+  private void saveTemplate(final File file, final String template) {
+    String content = ResourcesGenerator.doMozWebkitSubstitution(template);
+    // use the tessell subclasses that implement the IsXxx interfaces
+    content = content.replace("urn:import:com.google.gwt.user.client.ui", "urn:import:org.tessell.gwt.user.client.ui");
+    GenUtils.saveIfChanged(file, content, viewGenerator.digests);
+    viewGenerator.cleanup.markOkay(file);
+  }
+
+  /** @return {@code text} with each ui:lazy subtree replaced by an empty placeholder panel */
+  private String withPlaceholders(final String text) {
+    final String uiPrefix = StringUtils.substringBefore(handler.rootTag, ":");
+    final StringBuilder sb = new StringBuilder();
+    int last = 0;
+    for (final UiLazyDeclaration lazy : handler.lazies) {
+      sb.append(text.substring(last, lazy.start));
+      sb.append("<lazy:SimplePanel xmlns:lazy=\"urn:import:org.tessell.gwt.user.client.ui\" ");
+      sb.append(uiPrefix + ":field=\"" + lazy.getPlaceholderName() + "\" />");
+      last = lazy.end;
+    }
+    sb.append(text.substring(last));
+    return sb.toString();
+  }
+
+  /** @return a template with just {@code lazy}'s subtree, plus the top-level declarations it may use */
+  private String lazyTemplate(final String text, final UiLazyDeclaration lazy) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append(text.substring(0, handler.rootStartEnd)).append("\n");
+    for (final String declaration : handler.declarations) {
+      sb.append("  ").append(declaration).append("\n");
+    }
+    final String subtree = text.substring(lazy.start, lazy.end);
+    sb.append("  ").append(subtree.replaceFirst("\\s+" + Pattern.quote(lazy.attribute) + "\\s*=\\s*[\"']true[\"']", "")).append("\n");
+    sb.append("</").append(handler.rootTag).append(">\n");
+    return sb.toString();
+  }
+
+  /** @return the copy of the template for {@code lazy}, next to our main copy */
+  File getLazyUiXmlCopy(final String lazy) {
+    return new File(uiXmlCopy.getParentFile(), uiXml.getName().replace(".ui.xml", "-" + lazy + "-gen.ui.xml"));
   }
 
   private void generateStubView() throws Exception {
@@ -256,7 +382,8 @@ class UiXmlFile {
 
     // for each ui:style, make @UiField fields, getter method, plus StubCss class
     for (final UiStyleDeclaration style : handler.styleFields) {
-      CssStubGenerator g = new CssStubGenerator(style.getCssInFile(), viewGenerator.cleanup, style.type, viewGenerator.output);
+      CssStubGenerator g = new CssStubGenerator(style.getSheet(viewGenerator.output), viewGenerator.cleanup, style.type, viewGenerator.output);
+      g.setOutputDigests(viewGenerator.digests);
       g.run();
       stubView.getField(style.name).type(style.type).setFinal().initialValue("new {}()", g.getCssStubClassName());
       stubView.getMethod(style.name).returnType(style.type).body.line("return {};", style.name);
@@ -267,13 +394,18 @@ class UiXmlFile {
     stubView.getMethod("ensureDebugIdSuffix", arg("String", "suffix")).addAnnotation("@Override").body //
       .line("ensureDebugId(\"{}-\" + suffix);", viewDebugId);
 
-    viewGenerator.markAndSave(stubView);
+    viewGenerator.markAndSaveIfChanged(stubView);
   }
 
   String getPath() {
     return uiXml.getPath();
   }
 
+  /** @return our path relative to the input directory, so it's the same across checkouts */
+  String getRelativePath() {
+    return uiXml.getAbsolutePath().replace(viewGenerator.input.getPath() + File.separator, "").replace(File.separatorChar, '/');
+  }
+
   /** @return the ui:with fields, if we parsed the file. */
   List<UiWithDeclaration> getFreshWiths() {
     return handler.withFields;
@@ -292,6 +424,19 @@ class UiXmlFile {
     return handler == null ? cache.getCachedStyles(this) : getFreshStyles();
   }
 
+  /** @return the names of the ui:lazy subtrees, if we parsed the file. */
+  List<String> getFreshLazyNames() {
+    final List<String> names = new ArrayList<String>();
+    for (final UiLazyDeclaration lazy : handler.lazies) {
+      names.add(lazy.name);
+    }
+    return names;
+  }
+
+  List<String> getPossiblyCachedLazyNames(UiXmlCache cache) {
+    return handler == null ? cache.getCachedLazyNames(this) : getFreshLazyNames();
+  }
+
   List<String> getStubDependencies() {
     final Set<String> stubDependencies = new TreeSet<String>();
     for (final UiFieldDeclaration field : handler.uiFields) {
@@ -6,27 +6,69 @@ import java.util.Stack;
 
 import org.apache.commons.lang.StringUtils;
 import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 import com.google.gwt.dom.client.Element;
 
-/** A SAX handler for ui.xml files. */
+/**
+ * A SAX handler for ui.xml files.
+ *
+ * We also track where the {@code ui:lazy} subtrees and the top-level {@code ui:} declarations are in
+ * {@code content}, so they can be copied into separate templates.
+ */
 class UiXmlHandler extends DefaultHandler {
 
+  private static final String uiBinderUri = "urn:ui:com.google.gwt.uibinder";
+
   final List<UiWithDeclaration> withFields = new ArrayList<UiWithDeclaration>();
   // ui:field elements + ui:field widgets + anonymous widgets
   final List<UiFieldDeclaration> uiFields = new ArrayList<UiFieldDeclaration>();
   final List<UiStyleDeclaration> styleFields = new ArrayList<UiStyleDeclaration>();
   final Stack<String> parentUiFieldOperation = new Stack<String>();
   final Stack<Boolean> popParentUiFieldName = new Stack<Boolean>();
+  final List<UiLazyDeclaration> lazies = new ArrayList<UiLazyDeclaration>();
+  // the source of each ui:with, ui:style, etc. directly under the root
+  final List<String> declarations = new ArrayList<String>();
   String firstTagType;
+  String rootTag;
+  // offset just after the root's start tag
+  int rootStartEnd;
+  private final String content;
+  private final List<Integer> lineOffsets = new ArrayList<Integer>();
+  private Locator locator;
   private UiStyleDeclaration lastStyle;
+  private UiLazyDeclaration currentLazy;
+  private int currentLazyDepth;
+  private int declarationStart = -1;
+  private int depth;
   private int anonymousIndex;
 
+  UiXmlHandler(final String content) {
+    this.content = content;
+    lineOffsets.add(0);
+    for (int i = content.indexOf('\n'); i != -1; i = content.indexOf('\n', i + 1)) {
+      lineOffsets.add(i + 1);
+    }
+  }
+
+  @Override
+  public void setDocumentLocator(final Locator locator) {
+    this.locator = locator;
+  }
+
   @Override
   public void startElement(final String uri, final String localName, final String qName, final Attributes attributes) throws SAXException {
     boolean doParentPop = false;
+    depth++;
+
+    if (depth == 1) {
+      rootTag = qName;
+      rootStartEnd = offset();
+    } else if (depth == 2 && uri.equals(uiBinderUri)) {
+      declarationStart = startOffset(qName);
+    }
 
     if (firstTagType == null && uri.startsWith("urn:import")) {
       firstTagType = StringUtils.substringAfterLast(uri, ":") + "." + localName;
@@ -54,7 +96,7 @@ class UiXmlHandler extends DefaultHandler {
       // elements, only pick up elements with ui:fields
       if (indexOfUiField > -1) {
         final String name = attributes.getValue(indexOfUiField);
-        uiFields.add(new UiFieldDeclaration(Element.class.getName(), name, null));
+        uiFields.add(new UiFieldDeclaration(Element.class.getName(), name, null, currentLazy));
       }
     } else if (!uri.equals("") && !uri.equals("urn:ui:com.google.gwt.uibinder") && !hasUpperCase) {
       // probably (hopefully) a UiChild. Unfortunately, this is wild, random guess because
@@ -74,7 +116,22 @@ class UiXmlHandler extends DefaultHandler {
       }
       final String type = (StringUtils.substringAfterLast(uri, ":") + "." + localName) //
         .replace("com.google.gwt.user.client.ui", "org.tessell.gwt.user.client.ui"); // use the subclasses
-      uiFields.add(new UiFieldDeclaration(type, name, getParentOperationOrNull()));
+      final int indexOfLazy = attributes.getIndex(uiBinderUri, "lazy");
+      if (indexOfLazy > -1 && "true".equals(attributes.getValue(indexOfLazy))) {
+        if (currentLazy != null) {
+          throw new RuntimeException("Nested ui:lazy subtrees are not supported: " + name);
+        }
+        if (indexOfUiField == -1) {
+          throw new RuntimeException("ui:lazy widgets need a ui:field: " + type);
+        }
+        if (depth == 2) {
+          throw new RuntimeException("The root widget can't be ui:lazy: " + name);
+        }
+        currentLazy = new UiLazyDeclaration(name, type, attributes.getQName(indexOfLazy), startOffset(qName));
+        currentLazyDepth = depth;
+        lazies.add(currentLazy);
+      }
+      uiFields.add(new UiFieldDeclaration(type, name, getParentOperationOrNull(), currentLazy));
       parentUiFieldOperation.push(name + ".add");
       doParentPop = true;
     }
@@ -96,6 +153,25 @@ class UiXmlHandler extends DefaultHandler {
     if (doParentPop) {
       parentUiFieldOperation.pop();
     }
+    if (depth == 2 && declarationStart != -1) {
+      declarations.add(content.substring(declarationStart, offset()));
+      declarationStart = -1;
+    }
+    if (currentLazy != null && depth == currentLazyDepth) {
+      currentLazy.end = offset();
+      currentLazy = null;
+    }
+    depth--;
+  }
+
+  /** @return the offset into {@code content} of the parser's position, i.e. just after the current tag */
+  private int offset() {
+    return lineOffsets.get(locator.getLineNumber() - 1) + locator.getColumnNumber() - 1;
+  }
+
+  /** @return the offset of the start of the current start tag, which the parser doesn't tell us */
+  private int startOffset(final String qName) {
+    return content.lastIndexOf("<" + qName, offset());
   }
 
   private String getParentOperationOrNull() {
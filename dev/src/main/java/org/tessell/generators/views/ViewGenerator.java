@@ -3,12 +3,19 @@ package org.tessell.generators.views;
 import static joist.sourcegen.Argument.arg;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -23,9 +30,17 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.tessell.generators.Cleanup;
 import org.tessell.generators.GenUtils;
+import org.tessell.generators.OutputDigests;
 import org.xml.sax.SAXException;
 
-/** Takes a {@code ui.xml} source and generates a {@code IsXxx, GwtXxx, StubXxx} trio of view classes. */
+/**
+ * Takes a {@code ui.xml} source and generates a {@code IsXxx, GwtXxx, StubXxx} trio of view classes.
+ *
+ * Changed {@code ui.xml} files are parsed and generated in parallel, each thread with its own
+ * parser; the aggregate {@code AppViews} and providers are generated afterwards, in path order.
+ *
+ * When resident, {@link #generate(Collection)} regenerates just the files that changed.
+ */
 public class ViewGenerator {
 
   private final String packageName;
@@ -35,34 +50,98 @@ public class ViewGenerator {
   final File output;
   final Cleanup cleanup;
   final Config config = new Config();
-  final SAXParser parser;
+  OutputDigests digests;
+  private final ThreadLocal<SAXParser> parsers = new ThreadLocal<SAXParser>() {
+    protected SAXParser initialValue() {
+      return makeNewParser();
+    }
+  };
+  private int threads = Runtime.getRuntime().availableProcessors();
 
   public ViewGenerator(final File inputDirectory, final String packageName, final File outputDirectory, final Cleanup cleanup) {
     input = inputDirectory.getAbsoluteFile();
     output = outputDirectory.getAbsoluteFile();
-    cache = UiXmlCache.loadOrCreate(output);
+    cache = UiXmlCache.loadOrCreate(output, config);
     this.packageName = packageName;
     this.cleanup = cleanup;
-    parser = makeNewParser();
+  }
+
+  /** Sets the digests of previous outputs, so unchanged outputs aren't read back, or {@code null} to compare content. */
+  public void setOutputDigests(final OutputDigests digests) {
+    this.digests = digests;
+  }
+
+  /** Sets the number of threads used to generate changed views, defaults to the number of processors. */
+  public void setThreads(final int threads) {
+    this.threads = threads;
   }
 
   public void generate() throws Exception {
+    final long start = System.currentTimeMillis();
+    // we may be resident and re-run, so start fresh, but keep our cache in memory
+    uiXmlFiles.clear();
     for (final File uiXml : findUiXmlFiles()) {
       if (uiXml.getName().contains("-nogen.")) {
         continue;
       }
       uiXmlFiles.add(new UiXmlFile(this, uiXml));
     }
+    sortUiXmlFiles();
 
+    final List<UiXmlFile> changed = new ArrayList<UiXmlFile>();
     for (final UiXmlFile uiXml : uiXmlFiles) {
-      if (uiXml.hasChanged() || !cache.has(uiXml)) {
-        uiXml.generate();
-        cache.update(uiXml);
+      if (!cache.has(uiXml) || uiXml.isOutputMissing()) {
+        changed.add(uiXml);
+      }
+    }
+    generate(start, changed);
+  }
+
+  /**
+   * Regenerates just {@code changedUiXmls}, which were added, changed, or removed since the last run, plus the aggregates.
+   *
+   * Used when we're resident, so the rest of the files don't have to be listed and checked again.
+   */
+  public void generate(final Collection<File> changedUiXmls) throws Exception {
+    final long start = System.currentTimeMillis();
+    final List<UiXmlFile> changed = new ArrayList<UiXmlFile>();
+    for (final File file : changedUiXmls) {
+      final String path = file.getAbsolutePath();
+      for (final Iterator<UiXmlFile> i = uiXmlFiles.iterator(); i.hasNext();) {
+        if (i.next().getPath().equals(path)) {
+          i.remove();
+        }
       }
+      if (file.exists() && !file.getName().contains("-nogen.")) {
+        final UiXmlFile uiXml = new UiXmlFile(this, file.getAbsoluteFile());
+        uiXmlFiles.add(uiXml);
+        if (!cache.has(uiXml) || uiXml.isOutputMissing()) {
+          changed.add(uiXml);
+        }
+      }
+    }
+    sortUiXmlFiles();
+    generate(start, changed);
+  }
+
+  private void generate(final long start, final List<UiXmlFile> changed) throws Exception {
+    final long scanned = System.currentTimeMillis();
+
+    generateAll(changed);
+    // update the cache from this thread, after all of the files are done
+    for (final UiXmlFile uiXml : changed) {
+      cache.update(uiXml);
+    }
+    final long generated = System.currentTimeMillis();
+
+    for (final UiXmlFile uiXml : uiXmlFiles) {
       cleanup.markOkay(uiXml.isView);
       cleanup.markOkay(uiXml.gwtView);
       cleanup.markOkay(uiXml.stubView);
       cleanup.markOkay(uiXml.uiXmlCopy);
+      for (final String lazyName : uiXml.getPossiblyCachedLazyNames(cache)) {
+        cleanup.markOkay(uiXml.getLazyUiXmlCopy(lazyName));
+      }
       for (final UiStyleDeclaration style : uiXml.getPossiblyCachedStyles(cache)) {
         cleanup.markTypeOkay(style.type);
         cleanup.markTypeOkay(style.getStubClassName());
@@ -73,8 +152,68 @@ public class ViewGenerator {
     generateAppViewsProvider();
     generateGwtViews();
     generateStubViews();
+    final long aggregated = System.currentTimeMillis();
 
+    cache.retainOnly(uiXmlFiles);
     cache.save(output);
+    final long saved = System.currentTimeMillis();
+
+    System.out.println(String.format("Views: scan %dms, generate %dms (%d of %d files, %d threads), aggregates %dms, cache %dms", //
+      scanned - start,
+      generated - scanned,
+      changed.size(),
+      uiXmlFiles.size(),
+      Math.max(1, Math.min(threads, changed.size())),
+      aggregated - generated,
+      saved - aggregated));
+  }
+
+  /** Keeps the aggregate classes stable regardless of directory listing order. */
+  private void sortUiXmlFiles() {
+    Collections.sort(uiXmlFiles, new Comparator<UiXmlFile>() {
+      public int compare(final UiXmlFile o1, final UiXmlFile o2) {
+        return o1.getPath().compareTo(o2.getPath());
+      }
+    });
+  }
+
+  /** Generates each of {@code uiXmls}, in parallel if we have more than one thread. */
+  private void generateAll(final List<UiXmlFile> uiXmls) throws Exception {
+    if (threads <= 1 || uiXmls.size() <= 1) {
+      for (final UiXmlFile uiXml : uiXmls) {
+        uiXml.generate();
+      }
+      return;
+    }
+    final ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, uiXmls.size()));
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (final UiXmlFile uiXml : uiXmls) {
+        futures.add(pool.submit(new Callable<Void>() {
+          public Void call() throws Exception {
+            uiXml.generate();
+            return null;
+          }
+        }));
+      }
+      for (final Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (final ExecutionException e) {
+          if (e.getCause() instanceof Exception) {
+            throw (Exception) e.getCause();
+          }
+          throw e;
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /** @return the parser for the current thread, as {@link SAXParser}s aren't thread-safe */
+  SAXParser parser() {
+    return parsers.get();
   }
 
   private void generateAppViews() {
@@ -191,20 +330,10 @@ public class ViewGenerator {
   }
 
   void markAndSaveIfChanged(final GClass gclass) {
-    GenUtils.saveIfChanged(output, gclass);
+    GenUtils.saveIfChanged(output, gclass, digests);
     cleanup.markOkay(gclass);
   }
 
-  /** If the ui.xml files have had their time stamp changed, we always save the new ones. */
-  void markAndSave(final GClass gclass) {
-    cleanup.markOkay(gclass);
-    try {
-      FileUtils.writeStringToFile(new File(output, gclass.getFileName()), gclass.toCode());
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
-  }
-
   @SuppressWarnings("unchecked")
   private Collection<File> findUiXmlFiles() {
     return FileUtils.listFiles(input, new String[] { "ui.xml" }, true);
@@ -0,0 +1,117 @@
+package org.tessell.generators;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CleanupTest {
+
+  private File output;
+
+  @Before
+  public void setup() throws IOException {
+    output = File.createTempFile("cleanup", "");
+    output.delete();
+    output.mkdirs();
+  }
+
+  @After
+  public void teardown() throws IOException {
+    FileUtils.deleteDirectory(output);
+  }
+
+  @Test
+  public void deletesFilesThatAreNoLongerProduced() throws Exception {
+    run(new Cleanup(output), "a", "b");
+    run(new Cleanup(output), "a");
+    assertThat(exists("a"), is(true));
+    assertThat(exists("b"), is(false));
+  }
+
+  @Test
+  public void doesNotListPackagesAfterAFinishedRun() throws Exception {
+    run(new Cleanup(output), "a");
+    // not ours, and we trust the manifest
+    write("stray");
+    run(new Cleanup(output), "a");
+    assertThat(exists("stray"), is(true));
+  }
+
+  @Test
+  public void deletesFilesFromARunThatFailed() throws Exception {
+    run(new Cleanup(output), "a");
+    // the next run writes b, then fails before it can save the manifest
+    final Cleanup failed = new Cleanup(output);
+    failed.watchPackage("app.views");
+    failed.markOkay(write("b"));
+    run(new Cleanup(output), "a");
+    assertThat(exists("a"), is(true));
+    assertThat(exists("b"), is(false));
+    // and once that run finishes, the manifest is trusted again
+    write("stray");
+    run(new Cleanup(output), "a");
+    assertThat(exists("stray"), is(true));
+  }
+
+  @Test
+  public void deletesFilesFromAResidentRunThatFailed() throws Exception {
+    final Cleanup cleanup = new Cleanup(output);
+    run(cleanup, "a");
+    cleanup.reset();
+    cleanup.watchPackage("app.views");
+    cleanup.markOkay(write("b"));
+    run(cleanup, "a");
+    assertThat(exists("b"), is(false));
+  }
+
+  @Test
+  public void onlyListsThePackagesThatFailed() throws Exception {
+    final Cleanup first = new Cleanup(output);
+    first.watchPackage("app.views");
+    first.watchPackage("app.resources");
+    first.markOkay(write("a"));
+    first.markOkay(write("app/resources/r"));
+    first.deleteLeftOvers();
+    // a views-only run fails
+    final Cleanup failed = new Cleanup(output);
+    failed.watchPackage("app.views");
+    failed.markOkay(write("b"));
+    // a resources-only run doesn't clean up after it
+    final Cleanup resources = new Cleanup(output);
+    resources.watchPackage("app.resources");
+    resources.markOkay(new File(output, "app/resources/r"));
+    resources.deleteLeftOvers();
+    assertThat(exists("b"), is(true));
+    // but the next views run does
+    run(new Cleanup(output), "a");
+    assertThat(exists("b"), is(false));
+  }
+
+  /** Runs {@code cleanup} for the {@code app.views} package, producing {@code names}. */
+  private void run(final Cleanup cleanup, final String... names) throws IOException {
+    cleanup.reset();
+    cleanup.watchPackage("app.views");
+    for (final String name : names) {
+      cleanup.markOkay(write(name));
+    }
+    cleanup.deleteLeftOvers();
+  }
+
+  private File write(final String name) throws IOException {
+    final File file = new File(output, name.contains("/") ? name : "app/views/" + name);
+    FileUtils.writeStringToFile(file, name);
+    return file;
+  }
+
+  private boolean exists(final String name) {
+    return new File(output, "app/views/" + name).exists();
+  }
+
+}
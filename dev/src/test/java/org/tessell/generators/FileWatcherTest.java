@@ -0,0 +1,140 @@
+package org.tessell.generators;
+
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileWatcherTest {
+
+  private File input;
+  private File output;
+
+  @Before
+  public void setup() throws IOException {
+    input = File.createTempFile("watcher", "");
+    input.delete();
+    input.mkdirs();
+    output = new File(input, "gen");
+    output.mkdirs();
+  }
+
+  @After
+  public void teardown() throws IOException {
+    FileUtils.deleteDirectory(input);
+  }
+
+  @Test
+  public void findsAddedChangedAndRemovedFiles() throws Exception {
+    final File view = write("app/views/Foo.ui.xml", "<a/>");
+    final FileWatcher watcher = new FileWatcher(input, output, "ui.xml", "css");
+    assertThat(watcher.poll().size(), is(0));
+
+    final File css = write("app/resources/deep/foo.css", ".a {}");
+    assertThat(paths(watcher.poll()), is(paths(css)));
+
+    write("app/views/Foo.ui.xml", "<a></a>");
+    assertThat(paths(watcher.poll()), is(paths(view)));
+
+    css.delete();
+    assertThat(paths(watcher.poll()), is(paths(css)));
+    assertThat(watcher.poll().size(), is(0));
+  }
+
+  @Test
+  public void findsASameLengthRewriteWithTheSameTimestamp() throws Exception {
+    final File css = write("app/resources/foo.css", ".red {}");
+    final FileWatcher watcher = new FileWatcher(input, output, "css");
+    final long modified = css.lastModified();
+    // saved again within the same second
+    write("app/resources/foo.css", ".tan {}");
+    css.setLastModified(modified);
+    assertThat(paths(watcher.poll()), is(paths(css)));
+    assertThat(watcher.poll().size(), is(0));
+  }
+
+  @Test
+  public void doesNotChecksumOldFiles() throws Exception {
+    final File css = write("app/resources/foo.css", ".red {}");
+    css.setLastModified(System.currentTimeMillis() - 10000);
+    final FileWatcher watcher = new FileWatcher(input, output, "css");
+    final long modified = css.lastModified();
+    // an old timestamp is trusted, so a rewrite that keeps it isn't seen
+    write("app/resources/foo.css", ".tan {}");
+    css.setLastModified(modified);
+    assertThat(watcher.poll().size(), is(0));
+  }
+
+  @Test
+  public void findsFilesInNewAndRemovedDirectories() throws Exception {
+    final FileWatcher watcher = new FileWatcher(input, output, "ui.xml");
+    final File view = write("app/views/Foo.ui.xml", "<a/>");
+    assertThat(paths(watcher.poll()), is(paths(view)));
+    FileUtils.deleteDirectory(new File(input, "app"));
+    assertThat(paths(watcher.poll()), is(paths(view)));
+  }
+
+  @Test
+  public void ignoresOtherFilesAndTheOutputDirectory() throws Exception {
+    final FileWatcher watcher = new FileWatcher(input, output, "ui.xml", "css");
+    write("app/views/Foo.java", "class Foo {}");
+    write("app/views/Foo-gen.ui.xml", "<a/>");
+    write("app/resources/foo.gen.css", ".a {}");
+    write("gen/app/views/Bar.ui.xml", "<a/>");
+    assertThat(watcher.poll().size(), is(0));
+  }
+
+  @Test
+  public void waitsForABurstOfChangesToFinish() throws Exception {
+    final FileWatcher watcher = new FileWatcher(input, output, "css");
+    final Thread saves = new Thread() {
+      public void run() {
+        try {
+          for (int i = 0; i < 5; i++) {
+            write("app/resources/" + i + ".css", ".a {}");
+            Thread.sleep(20);
+          }
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    saves.start();
+    final List<File> changed = watcher.awaitChanges(10, 200);
+    saves.join();
+    assertThat(changed.size(), is(5));
+    assertThat(paths(changed), hasItem(new File(input, "app/resources/4.css").getPath()));
+    assertThat(watcher.poll().size(), is(0));
+  }
+
+  private File write(final String path, final String content) throws IOException {
+    final File file = new File(input, path);
+    FileUtils.writeStringToFile(file, content);
+    return file;
+  }
+
+  private static Set<String> paths(final List<File> files) {
+    final Set<String> paths = new HashSet<String>();
+    for (final File file : files) {
+      paths.add(file.getPath());
+    }
+    return paths;
+  }
+
+  private static Set<String> paths(final File file) {
+    final Set<String> paths = new HashSet<String>();
+    paths.add(file.getPath());
+    return paths;
+  }
+
+}
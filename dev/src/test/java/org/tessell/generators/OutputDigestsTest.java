@@ -0,0 +1,69 @@
+package org.tessell.generators;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OutputDigestsTest {
+
+  private final OutputDigests digests = new OutputDigests();
+  private File output;
+  private File file;
+
+  @Before
+  public void setup() throws IOException {
+    output = File.createTempFile("digests", "");
+    output.delete();
+    output.mkdirs();
+    file = new File(output, "Foo.java");
+  }
+
+  @After
+  public void teardown() throws IOException {
+    FileUtils.deleteDirectory(output);
+  }
+
+  @Test
+  public void trustsTimestampsOlderThanWhenTheyWereRecorded() throws Exception {
+    FileUtils.writeStringToFile(file, "aaa");
+    file.setLastModified(System.currentTimeMillis() - 10000);
+    digests.put(file, GenUtils.digest("aaa"));
+    assertThat(digests.isUnchanged(file, GenUtils.digest("aaa")), is(true));
+    assertThat(digests.isUnchanged(file, GenUtils.digest("bbb")), is(false));
+  }
+
+  @Test
+  public void doesNotTrustTimestampsCloseToWhenTheyWereRecorded() throws Exception {
+    FileUtils.writeStringToFile(file, "aaa");
+    digests.put(file, GenUtils.digest("aaa"));
+    assertThat(digests.isUnchanged(file, GenUtils.digest("aaa")), is(false));
+  }
+
+  @Test
+  public void rewritesASameLengthEditWithTheSameTimestamp() throws Exception {
+    GenUtils.saveIfChanged(file, "aaa", digests);
+    final long written = file.lastModified();
+    // edited right after we wrote it, so the timestamp didn't change
+    FileUtils.writeStringToFile(file, "bbb");
+    file.setLastModified(written);
+    GenUtils.saveIfChanged(file, "aaa", digests);
+    assertThat(FileUtils.readFileToString(file), is("aaa"));
+  }
+
+  @Test
+  public void savesAndLoadsDigests() throws Exception {
+    FileUtils.writeStringToFile(file, "aaa");
+    file.setLastModified(System.currentTimeMillis() - 10000);
+    digests.put(file, GenUtils.digest("aaa"));
+    digests.save(output);
+    assertThat(OutputDigests.loadOrCreate(output).isUnchanged(file, GenUtils.digest("aaa")), is(true));
+  }
+
+}
@@ -9,11 +9,18 @@ import com.google.gwt.event.shared.HandlerRegistration;
  *
  * Provides basic {@link #bind()}/{@link #unbind()} implementations that enforce
  * the {@code super.onBind()}/@code super.onUnbind()} conventions.
+ *
+ * Instances can also be {@link #suspend()}ed, which, unlike {@link #unbind()}, allows
+ * {@link #bind()} to be called again later, e.g. to keep a presenter and its view alive
+ * while the user is on another place. {@link #onBind()} is only called the first time, so
+ * its handlers are kept while suspended; resuming calls {@link #onResume()} instead.
+ * Unbinding a suspended instance still calls {@link #onUnbind()}.
  */
 public abstract class AbstractBound implements Bound {
 
   private boolean bound = false;
   private boolean hasBeenUnbound = false;
+  private boolean suspended = false;
   private final ArrayList<com.google.web.bindery.event.shared.HandlerRegistration> registrations = new ArrayList<com.google.web.bindery.event.shared.HandlerRegistration>();
 
   @Override
@@ -21,7 +28,13 @@ public abstract class AbstractBound implements Bound {
     if (hasBeenUnbound) {
       throw new IllegalStateException("This instance has already been unbound " + this);
     }
-    if (!bound) {
+    if (suspended) {
+      suspended = false;
+      onResume();
+      if (!bound) {
+        throw new IllegalStateException("A subclass forgot to call super.onResume for " + this);
+      }
+    } else if (!bound) {
       onBind();
       if (!bound) {
         throw new IllegalStateException("A subclass forgot to call super.onBind for " + this);
@@ -31,7 +44,10 @@ public abstract class AbstractBound implements Bound {
 
   @Override
   public final void unbind() {
-    if (bound) {
+    if (bound || suspended) {
+      // a suspended instance still has its handlers and, e.g., child presenters to release
+      suspended = false;
+      bound = true;
       onUnbind();
       if (bound) {
         throw new IllegalStateException("A subclass forgot to call super.onUnbind for " + this);
@@ -40,6 +56,35 @@ public abstract class AbstractBound implements Bound {
     }
   }
 
+  /**
+   * Calls {@link #onSuspend()} but, unlike {@link #unbind()}, allows {@link #bind()} to be called again.
+   *
+   * Handlers registered in {@link #onBind()} are kept, as it isn't called again on resume.
+   */
+  public final void suspend() {
+    if (bound) {
+      onSuspend();
+      if (bound) {
+        throw new IllegalStateException("A subclass forgot to call super.onSuspend for " + this);
+      }
+      suspended = true;
+    }
+  }
+
+  /** @return whether we have been suspended and not yet re-bound */
+  public final boolean isSuspended() {
+    return suspended;
+  }
+
+  /** Suspends {@code bound} if it supports it, otherwise unbinds it. */
+  public static void suspendOrUnbind(final Bound bound) {
+    if (bound instanceof AbstractBound) {
+      ((AbstractBound) bound).suspend();
+    } else {
+      bound.unbind();
+    }
+  }
+
   /** @return whether we have been bound yet */
   @Override
   public final boolean isBound() {
@@ -70,4 +115,14 @@ public abstract class AbstractBound implements Bound {
     registrations.clear();
   }
 
+  /** This method is called when suspending the instance, e.g. to stop timers until {@link #onResume()}. */
+  protected void onSuspend() {
+    bound = false; // set here so we can catch subclasses not calling super.onSuspend
+  }
+
+  /** This method is called when binding a suspended instance, instead of {@link #onBind()}. */
+  protected void onResume() {
+    bound = true; // set here so we can catch subclasses not calling super.onResume
+  }
+
 }
@@ -7,6 +7,7 @@ import org.tessell.dispatch.shared.Action;
 import org.tessell.dispatch.shared.DispatchService;
 import org.tessell.dispatch.shared.DispatchServiceAsync;
 import org.tessell.dispatch.shared.Result;
+import org.tessell.dispatch.shared.VersionedListResult;
 
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.user.client.rpc.AsyncCallback;
@@ -15,6 +16,9 @@ import com.google.gwt.user.client.rpc.ServiceDefTarget;
 /**
  * This class is the default implementation of {@link DispatchAsync}, which is essentially the client-side access to the
  * {@link ActionDispatch} class on the server-side.
+ *
+ * The last {@link VersionedListResult} of each action is remembered, so that re-executing
+ * an equal action only transfers what changed since then.
  * 
  * @author David Peterson
  */
@@ -22,7 +26,9 @@ public class DefaultDispatchAsync implements DispatchAsync {
 
   private static final DispatchServiceAsync realService = GWT.create(DispatchService.class);
   private static final String baseUrl = ((ServiceDefTarget) realService).getServiceEntryPoint() + "/";
+  private static final int maxVersionedResults = 100;
   private final SessionIdAccessor sessionIdAccessor;
+  private final VersionedResults versioned = new VersionedResults(maxVersionedResults);
 
   public DefaultDispatchAsync(final SessionIdAccessor sessionIdAccessor) {
     this.sessionIdAccessor = sessionIdAccessor;
@@ -34,16 +40,35 @@ public class DefaultDispatchAsync implements DispatchAsync {
     // Append action class name as extra path info
     // http://turbomanage.wordpress.com/2010/03/19/adding-info-to-dispatch-url-for-logs/
     ((ServiceDefTarget) realService).setServiceEntryPoint(baseUrl + substringAfterLast(action.getClass().getName(), "."));
-    realService.execute(sessionId, action, new AsyncCallback<Result>() {
+    final VersionedListResult<?> known = versioned.get(action);
+    final String knownVersion = known == null ? null : known.getVersion();
+    final AsyncCallback<Result> rawCallback = new AsyncCallback<Result>() {
       @SuppressWarnings("unchecked")
       public void onSuccess(final Result result) {
-        DefaultDispatchAsync.this.onSuccess(action, (R) result, callback);
+        final Result resolved;
+        try {
+          resolved = versioned.resolve(action, known, result);
+        } catch (final RuntimeException re) {
+          DefaultDispatchAsync.this.onFailure(action, re, callback);
+          return;
+        }
+        DefaultDispatchAsync.this.onSuccess(action, (R) resolved, callback);
       }
 
       public void onFailure(final Throwable caught) {
         DefaultDispatchAsync.this.onFailure(action, caught, callback);
       }
-    });
+    };
+    if (known != null) {
+      realService.executeVersioned(sessionId, action, knownVersion, rawCallback);
+    } else {
+      realService.execute(sessionId, action, rawCallback);
+    }
+  }
+
+  /** Forgets all remembered {@link VersionedListResult}s, so the next actions fetch full results. */
+  public void clearVersionedResults() {
+    versioned.clear();
   }
 
   protected <A extends Action<R>, R extends Result> void onFailure(final A action, final Throwable caught, final AsyncCallback<R> callback) {
@@ -0,0 +1,71 @@
+package org.tessell.dispatch.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.tessell.dispatch.shared.Action;
+import org.tessell.dispatch.shared.DeltaResult;
+import org.tessell.dispatch.shared.NotModifiedResult;
+import org.tessell.dispatch.shared.Result;
+import org.tessell.dispatch.shared.VersionedListResult;
+
+/**
+ * Remembers the last {@link VersionedListResult} of each action, and resolves not-modified/delta
+ * responses against it.
+ *
+ * Deltas are applied to a copy, so results already passed to callbacks never change.
+ */
+public class VersionedResults {
+
+  private final Map<Action<?>, VersionedListResult<?>> results;
+
+  public VersionedResults(final int maxSize) {
+    results = new LinkedHashMap<Action<?>, VersionedListResult<?>>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Action<?>, VersionedListResult<?>> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /** @return the last result for {@code action}, or {@code null} if we don't have one with a version */
+  public VersionedListResult<?> get(final Action<?> action) {
+    return results.get(action);
+  }
+
+  /**
+   * @param known the result that was {@link #get(Action)} when {@code action} was sent
+   * @return the full result for {@code action}, resolving {@code result} against {@code known} if it's a not-modified/delta response
+   * @throws IllegalStateException if the response can't be resolved, in which case {@code action}'s result is forgotten
+   */
+  public Result resolve(final Action<?> action, final VersionedListResult<?> known, final Result result) {
+    Result resolved = result;
+    if (result instanceof NotModifiedResult || result instanceof DeltaResult) {
+      if (known == null) {
+        throw new IllegalStateException("Received " + result + " for " + action + " without a known version");
+      }
+      if (result instanceof DeltaResult) {
+        try {
+          resolved = known.copyWith((DeltaResult) result);
+        } catch (final IllegalStateException ise) {
+          results.remove(action); // so the next execute fetches the full result
+          throw ise;
+        }
+      } else {
+        resolved = known;
+      }
+    }
+    if (resolved instanceof VersionedListResult && ((VersionedListResult<?>) resolved).getVersion() != null) {
+      results.put(action, (VersionedListResult<?>) resolved);
+    }
+    return resolved;
+  }
+
+  /** Forgets all remembered results, so the next actions fetch full results. */
+  public void clear() {
+    results.clear();
+  }
+
+}
@@ -108,7 +108,12 @@ public class OutstandingDispatchAsync implements DispatchAsync {
   }
 
   public void unhandledFailure(Throwable caught) {
-    eventBus.fireEvent(new DispatchUnhandledFailureEvent(null, caught, null));
+    unhandledFailure(null, caught);
+  }
+
+  /** Fires a {@link DispatchUnhandledFailureEvent} for {@code action}, e.g. after a caller decides not to handle its failure. */
+  public void unhandledFailure(Action<?> action, Throwable caught) {
+    eventBus.fireEvent(new DispatchUnhandledFailureEvent(action, caught, null));
   }
 
   /** @return whether there are action calls that have not returned from the server for {@code actionType} */
@@ -0,0 +1,15 @@
+package org.tessell.dispatch.server;
+
+import org.tessell.dispatch.server.handlers.AsyncActionHandler;
+import org.tessell.dispatch.shared.Action;
+import org.tessell.dispatch.shared.Result;
+
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+/** An {@link ActionDispatch} that can execute {@link AsyncActionHandler}s without blocking. */
+public interface AsyncActionDispatch extends ActionDispatch {
+
+  /** Executes the specified action, eventually calling either {@code onSuccess} or {@code onFailure} on {@code callback}. */
+  <A extends Action<R>, R extends Result> void executeAsync(A action, ExecutionContext context, AsyncCallback<R> callback);
+
+}
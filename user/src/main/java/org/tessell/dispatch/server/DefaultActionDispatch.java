@@ -1,19 +1,82 @@
 package org.tessell.dispatch.server;
 
+import org.tessell.dispatch.server.cache.LocalResultCache;
+import org.tessell.dispatch.server.cache.ResultCache;
 import org.tessell.dispatch.server.handlers.ActionHandler;
 import org.tessell.dispatch.server.handlers.ActionHandlerRegistry;
+import org.tessell.dispatch.server.handlers.AsyncActionHandler;
+import org.tessell.dispatch.server.handlers.CacheableActionHandler;
+import org.tessell.dispatch.server.handlers.InvalidatingActionHandler;
 import org.tessell.dispatch.shared.Action;
 import org.tessell.dispatch.shared.Result;
 
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
 /** Stock server-side implementation of {@link ActionDispatch}. */
-public class DefaultActionDispatch implements ActionDispatch {
+public class DefaultActionDispatch implements AsyncActionDispatch {
 
   protected final ActionHandlerRegistry handlers = new ActionHandlerRegistry();
+  private ResultCache resultCache = new LocalResultCache(1000);
 
-  /** Executes {@code action}. */
+  /**
+   * Executes {@code action}.
+   *
+   * Results of {@link CacheableActionHandler}s are served from the {@link ResultCache}, and
+   * {@link InvalidatingActionHandler}s evict their tags after successfully executing.
+   */
   @Override
   public <A extends Action<R>, R extends Result> R execute(final A action, final ExecutionContext context) {
-    return findHandler(action).execute(action, context);
+    final ActionHandler<A, R> handler = findHandler(action);
+    final R result;
+    if (handler instanceof CacheableActionHandler) {
+      result = executeCached((CacheableActionHandler<A, R>) handler, action, context);
+    } else {
+      result = handler.execute(action, context);
+    }
+    invalidate(handler, action);
+    return result;
+  }
+
+  /**
+   * Executes {@code action}, without blocking if its handler is an {@link AsyncActionHandler}.
+   *
+   * Synchronous handlers are executed on the calling thread.
+   */
+  @Override
+  public <A extends Action<R>, R extends Result> void executeAsync(final A action, final ExecutionContext context, final AsyncCallback<R> callback) {
+    final ActionHandler<A, R> handler;
+    try {
+      handler = findHandler(action);
+    } catch (final RuntimeException re) {
+      callback.onFailure(re);
+      return;
+    }
+    if (!(handler instanceof AsyncActionHandler)) {
+      final R result;
+      try {
+        result = execute(action, context);
+      } catch (final RuntimeException re) {
+        callback.onFailure(re);
+        return;
+      }
+      callback.onSuccess(result);
+      return;
+    }
+    ((AsyncActionHandler<A, R>) handler).executeAsync(action, context, new AsyncCallback<R>() {
+      public void onSuccess(final R result) {
+        try {
+          invalidate(handler, action);
+        } catch (final RuntimeException re) {
+          callback.onFailure(re);
+          return;
+        }
+        callback.onSuccess(result);
+      }
+
+      public void onFailure(final Throwable caught) {
+        callback.onFailure(caught);
+      }
+    });
   }
 
   /** Adds {@code handler}. */
@@ -21,6 +84,11 @@ public class DefaultActionDispatch implements ActionDispatch {
     handlers.addHandler(handler);
   }
 
+  /** Removes {@code handler}. */
+  public void removeHandler(final ActionHandler<?, ?> handler) {
+    handlers.removeHandler(handler);
+  }
+
   @Override
   public boolean skipCSRFCheck(Action<?> action) {
     return findHandler(action).skipCSRFCheck();
@@ -39,4 +107,33 @@ public class DefaultActionDispatch implements ActionDispatch {
     return handlers;
   }
 
+  protected ResultCache getResultCache() {
+    return resultCache;
+  }
+
+  /** Replaces the default {@link LocalResultCache}, e.g. with a distributed implementation. */
+  public void setResultCache(final ResultCache resultCache) {
+    this.resultCache = resultCache;
+  }
+
+  private <A extends Action<R>, R extends Result> void invalidate(final ActionHandler<A, R> handler, final A action) {
+    if (handler instanceof InvalidatingActionHandler) {
+      for (final String tag : ((InvalidatingActionHandler<A, R>) handler).getInvalidatedTags(action)) {
+        getResultCache().invalidate(tag);
+      }
+    }
+  }
+
+  private <A extends Action<R>, R extends Result> R executeCached(final CacheableActionHandler<A, R> handler, final A action, final ExecutionContext context) {
+    final Object key = handler.getCacheKey(action, context);
+    if (key == null) {
+      return handler.execute(action, context);
+    }
+    return getResultCache().get(key, handler.getCacheTtl(), handler.getCacheTags(action), new ResultCache.Loader<R>() {
+      public R load() {
+        return handler.execute(action, context);
+      }
+    });
+  }
+
 }
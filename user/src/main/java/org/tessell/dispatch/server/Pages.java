@@ -0,0 +1,73 @@
+package org.tessell.dispatch.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.tessell.dispatch.shared.ActionException;
+import org.tessell.dispatch.shared.PagedAction;
+
+/**
+ * Helpers for handlers of {@link PagedAction}s that use offset-based cursors.
+ *
+ * Handlers can either slice an in-memory list with {@link #of(List, PagedAction)}, or query
+ * {@link #limit(PagedAction)} rows starting at {@link #offset(PagedAction)} and pass the rows
+ * to {@link #fromQuery(List, PagedAction)}, which uses the extra row to know if there is a next page.
+ */
+public class Pages {
+
+  /** One page of items and the cursor for the page after it. */
+  public static class Page<E> {
+    public final ArrayList<E> items;
+    public final String nextCursor;
+
+    private Page(final ArrayList<E> items, final String nextCursor) {
+      this.items = items;
+      this.nextCursor = nextCursor;
+    }
+  }
+
+  /** @return the offset of the first item requested by {@code action} */
+  public static int offset(final PagedAction<?> action) {
+    if (action.getCursor() == null) {
+      return 0;
+    }
+    try {
+      final int offset = Integer.parseInt(action.getCursor());
+      if (offset >= 0) {
+        return offset;
+      }
+    } catch (final NumberFormatException nfe) {
+      // fall through
+    }
+    throw new ActionException("Invalid cursor " + action.getCursor());
+  }
+
+  /** @return the number of rows to query, which is one more than the page size to detect the last page */
+  public static int limit(final PagedAction<?> action) {
+    return pageSize(action) + 1;
+  }
+
+  /** @return the page for {@code action} given {@code rows} queried with {@link #offset} and {@link #limit} */
+  public static <E> Page<E> fromQuery(final List<E> rows, final PagedAction<?> action) {
+    final int pageSize = pageSize(action);
+    if (rows.size() > pageSize) {
+      return new Page<E>(new ArrayList<E>(rows.subList(0, pageSize)), Integer.toString(offset(action) + pageSize));
+    }
+    return new Page<E>(new ArrayList<E>(rows), null);
+  }
+
+  /** @return the page for {@code action} sliced from {@code all} */
+  public static <E> Page<E> of(final List<E> all, final PagedAction<?> action) {
+    final int offset = Math.min(offset(action), all.size());
+    final int end = Math.min(offset + limit(action), all.size());
+    return fromQuery(all.subList(offset, end), action);
+  }
+
+  private static int pageSize(final PagedAction<?> action) {
+    if (action.getPageSize() <= 0) {
+      throw new ActionException("Invalid page size " + action.getPageSize());
+    }
+    return action.getPageSize();
+  }
+
+}
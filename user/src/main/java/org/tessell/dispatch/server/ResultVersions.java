@@ -0,0 +1,123 @@
+package org.tessell.dispatch.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.tessell.dispatch.shared.Action;
+import org.tessell.dispatch.shared.DeltaResult;
+import org.tessell.dispatch.shared.Keyed;
+import org.tessell.dispatch.shared.NotModifiedResult;
+import org.tessell.dispatch.shared.Result;
+import org.tessell.dispatch.shared.VersionedListResult;
+
+/**
+ * Converts {@link VersionedListResult}s into {@link NotModifiedResult}s or {@link DeltaResult}s.
+ *
+ * Only results with a version set by their handler are converted, as we can't tell what changed
+ * between the entries of two results without one.
+ *
+ * Keeps a bounded, least-recently-used snapshot of the entries of recent versions, so that
+ * deltas can be computed against whatever version the client has. If the client's version has
+ * been evicted, or the delta would not be much smaller, the full result is returned instead.
+ *
+ * Snapshots are kept per equal action (as the client remembers results), so actions must
+ * implement {@code equals} and {@code hashCode}, which {@code GenDispatch} generates.
+ */
+public class ResultVersions {
+
+  private final Map<Snapshot, List<Keyed>> snapshots;
+
+  public ResultVersions(final int maxSize) {
+    snapshots = new LinkedHashMap<Snapshot, List<Keyed>>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Snapshot, List<Keyed>> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * @param knownVersion the client's version, or {@code null} if it doesn't have one, in which case we just remember {@code result}
+   * @return the response for a client that has {@code knownVersion} of {@code action}'s {@code result}
+   */
+  public Result respond(final Action<?> action, final Result result, final String knownVersion) {
+    if (!(result instanceof VersionedListResult)) {
+      return result;
+    }
+    final VersionedListResult<?> current = (VersionedListResult<?>) result;
+    if (current.getVersion() == null) {
+      return result;
+    }
+    if (current.getVersion().equals(knownVersion)) {
+      return new NotModifiedResult();
+    }
+    final List<Keyed> known;
+    synchronized (snapshots) {
+      snapshots.put(new Snapshot(action, current.getVersion()), new ArrayList<Keyed>(current.getEntries()));
+      known = knownVersion == null ? null : snapshots.get(new Snapshot(action, knownVersion));
+    }
+    if (known == null) {
+      return result;
+    }
+    final DeltaResult delta = diff(known, current.getEntries(), current.getVersion());
+    if (delta.getUpserted().size() * 2 > current.getEntries().size()) {
+      return result;
+    }
+    return delta;
+  }
+
+  /** @return the delta from {@code known} to {@code current} */
+  public static DeltaResult diff(final List<? extends Keyed> known, final List<? extends Keyed> current, final String version) {
+    final Map<String, Keyed> knownByKey = new HashMap<String, Keyed>();
+    for (final Keyed entry : known) {
+      knownByKey.put(entry.getKey(), entry);
+    }
+    final ArrayList<Keyed> upserted = new ArrayList<Keyed>();
+    boolean sameOrder = known.size() == current.size();
+    for (int i = 0; i < current.size(); i++) {
+      final Keyed entry = current.get(i);
+      final Keyed old = knownByKey.get(entry.getKey());
+      if (old == null || !old.equals(entry)) {
+        upserted.add(entry);
+      }
+      if (sameOrder && !known.get(i).getKey().equals(entry.getKey())) {
+        sameOrder = false;
+      }
+    }
+    ArrayList<String> order = null;
+    if (!sameOrder) {
+      order = new ArrayList<String>(current.size());
+      for (final Keyed entry : current) {
+        order.add(entry.getKey());
+      }
+    }
+    return new DeltaResult(version, upserted, order);
+  }
+
+  /** Identifies the entries of {@code version} of an equal {@code action}'s result. */
+  private static class Snapshot {
+    private final Action<?> action;
+    private final String version;
+
+    private Snapshot(final Action<?> action, final String version) {
+      this.action = action;
+      this.version = version;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      return other instanceof Snapshot && ((Snapshot) other).action.equals(action) && ((Snapshot) other).version.equals(version);
+    }
+
+    @Override
+    public int hashCode() {
+      return action.hashCode() * 31 + version.hashCode();
+    }
+  }
+
+}
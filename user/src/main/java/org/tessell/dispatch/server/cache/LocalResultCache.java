@@ -0,0 +1,166 @@
+package org.tessell.dispatch.server.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.tessell.dispatch.shared.Result;
+
+/**
+ * An in-process, size-bounded {@link ResultCache}.
+ *
+ * Entries are evicted least-recently-used first once {@code maxSize} is reached. Concurrent
+ * requests for the same key wait on the first request's load instead of executing again.
+ *
+ * Loads happen outside of the cache's lock, so slow handlers only block callers of the same key.
+ */
+public class LocalResultCache implements ResultCache {
+
+  private final Map<Object, Entry> entries;
+  private final Map<String, Set<Object>> keysByTag = new HashMap<String, Set<Object>>();
+
+  public LocalResultCache(final int maxSize) {
+    entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Object, Entry> eldest) {
+        if (size() > maxSize) {
+          untag(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <R extends Result> R get(final Object key, final long ttl, final Collection<String> tags, final Loader<R> loader) {
+    final Entry entry;
+    boolean isLoader = false;
+    synchronized (this) {
+      Entry existing = entries.get(key);
+      if (existing != null && existing.expires <= now()) {
+        remove(existing);
+        existing = null;
+      }
+      if (existing == null) {
+        entry = new Entry(key, tags, loader);
+        entries.put(key, entry);
+        tag(entry);
+        isLoader = true;
+      } else {
+        entry = existing;
+      }
+    }
+    if (isLoader) {
+      entry.task.run();
+      entry.expires = now() + ttl;
+    }
+    try {
+      return (R) entry.task.get();
+    } catch (final ExecutionException ee) {
+      // don't cache failures, the next caller will try again
+      synchronized (this) {
+        remove(entry);
+      }
+      throw unwrap(ee.getCause());
+    } catch (final InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for " + key, ie);
+    }
+  }
+
+  @Override
+  public synchronized void invalidate(final String tag) {
+    final Set<Object> keys = keysByTag.get(tag);
+    if (keys != null) {
+      for (final Object key : new HashSet<Object>(keys)) {
+        remove(entries.get(key));
+      }
+    }
+  }
+
+  @Override
+  public synchronized void clear() {
+    entries.clear();
+    keysByTag.clear();
+  }
+
+  /** @return the number of cached (or loading) results */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /** @return the current time in milliseconds, can be overridden by tests */
+  protected long now() {
+    return System.currentTimeMillis();
+  }
+
+  private void remove(final Entry entry) {
+    // only remove the entry if it hasn't already been replaced by a newer load
+    if (entry != null && entries.get(entry.key) == entry) {
+      entries.remove(entry.key);
+      untag(entry);
+    }
+  }
+
+  private void tag(final Entry entry) {
+    for (final String tag : entry.tags) {
+      Set<Object> keys = keysByTag.get(tag);
+      if (keys == null) {
+        keys = new HashSet<Object>();
+        keysByTag.put(tag, keys);
+      }
+      keys.add(entry.key);
+    }
+  }
+
+  private void untag(final Entry entry) {
+    for (final String tag : entry.tags) {
+      final Set<Object> keys = keysByTag.get(tag);
+      if (keys != null) {
+        keys.remove(entry.key);
+        if (keys.isEmpty()) {
+          keysByTag.remove(tag);
+        }
+      }
+    }
+  }
+
+  private static RuntimeException unwrap(final Throwable t) {
+    if (t instanceof RuntimeException) {
+      return (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    }
+    return new IllegalStateException(t);
+  }
+
+  /** A cached, or in-flight, result. */
+  private static class Entry {
+    private final Object key;
+    private final Collection<String> tags;
+    private final FutureTask<Result> task;
+    // stays valid while loading, the loading thread sets the real expiration once done
+    private volatile long expires = Long.MAX_VALUE;
+
+    private Entry(final Object key, final Collection<String> tags, final Loader<? extends Result> loader) {
+      this.key = key;
+      this.tags = tags == null ? new HashSet<String>() : new HashSet<String>(tags);
+      task = new FutureTask<Result>(new Callable<Result>() {
+        public Result call() {
+          return loader.load();
+        }
+      });
+    }
+  }
+
+}
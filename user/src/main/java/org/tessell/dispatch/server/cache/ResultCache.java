@@ -0,0 +1,35 @@
+package org.tessell.dispatch.server.cache;
+
+import java.util.Collection;
+
+import org.tessell.dispatch.server.handlers.CacheableActionHandler;
+import org.tessell.dispatch.shared.Result;
+
+/**
+ * SPI for caching the results of {@link CacheableActionHandler}s.
+ *
+ * Implementations must be thread-safe, and should ensure concurrent calls
+ * for the same key share a single {@link Loader#load()} invocation.
+ */
+public interface ResultCache {
+
+  /** Loads a result on a cache miss. */
+  interface Loader<R extends Result> {
+    R load();
+  }
+
+  /**
+   * @return the cached result for {@code key}, calling {@code loader} if it is missing or expired
+   * @param key the cache key, must implement {@code equals}/{@code hashCode}
+   * @param ttl how long, in milliseconds, the loaded result stays valid
+   * @param tags tags to associate with the loaded result for later invalidation
+   */
+  <R extends Result> R get(Object key, long ttl, Collection<String> tags, Loader<R> loader);
+
+  /** Evicts all results associated with {@code tag}. */
+  void invalidate(String tag);
+
+  /** Evicts all results. */
+  void clear();
+
+}
@@ -1,23 +1,99 @@
 package org.tessell.dispatch.server.handlers;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.tessell.dispatch.shared.Action;
 import org.tessell.dispatch.shared.Result;
 
-/** Keeps a map of {@link Action} class to {@link ActionHandler} instance. */
+/**
+ * Keeps a map of {@link Action} class to {@link ActionHandler} instance.
+ *
+ * Actions without a handler of their own are resolved against handlers registered for
+ * their superclasses (nearest first) and then their interfaces (breadth-first).
+ *
+ * Resolutions are memoized per action class, so the hierarchy is only walked once. Handlers
+ * can be added and removed at any time, which invalidates the memoized resolutions.
+ */
 public class ActionHandlerRegistry {
 
-  private final Map<Class<?>, ActionHandler<?, ?>> handlers = new HashMap<Class<?>, ActionHandler<?, ?>>(100);
+  private final ConcurrentMap<Class<?>, ActionHandler<?, ?>> handlers = new ConcurrentHashMap<Class<?>, ActionHandler<?, ?>>(100);
+  private final ConcurrentMap<Class<?>, Resolution> resolutions = new ConcurrentHashMap<Class<?>, Resolution>(100);
+  private final AtomicInteger generation = new AtomicInteger();
 
   @SuppressWarnings("unchecked")
   public <A extends Action<R>, R extends Result> ActionHandler<A, R> findHandler(final A action) {
-    return (ActionHandler<A, R>) handlers.get(action.getClass());
+    final Class<?> type = action.getClass();
+    Resolution r = resolutions.get(type);
+    if (r == null || r.generation != generation.get()) {
+      // read the generation before resolving, so a concurrent add/remove makes us stale instead of wrong
+      final int current = generation.get();
+      r = new Resolution(current, resolve(type));
+      resolutions.put(type, r);
+    }
+    return (ActionHandler<A, R>) r.handler;
   }
 
   public void addHandler(final ActionHandler<?, ?> handler) {
     handlers.put(handler.getActionType(), handler);
+    invalidate();
+  }
+
+  /** Removes {@code handler}, if it is still registered for its action type. */
+  public void removeHandler(final ActionHandler<?, ?> handler) {
+    if (handlers.remove(handler.getActionType(), handler)) {
+      invalidate();
+    }
+  }
+
+  private void invalidate() {
+    generation.incrementAndGet();
+    resolutions.clear();
+  }
+
+  private ActionHandler<?, ?> resolve(final Class<?> type) {
+    // most specific class first
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      final ActionHandler<?, ?> handler = handlers.get(c);
+      if (handler != null) {
+        return handler;
+      }
+    }
+    // then interfaces, breadth-first
+    final Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      Collections.addAll(interfaces, c.getInterfaces());
+    }
+    final List<Class<?>> queue = new ArrayList<Class<?>>(interfaces);
+    for (int i = 0; i < queue.size(); i++) {
+      final ActionHandler<?, ?> handler = handlers.get(queue.get(i));
+      if (handler != null) {
+        return handler;
+      }
+      for (final Class<?> parent : queue.get(i).getInterfaces()) {
+        if (interfaces.add(parent)) {
+          queue.add(parent);
+        }
+      }
+    }
+    return null;
+  }
+
+  /** A memoized lookup, including misses, for a given registry generation. */
+  private static class Resolution {
+    private final int generation;
+    private final ActionHandler<?, ?> handler;
+
+    private Resolution(final int generation, final ActionHandler<?, ?> handler) {
+      this.generation = generation;
+      this.handler = handler;
+    }
   }
 
 }
@@ -0,0 +1,23 @@
+package org.tessell.dispatch.server.handlers;
+
+import org.tessell.dispatch.server.ExecutionContext;
+import org.tessell.dispatch.server.servlet.AbstractAsyncDispatchServiceServlet;
+import org.tessell.dispatch.shared.Action;
+import org.tessell.dispatch.shared.Result;
+
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+/**
+ * An {@link ActionHandler} for long-running actions that completes {@code callback} when done,
+ * e.g. from a separate work queue, instead of holding a thread for the duration.
+ *
+ * When served by an {@link AbstractAsyncDispatchServiceServlet}, the container thread is
+ * released while the action runs. The synchronous {@link #execute(Action, ExecutionContext)}
+ * is still used by non-async servlets.
+ */
+public interface AsyncActionHandler<A extends Action<R>, R extends Result> extends ActionHandler<A, R> {
+
+  /** Handles the specified action, eventually calling either {@code onSuccess} or {@code onFailure} on {@code callback}. */
+  void executeAsync(A action, ExecutionContext context, AsyncCallback<R> callback);
+
+}
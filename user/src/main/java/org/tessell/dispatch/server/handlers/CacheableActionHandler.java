@@ -0,0 +1,30 @@
+package org.tessell.dispatch.server.handlers;
+
+import java.util.Collection;
+
+import org.tessell.dispatch.server.ExecutionContext;
+import org.tessell.dispatch.server.cache.ResultCache;
+import org.tessell.dispatch.shared.Action;
+import org.tessell.dispatch.shared.Result;
+
+/**
+ * An {@link ActionHandler} for idempotent, read-only actions whose results can be
+ * shared across identical requests via a {@link ResultCache}.
+ */
+public interface CacheableActionHandler<A extends Action<R>, R extends Result> extends ActionHandler<A, R> {
+
+  /**
+   * @return the key to cache {@code action}'s result under, or {@code null} to skip caching.
+   *
+   * Generated actions implement {@code equals}/{@code hashCode}, so returning {@code action} itself
+   * is usually enough, unless the result also depends on {@code context} (e.g. the current user).
+   */
+  Object getCacheKey(A action, ExecutionContext context);
+
+  /** @return how long, in milliseconds, a cached result stays valid */
+  long getCacheTtl();
+
+  /** @return the tags the cached result should be evicted by, may be empty */
+  Collection<String> getCacheTags(A action);
+
+}
@@ -0,0 +1,15 @@
+package org.tessell.dispatch.server.handlers;
+
+import java.util.Collection;
+
+import org.tessell.dispatch.server.cache.ResultCache;
+import org.tessell.dispatch.shared.Action;
+import org.tessell.dispatch.shared.Result;
+
+/** An {@link ActionHandler} for mutating actions that evicts tagged results from the {@link ResultCache}. */
+public interface InvalidatingActionHandler<A extends Action<R>, R extends Result> extends ActionHandler<A, R> {
+
+  /** @return the tags to evict after {@code action} has successfully executed */
+  Collection<String> getInvalidatedTags(A action);
+
+}
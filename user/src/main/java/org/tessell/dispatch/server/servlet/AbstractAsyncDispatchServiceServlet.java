@@ -0,0 +1,302 @@
+package org.tessell.dispatch.server.servlet;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.tessell.dispatch.server.ActionDispatch;
+import org.tessell.dispatch.server.AsyncActionDispatch;
+import org.tessell.dispatch.server.ExecutionContext;
+import org.tessell.dispatch.server.handlers.AsyncActionHandler;
+import org.tessell.dispatch.shared.Action;
+import org.tessell.dispatch.shared.ActionException;
+import org.tessell.dispatch.shared.Result;
+
+import com.google.gwt.user.client.rpc.AsyncCallback;
+import com.google.gwt.user.client.rpc.IncompatibleRemoteServiceException;
+import com.google.gwt.user.client.rpc.RpcRequestBuilder;
+import com.google.gwt.user.client.rpc.SerializationException;
+import com.google.gwt.user.server.rpc.RPC;
+import com.google.gwt.user.server.rpc.RPCRequest;
+import com.google.gwt.user.server.rpc.RPCServletUtils;
+import com.google.gwt.user.server.rpc.SerializationPolicy;
+import com.google.gwt.user.server.rpc.SerializationPolicyProvider;
+
+/**
+ * A {@link AbstractDispatchServiceServlet} that uses Servlet 3 async requests to release the
+ * container thread while actions execute.
+ *
+ * Actions are executed on a bounded executor (see {@link #getExecutorThreads()} and
+ * {@link #getExecutorQueueSize()}), and {@link AsyncActionHandler}s don't hold even those
+ * threads while they run. Requests that don't complete within {@link #getAsyncTimeout()} fail
+ * with {@link #timedOut(Action)}.
+ *
+ * The servlet must be mapped with {@code <async-supported>true</async-supported>}, otherwise
+ * requests fall back to the synchronous {@link AbstractDispatchServiceServlet} behavior.
+ */
+public abstract class AbstractAsyncDispatchServiceServlet extends AbstractDispatchServiceServlet {
+
+  private static final long serialVersionUID = 1L;
+  private final ConcurrentMap<String, SerializationPolicy> policies = new ConcurrentHashMap<String, SerializationPolicy>();
+  private transient ExecutorService executor;
+
+  @Override
+  public void init(final ServletConfig config) throws ServletException {
+    super.init(config);
+    executor = createExecutor();
+  }
+
+  @Override
+  public void destroy() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    super.destroy();
+  }
+
+  @Override
+  protected void service(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
+    if (!"POST".equals(request.getMethod()) || !request.isAsyncSupported()) {
+      super.service(request, response);
+      return;
+    }
+    if (request.getHeader(RpcRequestBuilder.STRONG_NAME_HEADER) == null) {
+      // checkPermutationStrongName relies on thread-locals that are not set for async requests, so check ourselves
+      final SecurityException se = new SecurityException("Blocked request without GWT permutation header (XSRF attack?)");
+      log(se.getMessage(), se);
+      RPCServletUtils.writeResponseForUnexpectedFailure(getServletContext(), response, se);
+      return;
+    }
+    final RPCRequest rpcRequest;
+    try {
+      final String payload = readContent(request);
+      onBeforeRequestDeserialized(payload);
+      rpcRequest = RPC.decodeRequest(payload, getClass(), new PolicyProvider(request));
+      onAfterRequestDeserialized(rpcRequest);
+    } catch (final IncompatibleRemoteServiceException e) {
+      log("An IncompatibleRemoteServiceException was thrown while processing this call.", e);
+      write(request, response, encodeFailure(null, e));
+      return;
+    } catch (final SerializationException e) {
+      log("Exception while dispatching incoming RPC call", e);
+      RPCServletUtils.writeResponseForUnexpectedFailure(getServletContext(), response, e);
+      return;
+    }
+    dispatch(request, response, rpcRequest);
+  }
+
+  /** Starts the async request and hands the decoded {@code rpcRequest} to the executor. */
+  void dispatch(final HttpServletRequest request, final HttpServletResponse response, final RPCRequest rpcRequest) {
+    final Object[] params = rpcRequest.getParameters();
+    final String sessionId = (String) params[0];
+    final Action<?> action = (Action<?>) params[1];
+    // executeVersioned has the client's known version as a third parameter
+    final String knownVersion = params.length > 2 ? (String) params[2] : null;
+    final AsyncContext async = request.startAsync(request, response);
+    async.setTimeout(getAsyncTimeout());
+    final Completion completion = new Completion(rpcRequest, async, action, knownVersion);
+    async.addListener(completion);
+    try {
+      executor.execute(new Runnable() {
+        public void run() {
+          execute(sessionId, action, completion);
+        }
+      });
+    } catch (final RuntimeException re) {
+      // most likely a RejectedExecutionException from the queue being full
+      completion.onFailure(re);
+    }
+  }
+
+  /** @return how long, in milliseconds, an action can run before its request fails, defaults to 30 seconds */
+  protected long getAsyncTimeout() {
+    return 30 * 1000;
+  }
+
+  /** @return the number of threads that execute actions, defaults to 10 */
+  protected int getExecutorThreads() {
+    return 10;
+  }
+
+  /** @return the number of actions that can wait for an executor thread before being rejected, defaults to 100 */
+  protected int getExecutorQueueSize() {
+    return 100;
+  }
+
+  /** Allows subclasses to provide their own executor, the default is bounded by the {@code getExecutor*} settings. */
+  protected ExecutorService createExecutor() {
+    final AtomicInteger count = new AtomicInteger();
+    return new ThreadPoolExecutor(
+      getExecutorThreads(),
+      getExecutorThreads(),
+      60,
+      TimeUnit.SECONDS,
+      new ArrayBlockingQueue<Runnable>(getExecutorQueueSize()),
+      new ThreadFactory() {
+        public Thread newThread(final Runnable r) {
+          final Thread t = new Thread(r, getServletName() + "-dispatch-" + count.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        }
+      });
+  }
+
+  /** Allows subclasses to create their own timeout subclasses of {@link ActionException}. */
+  protected ActionException timedOut(final Action<?> action) {
+    return new ActionException("The server timed out.");
+  }
+
+  @SuppressWarnings("unchecked")
+  private void execute(final String sessionId, final Action<?> action, final Completion completion) {
+    final ActionDispatch d = getActionDispatch();
+    if (d == null) {
+      completion.onFailure(new IllegalStateException("Null ActionDispatch, ensure the server started correctly"));
+      return;
+    }
+    try {
+      final ExecutionContext context = completion.newContext();
+      checkSession(d, sessionId, action, context);
+      if (d instanceof AsyncActionDispatch) {
+        ((AsyncActionDispatch) d).executeAsync((Action) action, context, completion);
+      } else {
+        completion.onSuccess(d.execute((Action) action, context));
+      }
+    } catch (final Exception e) {
+      completion.onFailure(e);
+    }
+  }
+
+  private String encodeFailure(final RPCRequest rpcRequest, final Throwable t) {
+    try {
+      if (rpcRequest == null) {
+        return RPC.encodeResponseForFailure(null, t);
+      }
+      return RPC.encodeResponseForFailure(rpcRequest.getMethod(), t, rpcRequest.getSerializationPolicy(), rpcRequest.getFlags());
+    } catch (final SerializationException se) {
+      throw new IllegalStateException(se);
+    }
+  }
+
+  private void write(final HttpServletRequest request, final HttpServletResponse response, final String payload) throws IOException {
+    onAfterResponseSerialized(payload);
+    RPCServletUtils.writeResponse(getServletContext(), response, payload, shouldCompressResponse(request, response, payload));
+  }
+
+  /** Completes the async request exactly once, whether by result, failure, or timeout. */
+  private class Completion implements AsyncCallback<Result>, AsyncListener {
+    private final RPCRequest rpcRequest;
+    private final AsyncContext async;
+    private final Action<?> action;
+    private final String knownVersion;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private Completion(final RPCRequest rpcRequest, final AsyncContext async, final Action<?> action, final String knownVersion) {
+      this.rpcRequest = rpcRequest;
+      this.async = async;
+      this.action = action;
+      this.knownVersion = knownVersion;
+    }
+
+    private ExecutionContext newContext() {
+      return new ExecutionContext((HttpServletRequest) async.getRequest(), (HttpServletResponse) async.getResponse());
+    }
+
+    @Override
+    public void onSuccess(final Result result) {
+      if (done.compareAndSet(false, true)) {
+        String payload;
+        try {
+          // even without a known version, so the client's next executeVersioned can get a delta
+          final Result response = getResultVersions().respond(action, result, knownVersion);
+          payload = RPC.encodeResponseForSuccess(rpcRequest.getMethod(), response, rpcRequest.getSerializationPolicy(), rpcRequest.getFlags());
+        } catch (final Exception e) {
+          payload = encodeFailure(rpcRequest, toActionException(e));
+        }
+        complete(payload);
+      }
+    }
+
+    @Override
+    public void onFailure(final Throwable caught) {
+      if (done.compareAndSet(false, true)) {
+        complete(encodeFailure(rpcRequest, toActionException(caught)));
+      }
+    }
+
+    @Override
+    public void onTimeout(final AsyncEvent event) {
+      if (done.compareAndSet(false, true)) {
+        complete(encodeFailure(rpcRequest, timedOut(action)));
+      }
+    }
+
+    @Override
+    public void onError(final AsyncEvent event) {
+      if (done.compareAndSet(false, true)) {
+        logActionFailure(new IllegalStateException("Async request failed for " + action, event.getThrowable()));
+        // the response is probably unusable, so don't write to it, but still release the request
+        async.complete();
+      }
+    }
+
+    @Override
+    public void onComplete(final AsyncEvent event) {
+    }
+
+    @Override
+    public void onStartAsync(final AsyncEvent event) {
+    }
+
+    private void complete(final String payload) {
+      try {
+        write((HttpServletRequest) async.getRequest(), (HttpServletResponse) async.getResponse(), payload);
+      } catch (final IOException io) {
+        log("Error writing response for " + action, io);
+      } finally {
+        async.complete();
+      }
+    }
+  }
+
+  /**
+   * Looks up serialization policies against the current request, as the servlet's own
+   * provider relies on thread-locals that are not set for async requests.
+   */
+  private class PolicyProvider implements SerializationPolicyProvider {
+    private final HttpServletRequest request;
+
+    private PolicyProvider(final HttpServletRequest request) {
+      this.request = request;
+    }
+
+    @Override
+    public SerializationPolicy getSerializationPolicy(final String moduleBaseURL, final String strongName) {
+      final String key = moduleBaseURL + strongName;
+      SerializationPolicy policy = policies.get(key);
+      if (policy == null) {
+        policy = doGetSerializationPolicy(request, moduleBaseURL, strongName);
+        if (policy == null) {
+          policy = RPC.getDefaultSerializationPolicy();
+        }
+        policies.putIfAbsent(key, policy);
+      }
+      return policy;
+    }
+  }
+
+}
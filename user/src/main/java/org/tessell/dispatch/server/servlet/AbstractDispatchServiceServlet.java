@@ -4,9 +4,11 @@ import javax.servlet.GenericServlet;
 
 import org.tessell.dispatch.server.ActionDispatch;
 import org.tessell.dispatch.server.ExecutionContext;
+import org.tessell.dispatch.server.ResultVersions;
 import org.tessell.dispatch.server.SessionIdValidator;
 import org.tessell.dispatch.shared.Action;
 import org.tessell.dispatch.shared.ActionException;
+import org.tessell.dispatch.shared.DeltaResult;
 import org.tessell.dispatch.shared.DispatchService;
 import org.tessell.dispatch.shared.Result;
 
@@ -19,31 +21,59 @@ import com.google.gwt.user.server.rpc.RemoteServiceServlet;
 public abstract class AbstractDispatchServiceServlet extends RemoteServiceServlet implements DispatchService {
 
   private static final long serialVersionUID = 1L;
+  private final transient ResultVersions resultVersions = new ResultVersions(1000);
 
   @Override
   public Result execute(final String sessionId, final Action<?> action) throws ActionException {
+    // remember any versioned result, so the client's next executeVersioned can get a delta
+    return getResultVersions().respond(action, dispatch(sessionId, action), null);
+  }
+
+  @Override
+  public Result executeVersioned(final String sessionId, final Action<?> action, final String knownVersion) throws ActionException {
+    return getResultVersions().respond(action, dispatch(sessionId, action), knownVersion);
+  }
+
+  private Result dispatch(final String sessionId, final Action<?> action) throws ActionException {
     ActionDispatch d = getActionDispatch();
     if (d == null) {
       throw new IllegalStateException("Null ActionDispatch, ensure the server started correctly");
     }
     try {
       final ExecutionContext context = new ExecutionContext(getThreadLocalRequest(), getThreadLocalResponse());
-      if (getSessionValidator() != null && !d.skipCSRFCheck(action)) {
-        String secureSessionId = getSessionValidator().get(context);
-        if (secureSessionId == null || !secureSessionId.equals(sessionId)) {
-          throw invalidSession(context);
-        }
-      }
+      checkSession(d, sessionId, action, context);
       return d.execute(action, context);
-    } catch (final ActionException ae) {
-      // assume the user has already logged the ActionException appropriately
-      throw ae;
     } catch (final Exception e) {
-      logActionFailure(e);
-      throw wrapInActionException(e);
+      throw toActionException(e);
     }
   }
 
+  /** Ensures {@code sessionId} matches the {@link SessionIdValidator}'s, unless {@code action} skips the CSRF check. */
+  protected void checkSession(ActionDispatch d, String sessionId, Action<?> action, ExecutionContext context) throws Exception {
+    if (getSessionValidator() != null && !d.skipCSRFCheck(action)) {
+      String secureSessionId = getSessionValidator().get(context);
+      if (secureSessionId == null || !secureSessionId.equals(sessionId)) {
+        throw invalidSession(context);
+      }
+    }
+  }
+
+  /** @return {@code t} as-is if already an {@link ActionException}, otherwise logs and wraps it */
+  protected ActionException toActionException(Throwable t) {
+    if (t instanceof ActionException) {
+      // assume the user has already logged the ActionException appropriately
+      return (ActionException) t;
+    }
+    final Exception e = t instanceof Exception ? (Exception) t : new RuntimeException(t);
+    logActionFailure(e);
+    return wrapInActionException(e);
+  }
+
+  /** @return the {@link ResultVersions} used to compute {@link DeltaResult}s */
+  protected ResultVersions getResultVersions() {
+    return resultVersions;
+  }
+
   /** Allows subclasses to override exception logging. By default uses {@link GenericServlet#log}. */
   protected void logActionFailure(Exception e) {
     log(e.getMessage(), e);
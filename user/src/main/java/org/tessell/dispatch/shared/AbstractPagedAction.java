@@ -0,0 +1,10 @@
+package org.tessell.dispatch.shared;
+
+/**
+ * A base class for {@code GenDispatch} specs to use as their {@code baseAction}.
+ *
+ * The generated getters for the spec's {@code cursor} and {@code pageSize}
+ * in-params will implement {@link PagedAction}.
+ */
+public abstract class AbstractPagedAction<R extends PagedResult<?>> implements PagedAction<R> {
+}
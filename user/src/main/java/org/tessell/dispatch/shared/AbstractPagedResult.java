@@ -0,0 +1,10 @@
+package org.tessell.dispatch.shared;
+
+/**
+ * A base class for {@code GenDispatch} specs to use as their {@code baseResult}.
+ *
+ * The generated getters for the spec's {@code items} and {@code nextCursor}
+ * out-params will implement {@link PagedResult}.
+ */
+public abstract class AbstractPagedResult<E> implements PagedResult<E> {
+}
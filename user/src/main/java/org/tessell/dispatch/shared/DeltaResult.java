@@ -0,0 +1,41 @@
+package org.tessell.dispatch.shared;
+
+import java.util.ArrayList;
+
+/**
+ * Returned by {@link DispatchService#executeVersioned} with only the entries that
+ * changed since the client's version of a {@link VersionedListResult}.
+ */
+public class DeltaResult implements Result {
+
+  private String version;
+  private ArrayList<Keyed> upserted;
+  private ArrayList<String> order;
+
+  protected DeltaResult() {
+  }
+
+  /**
+   * @param version the new version
+   * @param upserted the entries that were added or changed
+   * @param order the keys of all entries in their new order, or {@code null} if unchanged
+   */
+  public DeltaResult(final String version, final ArrayList<Keyed> upserted, final ArrayList<String> order) {
+    this.version = version;
+    this.upserted = upserted;
+    this.order = order;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  public ArrayList<Keyed> getUpserted() {
+    return upserted;
+  }
+
+  public ArrayList<String> getOrder() {
+    return order;
+  }
+
+}
@@ -16,4 +16,11 @@ public interface DispatchService extends RemoteService {
 
   Result execute(String sessionId, Action<?> action) throws ActionException;
 
+  /**
+   * Executes {@code action} for a client that already has {@code knownVersion} of its {@link VersionedListResult}.
+   *
+   * @return a {@link NotModifiedResult}, a {@link DeltaResult} against {@code knownVersion}, or the full result
+   */
+  Result executeVersioned(String sessionId, Action<?> action, String knownVersion) throws ActionException;
+
 }
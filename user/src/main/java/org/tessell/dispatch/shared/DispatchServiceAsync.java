@@ -7,4 +7,6 @@ public interface DispatchServiceAsync {
 
   void execute(String sessionId, Action<?> action, AsyncCallback<Result> callback);
 
+  void executeVersioned(String sessionId, Action<?> action, String knownVersion, AsyncCallback<Result> callback);
+
 }
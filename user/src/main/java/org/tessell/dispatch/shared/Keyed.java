@@ -0,0 +1,11 @@
+package org.tessell.dispatch.shared;
+
+import com.google.gwt.user.client.rpc.IsSerializable;
+
+/** An entry in a {@link VersionedListResult}, identified by a stable key across versions. */
+public interface Keyed extends IsSerializable {
+
+  /** @return the entry's identity, e.g. its database id */
+  String getKey();
+
+}
@@ -0,0 +1,5 @@
+package org.tessell.dispatch.shared;
+
+/** Returned by {@link DispatchService#executeVersioned} when the client's version is still current. */
+public class NotModifiedResult implements Result {
+}
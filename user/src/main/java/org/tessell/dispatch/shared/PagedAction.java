@@ -0,0 +1,21 @@
+package org.tessell.dispatch.shared;
+
+/**
+ * An {@link Action} that fetches one page of a potentially large list.
+ *
+ * Pages are identified by opaque cursors: {@code null} for the first page, and
+ * thereafter the {@link PagedResult#getNextCursor()} of the previous page.
+ *
+ * With {@code GenDispatch}, specs can get this by declaring {@code cursor}
+ * and {@code pageSize} in-params and a {@code baseAction} that implements this
+ * interface, e.g. {@link AbstractPagedAction}.
+ */
+public interface PagedAction<R extends PagedResult<?>> extends Action<R> {
+
+  /** @return the cursor of the page to fetch, or {@code null} for the first page */
+  String getCursor();
+
+  /** @return the maximum number of items to return */
+  int getPageSize();
+
+}
@@ -0,0 +1,14 @@
+package org.tessell.dispatch.shared;
+
+import java.util.ArrayList;
+
+/** The {@link Result} of a {@link PagedAction}. */
+public interface PagedResult<E> extends Result {
+
+  /** @return the items in this page */
+  ArrayList<E> getItems();
+
+  /** @return the cursor of the next page, or {@code null} if this is the last page */
+  String getNextCursor();
+
+}
@@ -0,0 +1,101 @@
+package org.tessell.dispatch.shared;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.tessell.dispatch.client.DefaultDispatchAsync;
+
+/**
+ * A base {@link Result} for lists that are periodically re-fetched.
+ *
+ * The client remembers the last version of each action's result, and the server
+ * replies with either a {@link NotModifiedResult} or a {@link DeltaResult}, which
+ * {@link DefaultDispatchAsync} applies to the remembered result before invoking callbacks.
+ *
+ * Handlers must set a version that changes whenever the entries do, e.g. a row version or a
+ * digest of the entries' content; results without a version are always sent in full.
+ *
+ * With {@code GenDispatch}, use a {@code baseResult} of {@code VersionedListResult<YourDto>}
+ * and have the handler call {@link #setEntries(ArrayList)} and {@link #setVersion(String)}.
+ */
+public abstract class VersionedListResult<E extends Keyed> implements Result {
+
+  private String version;
+  private ArrayList<E> entries = new ArrayList<E>();
+
+  /** @return the entries, a new list is used for each version so old references are not changed */
+  public ArrayList<E> getEntries() {
+    return entries;
+  }
+
+  public void setEntries(final ArrayList<E> entries) {
+    this.entries = entries;
+  }
+
+  /**
+   * @return the version, or {@code null} to opt out of not-modified/delta responses
+   *
+   * The version must identify the entries' content, as the server shares snapshots of each
+   * version across clients.
+   */
+  public String getVersion() {
+    return version;
+  }
+
+  public void setVersion(final String version) {
+    this.version = version;
+  }
+
+  /** @return a copy of this result with {@code delta} applied, leaving this result unchanged */
+  public VersionedListResult<E> copyWith(final DeltaResult delta) {
+    final VersionedListResult<E> copy = newCopy();
+    copy.entries = entries;
+    copy.version = version;
+    copy.apply(delta);
+    return copy;
+  }
+
+  /**
+   * @return a new instance of this class with the same fields, other than the entries and version
+   *
+   * {@code GenDispatch} generates this for results with a {@code VersionedListResult} base class.
+   */
+  protected abstract VersionedListResult<E> newCopy();
+
+  /**
+   * Updates our entries and version to match {@code delta}.
+   *
+   * @throws IllegalStateException if {@code delta} doesn't match our entries, e.g. it was against another result
+   */
+  @SuppressWarnings("unchecked")
+  public void apply(final DeltaResult delta) {
+    final Map<String, E> byKey = new HashMap<String, E>();
+    for (final E entry : entries) {
+      byKey.put(entry.getKey(), entry);
+    }
+    for (final Keyed entry : delta.getUpserted()) {
+      if (byKey.put(entry.getKey(), (E) entry) == null && delta.getOrder() == null) {
+        // an added entry without a new order means the delta wasn't against our entries
+        throw new IllegalStateException("Delta to " + delta.getVersion() + " has unknown key " + entry.getKey());
+      }
+    }
+    final ArrayList<E> updated = new ArrayList<E>();
+    if (delta.getOrder() == null) {
+      for (final E entry : entries) {
+        updated.add(byKey.get(entry.getKey()));
+      }
+    } else {
+      for (final String key : delta.getOrder()) {
+        final E entry = byKey.get(key);
+        if (entry == null) {
+          throw new IllegalStateException("Delta to " + delta.getVersion() + " has unknown key " + key);
+        }
+        updated.add(entry);
+      }
+    }
+    entries = updated;
+    version = delta.getVersion();
+  }
+
+}
@@ -7,7 +7,10 @@ import org.tessell.dispatch.client.util.OutstandingDispatchAsync;
 import org.tessell.dispatch.shared.Action;
 import org.tessell.dispatch.shared.Result;
 import org.tessell.model.properties.BooleanProperty;
+import org.tessell.model.properties.UndoLog;
 
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 import com.google.gwt.user.client.rpc.AsyncCallback;
 
 /**
@@ -18,6 +21,21 @@ import com.google.gwt.user.client.rpc.AsyncCallback;
  * waiting for a result.
  *
  * This allows conditional action on the command's activeness, e.g. disabling buttons.
+ *
+ * Commands that may fire rapidly, e.g. search-as-you-type or autosave, can opt in to
+ * execution policies:
+ *
+ * <ul>
+ * <li>{@link #setDebounce(int)} waits until executions stop for a while before sending the latest action,</li>
+ * <li>{@link #setThrottle(int)} sends at most one action per period, plus a trailing one for the latest action,</li>
+ * <li>{@link #setDropWhileActive(boolean)} ignores executions while an action is outstanding, and</li>
+ * <li>{@link #setLatestWins(boolean)} ignores results (and failures) of superseded actions.</li>
+ * </ul>
+ *
+ * Delays use the GWT {@link Scheduler}, so tests can use {@code StubScheduler.advance}.
+ *
+ * Commands can also update the model optimistically, before the server responds, by overriding
+ * {@link #applyOptimistically(Action, UndoLog)}; if the action fails, the changes are rolled back.
  */
 public abstract class DispatchUiCommand<A extends Action<R>, R extends Result> extends UiCommand implements HasActive {
 
@@ -26,6 +44,14 @@ public abstract class DispatchUiCommand<A extends Action<R>, R extends Result> e
   private int highestActionIndex;
   private int highestResultIndex;
   private int currentActionIndex;
+  private int debounce;
+  private int throttle;
+  private boolean dropWhileActive;
+  private boolean latestWins;
+  // the latest action waiting on a debounce or throttle delay
+  private A pending;
+  private int pendingIndex;
+  private boolean throttling;
   protected R result;
 
   public DispatchUiCommand(OutstandingDispatchAsync async) {
@@ -38,32 +64,41 @@ public abstract class DispatchUiCommand<A extends Action<R>, R extends Result> e
   }
 
   protected final void doExecute(final A action) {
-    if (action != null) {
-      active.set(true);
-      final int thisActionIndex = ++highestActionIndex;
-      // It would be nice to use a SuccessCallback, but we need to know
-      // when the failure happened to toggle active back to false
-      async.execute(action, new AsyncCallback<R>() {
-        public void onSuccess(R r) {
-          highestResultIndex = Math.max(highestResultIndex, thisActionIndex);
-          currentActionIndex = thisActionIndex;
-          result = r;
-          if (thisActionIndex == highestActionIndex) {
-            active.set(false);
+    if (action == null || (dropWhileActive && active.isTrue())) {
+      return;
+    }
+    if (debounce > 0) {
+      pending = action;
+      final int thisPendingIndex = ++pendingIndex;
+      Scheduler.get().scheduleFixedDelay(new RepeatingCommand() {
+        public boolean execute() {
+          // only the last execution within the delay is sent
+          if (thisPendingIndex == pendingIndex) {
+            sendPending();
           }
-          onResult();
+          return false;
         }
-
-        public void onFailure(Throwable caught) {
-          highestResultIndex = Math.max(highestResultIndex, thisActionIndex);
-          currentActionIndex = thisActionIndex;
-          result = null;
-          DispatchUiCommand.this.onFailure(caught);
-          if (thisActionIndex == highestActionIndex) {
-            active.set(false);
+      }, debounce);
+    } else if (throttle > 0) {
+      if (throttling) {
+        pending = action;
+        return;
+      }
+      throttling = true;
+      send(action);
+      Scheduler.get().scheduleFixedDelay(new RepeatingCommand() {
+        public boolean execute() {
+          // send the latest action from the last period, and keep throttling for another
+          if (pending != null) {
+            sendPending();
+            return true;
           }
+          throttling = false;
+          return false;
         }
-      });
+      }, throttle);
+    } else {
+      send(action);
     }
   }
 
@@ -72,9 +107,37 @@ public abstract class DispatchUiCommand<A extends Action<R>, R extends Result> e
     return active;
   }
 
+  /** Waits until executions have stopped for {@code millis} before sending the latest action, {@code 0} disables. */
+  public void setDebounce(final int millis) {
+    this.debounce = millis;
+  }
+
+  /** Sends at most one action every {@code millis}, plus a trailing send of the latest action, {@code 0} disables. */
+  public void setThrottle(final int millis) {
+    this.throttle = millis;
+  }
+
+  /** Ignores executions while an action is already outstanding. */
+  public void setDropWhileActive(final boolean dropWhileActive) {
+    this.dropWhileActive = dropWhileActive;
+  }
+
+  /** Ignores results and failures of actions that have been superseded by a newer action. */
+  public void setLatestWins(final boolean latestWins) {
+    this.latestWins = latestWins;
+  }
+
   /** Implemented by subclasses to create the action object. */
   protected abstract A createAction();
 
+  /**
+   * Allows subclasses to apply the expected outcome of {@code action} to the model right away.
+   *
+   * Changes should be made through {@code undo}, so that they're rolled back if the action fails.
+   */
+  protected void applyOptimistically(A action, UndoLog undo) {
+  }
+
   /** Implemented by subclasses to handle a successful result. */
   protected abstract void onResult();
 
@@ -83,6 +146,53 @@ public abstract class DispatchUiCommand<A extends Action<R>, R extends Result> e
     async.unhandledFailure(caught);
   }
 
+  private void sendPending() {
+    final A action = pending;
+    pending = null;
+    if (action != null && !(dropWhileActive && active.isTrue())) {
+      send(action);
+    }
+  }
+
+  private void send(final A action) {
+    final UndoLog undo = new UndoLog();
+    applyOptimistically(action, undo);
+    active.set(true);
+    final int thisActionIndex = ++highestActionIndex;
+    // It would be nice to use a SuccessCallback, but we need to know
+    // when the failure happened to toggle active back to false
+    async.execute(action, new AsyncCallback<R>() {
+      public void onSuccess(R r) {
+        undo.commit();
+        highestResultIndex = Math.max(highestResultIndex, thisActionIndex);
+        if (latestWins && thisActionIndex != highestActionIndex) {
+          return;
+        }
+        currentActionIndex = thisActionIndex;
+        result = r;
+        if (thisActionIndex == highestActionIndex) {
+          active.set(false);
+        }
+        onResult();
+      }
+
+      public void onFailure(Throwable caught) {
+        // roll back even stale actions, the undo log leaves alone anything changed since
+        undo.rollback();
+        highestResultIndex = Math.max(highestResultIndex, thisActionIndex);
+        if (latestWins && thisActionIndex != highestActionIndex) {
+          return;
+        }
+        currentActionIndex = thisActionIndex;
+        result = null;
+        DispatchUiCommand.this.onFailure(caught);
+        if (thisActionIndex == highestActionIndex) {
+          active.set(false);
+        }
+      }
+    });
+  }
+
   /** Allows subclasses to tell if the current action is stale. */
   protected boolean hasNewerActionBeenSent() {
     return currentActionIndex < highestActionIndex;
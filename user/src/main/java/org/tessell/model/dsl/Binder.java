@@ -2,14 +2,21 @@ package org.tessell.model.dsl;
 
 import static com.google.gwt.event.dom.client.KeyCodes.KEY_TAB;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.tessell.bus.AbstractBound;
 import org.tessell.model.commands.UiCommand;
 import org.tessell.model.events.HasMemberChangedHandlers;
 import org.tessell.model.properties.*;
 import org.tessell.model.validation.rules.Rule;
+import org.tessell.model.values.Value;
 
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.event.dom.client.*;
 import com.google.gwt.event.logical.shared.HasAttachHandlers;
 import com.google.gwt.event.logical.shared.HasValueChangeHandlers;
@@ -21,9 +28,22 @@ import com.google.gwt.user.client.ui.HasValue;
  * Provides a fluent interface for binding properties to widgets.
  * 
  * Very heavily influenced by gwt-pectin.
+ *
+ * By default widgets are updated synchronously on each property change. In
+ * {@link #setBatched(boolean) batched} mode, widget writes are instead recorded
+ * per target (last value wins) and applied once, via {@link Scheduler#scheduleFinally},
+ * so a model update that changes a property several times only touches the DOM once.
+ * Writes to model properties are never batched.
+ *
+ * While {@link #suspend() suspended}, the bindings stay in place, but widget writes are
+ * held until {@link #bind()} resumes us, so hidden views are only updated once, with the latest values.
  */
 public class Binder extends AbstractBound {
 
+  private final Map<WriteKey, Runnable> pendingWrites = new LinkedHashMap<WriteKey, Runnable>();
+  private boolean batched = false;
+  private boolean flushScheduled = false;
+
   /** @return a fluent {@link PropertyBinder} against {@code property}. */
   public <P> PropertyBinder<P> bind(Property<P> property) {
     return new PropertyBinder<P>(this, property);
@@ -220,6 +240,85 @@ public class Binder extends AbstractBound {
     }
   }
 
+  /** Turns batched widget writes on or off; turning it off applies any pending writes. */
+  public void setBatched(final boolean batched) {
+    this.batched = batched;
+    if (!batched) {
+      flush();
+    }
+  }
+
+  public boolean isBatched() {
+    return batched;
+  }
+
+  /** Applies any pending widget writes now, e.g. before reading layout from the DOM. */
+  public void flush() {
+    // writes can trigger events that queue more writes, so loop until we're done
+    while (!pendingWrites.isEmpty()) {
+      final List<Runnable> writes = new ArrayList<Runnable>(pendingWrites.values());
+      pendingWrites.clear();
+      for (final Runnable write : writes) {
+        write.run();
+      }
+    }
+  }
+
+  /** @return the number of widget writes waiting for the next flush */
+  public int getPendingWriteCount() {
+    return pendingWrites.size();
+  }
+
+  @Override
+  protected void onUnbind() {
+    flush();
+    super.onUnbind();
+  }
+
+  @Override
+  protected void onSuspend() {
+    flush();
+    super.onSuspend();
+  }
+
+  @Override
+  protected void onResume() {
+    super.onResume();
+    flush();
+  }
+
+  /**
+   * Writes {@code aspect} of {@code target}: immediately, at the end of the event loop in batched mode, or on resume while suspended.
+   *
+   * Callers should read whatever they need (model or widget values) before calling, so
+   * that reads happen while handling the event and DOM writes are grouped together.
+   */
+  void write(final Object target, final Object aspect, final Runnable write) {
+    if (target instanceof Value || (!batched && !isSuspended())) {
+      // model values aren't DOM writes, and other bindings may need them right away
+      write.run();
+      return;
+    }
+    pendingWrites.put(new WriteKey(target, aspect), write);
+    if (isSuspended()) {
+      return; // flushed when we're resumed
+    }
+    if (!flushScheduled) {
+      flushScheduled = true;
+      Scheduler.get().scheduleFinally(new ScheduledCommand() {
+        public void execute() {
+          try {
+            if (!isSuspended()) {
+              flush();
+            }
+          } finally {
+            flushScheduled = false;
+          }
+        }
+      });
+    }
+  }
+
   protected void add(HandlerRegistration registration) {
     super.registerHandler(registration);
   }
@@ -227,4 +326,30 @@ public class Binder extends AbstractBound {
   boolean canSetInitialValue(Property<?> property) {
     return !property.isReadOnly() && !property.isTouched() && property.get() == null;
   }
+
+  /** Identifies one aspect (value, style name, display, etc.) of a widget; widgets are compared by identity. */
+  private static final class WriteKey {
+    private final Object target;
+    private final Object aspect;
+
+    private WriteKey(final Object target, final Object aspect) {
+      this.target = target;
+      this.aspect = aspect;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (!(other instanceof WriteKey)) {
+        return false;
+      }
+      final WriteKey o = (WriteKey) other;
+      return target == o.target && aspect.equals(o.aspect);
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(target) * 31 + aspect.hashCode();
+    }
+  }
+
 }
@@ -0,0 +1,217 @@
+package org.tessell.model.dsl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.tessell.gwt.user.client.ui.IsInsertPanel;
+import org.tessell.gwt.user.client.ui.IsWidget;
+import org.tessell.model.dsl.ListPropertyBinder.ListKeyFunction;
+import org.tessell.util.ObjectUtils;
+
+/**
+ * Keeps a panel's rows in sync with a list, reusing the rows of items with the same key.
+ *
+ * Each time the list changes, the old and new keys are matched up (duplicate keys in order),
+ * and only the rows that aren't part of the longest increasing subsequence of old positions
+ * are moved, so the panel sees the minimum number of removes and inserts. Rows whose key
+ * matches but whose value is no longer {@code equals}, e.g. a new instance from the server,
+ * are kept and {@link #update(Object, Object) updated}, or recreated if they can't be.
+ *
+ * Appends and removes are applied one row at a time, via {@link #added(List, Object)} and
+ * {@link #removed(Object)}, and {@link #sync(List)} only falls back to a full reconcile
+ * if that didn't leave the rows matching the list, e.g. because it was replaced.
+ *
+ * The rows are assumed to be contiguous in the panel, which may have other widgets before or after them.
+ */
+abstract class KeyedRows<P, R> {
+
+  private final IsInsertPanel panel;
+  private final ListKeyFunction<P> keys;
+  private final ArrayList<Object> rowKeys = new ArrayList<Object>();
+  private final ArrayList<R> rows = new ArrayList<R>();
+  private final ArrayList<P> values = new ArrayList<P>();
+
+  KeyedRows(final IsInsertPanel panel, final ListKeyFunction<P> keys) {
+    this.panel = panel;
+    this.keys = keys;
+  }
+
+  /** @return a new row for {@code value} */
+  protected abstract R create(P value);
+
+  /** @return the view of {@code row} */
+  protected abstract IsWidget view(R row);
+
+  /** @return whether {@code row} was updated to show {@code value}, otherwise it's recreated */
+  protected boolean update(final R row, final P value) {
+    return false;
+  }
+
+  /** Called after {@code row} has been removed from the panel for good. */
+  protected void destroyed(final R row) {
+  }
+
+  /**
+   * Appends a row for {@code value} if it's the next value after our rows in {@code newValues}.
+   *
+   * @return false if {@code value} was added somewhere else, so a full reconcile is needed
+   */
+  boolean added(final List<P> newValues, final P value) {
+    final int i = rows.size();
+    if (newValues == null || i >= newValues.size() || newValues.get(i) != value) {
+      return false;
+    }
+    final int offset = offset();
+    final R row = create(value);
+    panel.insert(view(row), offset + i);
+    rows.add(row);
+    rowKeys.add(keys.key(value));
+    values.add(value);
+    return true;
+  }
+
+  /**
+   * Removes the row for the first value equal to {@code value}, like {@link List#remove(Object)}.
+   *
+   * @return false if we have no row for {@code value}, so a full reconcile is needed
+   */
+  boolean removed(final P value) {
+    final int i = values.indexOf(value);
+    if (i == -1) {
+      return false;
+    }
+    panel.remove(offset() + i);
+    destroyed(rows.remove(i));
+    rowKeys.remove(i);
+    values.remove(i);
+    return true;
+  }
+
+  /** Reconciles against {@code newValues} unless our rows already have the same values, in the same order. */
+  void sync(final List<P> newValues) {
+    final int size = newValues == null ? 0 : newValues.size();
+    boolean same = size == values.size();
+    for (int i = 0; same && i < size; i++) {
+      same = newValues.get(i) == values.get(i);
+    }
+    if (!same) {
+      reconcile(newValues);
+    }
+  }
+
+  void reconcile(final List<P> newValues) {
+    final int offset = offset();
+    final int oldSize = rows.size();
+    final int newSize = newValues == null ? 0 : newValues.size();
+
+    // chain old rows with the same key together, so duplicates are matched in order
+    final HashMap<Object, Integer> firstOld = new HashMap<Object, Integer>();
+    final int[] nextOld = new int[oldSize];
+    for (int i = oldSize - 1; i >= 0; i--) {
+      final Integer next = firstOld.put(rowKeys.get(i), i);
+      nextOld[i] = next == null ? -1 : next;
+    }
+
+    // find the old row, if any, for each new value
+    final Object[] newKeys = new Object[newSize];
+    final int[] sources = new int[newSize];
+    final boolean[] reused = new boolean[oldSize];
+    for (int j = 0; j < newSize; j++) {
+      newKeys[j] = keys.key(newValues.get(j));
+      final Integer old = firstOld.get(newKeys[j]);
+      sources[j] = -1;
+      if (old != null) {
+        if (nextOld[old] == -1) {
+          firstOld.remove(newKeys[j]);
+        } else {
+          firstOld.put(newKeys[j], nextOld[old]);
+        }
+        // a changed value has to be shown by either the old row or a new one
+        if (ObjectUtils.eq(values.get(old), newValues.get(j)) || update(rows.get(old), newValues.get(j))) {
+          sources[j] = old;
+          reused[old] = true;
+        }
+      }
+    }
+
+    // rows in the longest increasing run of old positions can stay where they are
+    final boolean[] stays = longestIncreasing(sources);
+    final boolean[] oldStays = new boolean[oldSize];
+    for (int j = 0; j < newSize; j++) {
+      if (stays[j]) {
+        oldStays[sources[j]] = true;
+      }
+    }
+
+    // remove deleted and moved rows, from the end so the indexes stay valid
+    for (int i = oldSize - 1; i >= 0; i--) {
+      if (!oldStays[i]) {
+        panel.remove(offset + i);
+        if (!reused[i]) {
+          destroyed(rows.get(i));
+        }
+      }
+    }
+
+    // now everything before index j is in place, so insert new and moved rows at j
+    final ArrayList<R> newRows = new ArrayList<R>(newSize);
+    for (int j = 0; j < newSize; j++) {
+      final R row = sources[j] == -1 ? create(newValues.get(j)) : rows.get(sources[j]);
+      if (!stays[j]) {
+        panel.insert(view(row), offset + j);
+      }
+      newRows.add(row);
+    }
+
+    rows.clear();
+    rows.addAll(newRows);
+    rowKeys.clear();
+    for (final Object key : newKeys) {
+      rowKeys.add(key);
+    }
+    values.clear();
+    if (newValues != null) {
+      values.addAll(newValues);
+    }
+  }
+
+  private int offset() {
+    return rows.isEmpty() ? panel.getWidgetCount() : panel.getWidgetIndex(view(rows.get(0)));
+  }
+
+  /** @return flags for the entries in the longest increasing subsequence of {@code sources}, ignoring -1s */
+  static boolean[] longestIncreasing(final int[] sources) {
+    final int n = sources.length;
+    // tails[k] is the index of the smallest tail of an increasing run of length k + 1
+    final int[] tails = new int[n];
+    final int[] previous = new int[n];
+    int length = 0;
+    for (int j = 0; j < n; j++) {
+      if (sources[j] == -1) {
+        continue;
+      }
+      int lo = 0;
+      int hi = length;
+      while (lo < hi) {
+        final int mid = (lo + hi) >>> 1;
+        if (sources[tails[mid]] < sources[j]) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      previous[j] = lo == 0 ? -1 : tails[lo - 1];
+      tails[lo] = j;
+      if (lo == length) {
+        length++;
+      }
+    }
+    final boolean[] flags = new boolean[n];
+    for (int j = length == 0 ? -1 : tails[length - 1]; j != -1; j = previous[j]) {
+      flags[j] = true;
+    }
+    return flags;
+  }
+
+}
@@ -4,8 +4,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.tessell.gwt.user.client.ui.IsInsertPanel;
 import org.tessell.gwt.user.client.ui.IsPanel;
 import org.tessell.gwt.user.client.ui.IsWidget;
+import org.tessell.model.events.PropertyChangedEvent;
+import org.tessell.model.events.PropertyChangedHandler;
 import org.tessell.model.events.ValueAddedEvent;
 import org.tessell.model.events.ValueAddedHandler;
 import org.tessell.model.events.ValueRemovedEvent;
@@ -13,6 +16,9 @@ import org.tessell.model.events.ValueRemovedHandler;
 import org.tessell.model.properties.ListProperty;
 import org.tessell.presenter.BasicPresenter;
 import org.tessell.presenter.Presenter;
+import org.tessell.presenter.PresenterPool;
+import org.tessell.presenter.ReusablePresenter;
+import org.tessell.widgets.IsVirtualList;
 
 /** Fluent binding methods for {@link ListProperty}s. */
 public class ListPropertyBinder<P> extends PropertyBinder<List<P>> {
@@ -27,6 +33,16 @@ public class ListPropertyBinder<P> extends PropertyBinder<List<P>> {
     Presenter create(P value);
   }
 
+  /** Updates a view created by a {@link ListViewFactory} to show a new value with the same key. */
+  public interface ListViewUpdater<P> {
+    void update(IsWidget view, P value);
+  }
+
+  /** Returns a stable key for each item in a list, e.g. its id, so its row can be reused when the list changes. */
+  public interface ListKeyFunction<P> {
+    Object key(P value);
+  }
+
   private final ListProperty<P> p;
 
   public ListPropertyBinder(final Binder b, final ListProperty<P> p) {
@@ -92,4 +108,140 @@ public class ListPropertyBinder<P> extends PropertyBinder<List<P>> {
     }));
   }
 
+  /**
+   * Binds each value in {@code p} to a view created by {@code factory}, in the same order as the list.
+   *
+   * When the list changes, e.g. is reloaded from the server, views are reused for equal values
+   * with the same key, and only the views that actually moved are removed and re-inserted.
+   * Use {@link ValueKeys} if the values themselves are the keys.
+   */
+  public void to(final IsInsertPanel panel, final ListViewFactory<P> factory, final ListKeyFunction<P> keys) {
+    to(panel, factory, keys, null);
+  }
+
+  /**
+   * Binds each value in {@code p} to a view created by {@code factory}, in the same order as the list.
+   *
+   * Like {@link #to(IsInsertPanel, ListViewFactory, ListKeyFunction)}, but values with the same key
+   * that aren't {@code equals}, e.g. new instances from the server, keep their view and are passed to
+   * {@code updater}, instead of getting a new view.
+   */
+  public void to(final IsInsertPanel panel, final ListViewFactory<P> factory, final ListKeyFunction<P> keys, final ListViewUpdater<P> updater) {
+    final KeyedRows<P, IsWidget> rows = new KeyedRows<P, IsWidget>(panel, keys) {
+      protected IsWidget create(P value) {
+        return factory.create(value);
+      }
+
+      protected IsWidget view(IsWidget row) {
+        return row;
+      }
+
+      protected boolean update(IsWidget row, P value) {
+        if (updater == null) {
+          return false;
+        }
+        updater.update(row, value);
+        return true;
+      }
+    };
+    bindRows(rows);
+  }
+
+  /**
+   * Binds each value in {@code p} to a presenter created by {@code factory}, in the same order as the list.
+   *
+   * Like {@link #to(IsInsertPanel, ListViewFactory, ListKeyFunction)}, presenters are reused for values
+   * with the same key, and are added/removed to the {@code parent} presenter as they're created/removed.
+   * Presenters that implement {@link ReusablePresenter} are {@link ReusablePresenter#rebind(Object) rebound}
+   * to values with the same key that aren't {@code equals}; others are recreated.
+   */
+  public void to(final BasicPresenter<?> parent, final IsInsertPanel panel, final ListPresenterFactory<P> factory, final ListKeyFunction<P> keys) {
+    to(parent, panel, factory, keys, null);
+  }
+
+  /**
+   * Binds each value in {@code p} to a presenter, in the same order as the list, recycling removed rows through {@code pool}.
+   *
+   * Removed presenters that implement {@link ReusablePresenter} are suspended and kept in {@code pool}, and
+   * new values are given a pooled presenter, via {@link ReusablePresenter#rebind(Object)}, before {@code factory}
+   * is asked to create one. This avoids churning presenters and views when paging or filtering large lists.
+   */
+  public void to(final BasicPresenter<?> parent, final IsInsertPanel panel, final ListPresenterFactory<P> factory, final ListKeyFunction<P> keys,
+      final PresenterPool<P> pool) {
+    final KeyedRows<P, Presenter> rows = new KeyedRows<P, Presenter>(panel, keys) {
+      protected Presenter create(P value) {
+        final ReusablePresenter<P> reused = pool == null ? null : pool.poll();
+        if (reused != null) {
+          reused.rebind(value);
+          return parent.addPresenter(reused);
+        }
+        return parent.addPresenter(factory.create(value));
+      }
+
+      protected IsWidget view(Presenter row) {
+        return row.getView();
+      }
+
+      @SuppressWarnings("unchecked")
+      protected boolean update(Presenter row, P value) {
+        if (row instanceof ReusablePresenter) {
+          ((ReusablePresenter<P>) row).rebind(value);
+          return true;
+        }
+        return false;
+      }
+
+      @SuppressWarnings("unchecked")
+      protected void destroyed(Presenter row) {
+        if (pool != null && row instanceof ReusablePresenter && pool.offer((ReusablePresenter<P>) row)) {
+          parent.suspendPresenter(row);
+        } else {
+          parent.removePresenter(row);
+        }
+      }
+    };
+    bindRows(rows);
+  }
+
+  /**
+   * Binds the values in {@code p} to {@code list}, which only renders the rows in its viewport.
+   *
+   * Any change to the list (adds, removes, or a new list) re-renders the visible rows.
+   */
+  public void to(final IsVirtualList<P> list) {
+    list.setRows(p.get());
+    b.add(p.addPropertyChangedHandler(new PropertyChangedHandler<List<P>>() {
+      public void onPropertyChanged(PropertyChangedEvent<List<P>> event) {
+        list.setRows(p.get());
+      }
+    }));
+  }
+
+  private void bindRows(final KeyedRows<P, ?> rows) {
+    rows.reconcile(p.get());
+    // adds/removes are applied as they happen, and the change event catches anything else, e.g. a new list
+    b.add(p.addValueAddedHandler(new ValueAddedHandler<P>() {
+      public void onValueAdded(ValueAddedEvent<P> event) {
+        rows.added(p.get(), event.getValue());
+      }
+    }));
+    b.add(p.addValueRemovedHandler(new ValueRemovedHandler<P>() {
+      public void onValueRemoved(ValueRemovedEvent<P> event) {
+        rows.removed(event.getValue());
+      }
+    }));
+    b.add(p.addPropertyChangedHandler(new PropertyChangedHandler<List<P>>() {
+      public void onPropertyChanged(PropertyChangedEvent<List<P>> event) {
+        rows.sync(p.get());
+      }
+    }));
+  }
+
+  /** Uses the values themselves as keys, e.g. for lists of strings or of values with a value-based {@code equals}. */
+  public static class ValueKeys<P> implements ListKeyFunction<P> {
+    public Object key(P value) {
+      return value;
+    }
+  }
+
 }
@@ -39,7 +39,12 @@ public class PropertyBinder<P> {
   public void to(final TakesValue<P> value) {
     b.add(p.addPropertyChangedHandler(new PropertyChangedHandler<P>() {
       public void onPropertyChanged(final PropertyChangedEvent<P> event) {
-        value.setValue(p.get());
+        final P newValue = p.get();
+        b.write(value, "value", new Runnable() {
+          public void run() {
+            value.setValue(newValue);
+          }
+        });
       }
     }));
     // Set initial value. Even though this is one-way, if value is a cookie/etc.,
@@ -72,7 +77,12 @@ public class PropertyBinder<P> {
     }
     b.add(p.addPropertyChangedHandler(new PropertyChangedHandler<P>() {
       public void onPropertyChanged(final PropertyChangedEvent<P> event) {
-        source.setValue(event.getProperty().get(), true);
+        final P newValue = event.getProperty().get();
+        b.write(source, "value", new Runnable() {
+          public void run() {
+            source.setValue(newValue, true);
+          }
+        });
       }
     }));
     if (p instanceof HasMaxLength && source instanceof IsTextBox) {
@@ -112,7 +122,12 @@ public class PropertyBinder<P> {
     }));
     b.add(p.addPropertyChangedHandler(new PropertyChangedHandler<P>() {
       public void onPropertyChanged(final PropertyChangedEvent<P> event) {
-        source.setSelectedIndex(indexInOptions());
+        final int index = indexInOptions();
+        b.write(source, "selectedIndex", new Runnable() {
+          public void run() {
+            source.setSelectedIndex(index);
+          }
+        });
       }
 
       // can't use indexOf because we can't map value -> option, only option -> value
@@ -162,9 +177,13 @@ public class PropertyBinder<P> {
       // like this means it will work for the stubs too.
       b.add(p.addPropertyChangedHandler(new PropertyChangedHandler<P>() {
         public void onPropertyChanged(PropertyChangedEvent<P> event) {
-          for (Map.Entry<HasValue<Boolean>, P> e : buttons.entrySet()) {
-            boolean isForThisValue = eq(e.getValue(), event.getNewValue());
-            e.getKey().setValue(isForThisValue, true);
+          for (final Map.Entry<HasValue<Boolean>, P> e : buttons.entrySet()) {
+            final boolean isForThisValue = eq(e.getValue(), event.getNewValue());
+            b.write(e.getKey(), "value", new Runnable() {
+              public void run() {
+                e.getKey().setValue(isForThisValue, true);
+              }
+            });
           }
         }
       }));
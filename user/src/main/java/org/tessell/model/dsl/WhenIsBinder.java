@@ -65,28 +65,28 @@ public class WhenIsBinder<P> {
   public void show(final HasCss... csses) {
     b.add(property.addPropertyChangedHandler(new PropertyChangedHandler<P>() {
       public void onPropertyChanged(final PropertyChangedEvent<P> event) {
-        showIfCondition(csses);
+        writeDisplay(csses, !condition.evaluate(property));
       }
     }));
-    showIfCondition(csses); // set initial
+    writeDisplay(csses, !condition.evaluate(property)); // set initial
   }
 
   public void hide(final HasCss... csses) {
     b.add(property.addPropertyChangedHandler(new PropertyChangedHandler<P>() {
       public void onPropertyChanged(final PropertyChangedEvent<P> event) {
-        hideIfCondition(csses);
+        writeDisplay(csses, condition.evaluate(property));
       }
     }));
-    hideIfCondition(csses); // set initial
+    writeDisplay(csses, condition.evaluate(property)); // set initial
   }
 
   public void visible(final HasCss... css) {
     b.add(property.addPropertyChangedHandler(new PropertyChangedHandler<P>() {
       public void onPropertyChanged(final PropertyChangedEvent<P> event) {
-        visibleIfCondition(css);
+        writeVisibility(css, condition.evaluate(property));
       }
     }));
-    visibleIfCondition(css); // set initial
+    writeVisibility(css, condition.evaluate(property)); // set initial
   }
 
   public void error(final String message) {
@@ -101,19 +101,19 @@ public class WhenIsBinder<P> {
   public void enable(final HasEnabled... enabled) {
     b.add(property.addPropertyChangedHandler(new PropertyChangedHandler<P>() {
       public void onPropertyChanged(final PropertyChangedEvent<P> event) {
-        updateEnabled(enabled, true);
+        writeEnabled(enabled, true);
       }
     }));
-    updateEnabled(enabled, true); // set initial value
+    writeEnabled(enabled, true); // set initial value
   }
 
   public void disable(final HasEnabled... enabled) {
     b.add(property.addPropertyChangedHandler(new PropertyChangedHandler<P>() {
       public void onPropertyChanged(final PropertyChangedEvent<P> event) {
-        updateEnabled(enabled, false);
+        writeEnabled(enabled, false);
       }
     }));
-    updateEnabled(enabled, false); // set initial value
+    writeEnabled(enabled, false); // set initial value
   }
 
   public void fadeIn(final HasCss widget) {
@@ -139,10 +139,42 @@ public class WhenIsBinder<P> {
     }
   }
 
-  private void updateEnabled(final HasEnabled[] enabled, final boolean valueIfTrue) {
+  private void writeEnabled(final HasEnabled[] enabled, final boolean valueIfTrue) {
     final boolean valueToSet = condition.evaluate(property) ? valueIfTrue : !valueIfTrue;
     for (final HasEnabled e : enabled) {
-      e.setEnabled(valueToSet);
+      b.write(e, "enabled", new Runnable() {
+        public void run() {
+          e.setEnabled(valueToSet);
+        }
+      });
+    }
+  }
+
+  private void writeDisplay(final HasCss[] csses, final boolean hidden) {
+    for (final HasCss css : csses) {
+      b.write(css, "display", new Runnable() {
+        public void run() {
+          if (hidden) {
+            css.getStyle().setDisplay(Display.NONE);
+          } else {
+            css.getStyle().clearDisplay();
+          }
+        }
+      });
+    }
+  }
+
+  private void writeVisibility(final HasCss[] csses, final boolean visible) {
+    for (final HasCss css : csses) {
+      b.write(css, "visibility", new Runnable() {
+        public void run() {
+          if (visible) {
+            css.getStyle().clearVisibility();
+          } else {
+            css.getStyle().setVisibility(Visibility.HIDDEN);
+          }
+        }
+      });
     }
   }
 
@@ -163,34 +195,4 @@ public class WhenIsBinder<P> {
       trigged = false;
     }
   }
-
-  private void showIfCondition(final HasCss... csses) {
-    for (final HasCss css : csses) {
-      if (condition.evaluate(property)) {
-        css.getStyle().clearDisplay();
-      } else {
-        css.getStyle().setDisplay(Display.NONE);
-      }
-    }
-  }
-
-  private void hideIfCondition(final HasCss... csses) {
-    for (final HasCss css : csses) {
-      if (condition.evaluate(property)) {
-        css.getStyle().setDisplay(Display.NONE);
-      } else {
-        css.getStyle().clearDisplay();
-      }
-    }
-  }
-
-  private void visibleIfCondition(final HasCss... csses) {
-    for (final HasCss css : csses) {
-      if (condition.evaluate(property)) {
-        css.getStyle().clearVisibility();
-      } else {
-        css.getStyle().setVisibility(Visibility.HIDDEN);
-      }
-    }
-  }
 }
@@ -26,23 +26,29 @@ public class WhenIsSetOrElseStyleBinder<P> {
   public void on(final HasCss... css) {
     b.add(property.addPropertyChangedHandler(new PropertyChangedHandler<P>() {
       public void onPropertyChanged(PropertyChangedEvent<P> event) {
-        update(css);
+        write(css);
       }
     }));
-    update(css); // set initial value
+    write(css); // set initial value
   }
 
-  private void update(HasCss... csses) {
-    if (condition.evaluate(property)) {
-      for (HasCss css : csses) {
-        css.addStyleName(ifTrue);
-        css.removeStyleName(ifFalse);
-      }
-    } else {
-      for (HasCss css : csses) {
-        css.removeStyleName(ifTrue);
-        css.addStyleName(ifFalse);
-      }
+  private void write(HasCss... csses) {
+    final boolean set = condition.evaluate(property);
+    for (final HasCss css : csses) {
+      writeStyle(css, ifTrue, set);
+      writeStyle(css, ifFalse, !set);
     }
   }
+
+  private void writeStyle(final HasCss css, final String style, final boolean set) {
+    b.write(css, "style:" + style, new Runnable() {
+      public void run() {
+        if (set) {
+          css.addStyleName(style);
+        } else {
+          css.removeStyleName(style);
+        }
+      }
+    });
+  }
 }
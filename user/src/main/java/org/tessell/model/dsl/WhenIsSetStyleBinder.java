@@ -24,21 +24,24 @@ public class WhenIsSetStyleBinder<P> {
   public void on(final HasCss... css) {
     b.add(property.addPropertyChangedHandler(new PropertyChangedHandler<P>() {
       public void onPropertyChanged(PropertyChangedEvent<P> event) {
-        update(css);
+        write(css);
       }
     }));
-    update(css); // set initial value
+    write(css); // set initial value
   }
 
-  private void update(HasCss... csses) {
-    if (condition.evaluate(property)) {
-      for (HasCss css : csses) {
-        css.addStyleName(style);
-      }
-    } else {
-      for (HasCss css : csses) {
-        css.removeStyleName(style);
-      }
+  private void write(HasCss... csses) {
+    final boolean set = condition.evaluate(property);
+    for (final HasCss css : csses) {
+      b.write(css, "style:" + style, new Runnable() {
+        public void run() {
+          if (set) {
+            css.addStyleName(style);
+          } else {
+            css.removeStyleName(style);
+          }
+        }
+      });
     }
   }
 }
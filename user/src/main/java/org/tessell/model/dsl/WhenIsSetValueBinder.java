@@ -25,12 +25,12 @@ public class WhenIsSetValueBinder<P, Q> {
     b.add(property.addPropertyChangedHandler(new PropertyChangedHandler<P>() {
       public void onPropertyChanged(final PropertyChangedEvent<P> event) {
         if (condition.evaluate(property)) {
-          value.setValue(newValue);
+          write(newValue);
         }
       }
     }));
     if (condition.evaluate(property)) {
-      value.setValue(newValue); // set initial
+      write(newValue); // set initial
     }
   }
 
@@ -38,31 +38,31 @@ public class WhenIsSetValueBinder<P, Q> {
     b.add(property.addPropertyChangedHandler(new PropertyChangedHandler<P>() {
       public void onPropertyChanged(final PropertyChangedEvent<P> event) {
         if (condition.evaluate(property)) {
-          value.setValue(newValue.getValue());
+          write(newValue.getValue());
         }
       }
     }));
     if (condition.evaluate(property)) {
-      value.setValue(newValue.getValue()); // set initial
+      write(newValue.getValue()); // set initial
     }
   }
 
   public void toOrElse(final Q ifTrue, final Q ifFalse) {
     b.add(property.addPropertyChangedHandler(new PropertyChangedHandler<P>() {
       public void onPropertyChanged(final PropertyChangedEvent<P> event) {
-        update(ifTrue, ifFalse);
+        write(condition.evaluate(property) ? ifTrue : ifFalse);
       }
     }));
     // set initial value
-    update(ifTrue, ifFalse);
+    write(condition.evaluate(property) ? ifTrue : ifFalse);
   }
 
-  private void update(final Q ifTrue, final Q ifFalse) {
-    if (condition.evaluate(property)) {
-      value.setValue(ifTrue);
-    } else {
-      value.setValue(ifFalse);
-    }
+  private void write(final Q newValue) {
+    b.write(value, "value", new Runnable() {
+      public void run() {
+        value.setValue(newValue);
+      }
+    });
   }
 
 }
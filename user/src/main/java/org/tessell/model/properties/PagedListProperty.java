@@ -0,0 +1,161 @@
+package org.tessell.model.properties;
+
+import static org.tessell.model.properties.NewProperty.booleanProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.tessell.dispatch.client.util.OutstandingDispatchAsync;
+import org.tessell.dispatch.shared.PagedAction;
+import org.tessell.dispatch.shared.PagedResult;
+import org.tessell.model.values.SetValue;
+import org.tessell.util.ActionCache;
+
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+/**
+ * A {@link ListProperty} that loads its elements a page at a time via {@link PagedAction}s.
+ *
+ * Pages are appended to the list as {@link #loadNextPage()} is called, e.g. as the user scrolls.
+ * Once a page arrives, the next page is prefetched (unless disabled with {@link #setPrefetch(boolean)}),
+ * so that the following {@link #loadNextPage()} can usually be served immediately.
+ *
+ * If constructed with an {@link ActionCache}, pages are fetched through it, so re-loading
+ * the list (e.g. when revisiting a screen) reuses previously-fetched pages.
+ */
+public abstract class PagedListProperty<A extends PagedAction<R>, R extends PagedResult<E>, E> extends ListProperty<E> {
+
+  private final OutstandingDispatchAsync async;
+  private final ActionCache<A, R, R> cache;
+  private final int pageSize;
+  private final BooleanProperty hasMore = booleanProperty("hasMore", true);
+  private final BooleanProperty loading = booleanProperty("loading", false);
+  private boolean prefetch = true;
+  // the cursor of the next page to append
+  private String nextCursor;
+  // the next page, if it was prefetched before being asked for
+  private R buffered;
+  // whether the next page is being fetched
+  private boolean fetching;
+  // whether the next page should be appended as soon as it arrives
+  private boolean wanted;
+  // bumped on reset so that in-flight pages are ignored
+  private int generation;
+
+  public PagedListProperty(final String name, final OutstandingDispatchAsync async, final int pageSize) {
+    this(name, async, null, pageSize);
+  }
+
+  public PagedListProperty(final String name, final OutstandingDispatchAsync async, final ActionCache<A, R, R> cache, final int pageSize) {
+    super(new SetValue<List<E>>(name, new ArrayList<E>()));
+    this.async = async;
+    this.cache = cache;
+    this.pageSize = pageSize;
+  }
+
+  /** Implemented by subclasses to create the action for the page at {@code cursor}. */
+  protected abstract A createAction(String cursor, int pageSize);
+
+  /** Appends the next page, fetching it first if it has not been prefetched. */
+  public void loadNextPage() {
+    if (!hasMore.isTrue() || wanted) {
+      return;
+    }
+    if (buffered != null) {
+      final R page = buffered;
+      buffered = null;
+      append(page);
+    } else {
+      wanted = true;
+      loading.set(true);
+      if (!fetching) {
+        fetchNextPage();
+      }
+    }
+  }
+
+  /** Clears the list and starts over from the first page, ignoring any in-flight pages. */
+  public void reset() {
+    generation++;
+    nextCursor = null;
+    buffered = null;
+    fetching = false;
+    wanted = false;
+    clear();
+    hasMore.set(true);
+    loading.set(false);
+  }
+
+  /** @return whether there are more pages to load */
+  public BooleanProperty hasMore() {
+    return hasMore;
+  }
+
+  /** @return whether a requested page is currently being loaded */
+  public BooleanProperty loading() {
+    return loading;
+  }
+
+  /** Sets whether the next page is fetched before being asked for, defaults to {@code true}. */
+  public void setPrefetch(final boolean prefetch) {
+    this.prefetch = prefetch;
+  }
+
+  /** Fetches {@code action}, via the {@link ActionCache} if we have one. */
+  protected void execute(final A action, final AsyncCallback<R> callback) {
+    if (cache != null) {
+      cache.executeWithFailure(action, callback);
+    } else {
+      async.execute(action, callback);
+    }
+  }
+
+  private void fetchNextPage() {
+    fetching = true;
+    final int thisGeneration = generation;
+    final A action = createAction(nextCursor, pageSize);
+    execute(action, new AsyncCallback<R>() {
+      public void onSuccess(final R page) {
+        if (thisGeneration != generation) {
+          return;
+        }
+        fetching = false;
+        if (wanted) {
+          wanted = false;
+          loading.set(false);
+          append(page);
+        } else {
+          buffered = page;
+        }
+      }
+
+      public void onFailure(final Throwable caught) {
+        if (thisGeneration != generation) {
+          return;
+        }
+        fetching = false;
+        // failed prefetches are retried when the page is actually asked for
+        if (wanted) {
+          wanted = false;
+          loading.set(false);
+          onPageFailure(action, caught);
+        }
+      }
+    });
+  }
+
+  /** Fires a {@code DispatchUnhandledFailureEvent} for failed pages, can be overridden by subclasses if needed. */
+  protected void onPageFailure(final A action, final Throwable caught) {
+    async.unhandledFailure(action, caught);
+  }
+
+  private void append(final R page) {
+    addAll(page.getItems());
+    nextCursor = page.getNextCursor();
+    hasMore.set(nextCursor != null);
+    if (prefetch && nextCursor != null) {
+      fetchNextPage();
+    }
+  }
+
+}
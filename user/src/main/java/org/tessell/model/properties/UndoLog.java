@@ -0,0 +1,116 @@
+package org.tessell.model.properties;
+
+import static org.tessell.util.ObjectUtils.eq;
+
+import java.util.ArrayList;
+
+/**
+ * Records the previous values of properties as they're changed, so the changes can be rolled back.
+ *
+ * Unlike {@link PropertyGroup#capture()}, only the properties that are actually changed are
+ * recorded, which makes this cheap enough to use for every optimistic update.
+ */
+public class UndoLog {
+
+  private final ArrayList<Entry<?>> entries = new ArrayList<Entry<?>>();
+
+  /** Sets {@code property} to {@code value}, remembering its old value. */
+  public <P> void set(final Property<P> property, final P value) {
+    Entry<P> entry = find(property);
+    if (entry == null) {
+      entry = new Entry<P>(property, copy(property, property.get()));
+      entries.add(entry);
+    }
+    property.set(value);
+    entry.newValue = copy(property, property.get());
+  }
+
+  /** Adds {@code item} to {@code property}, remembering its old value. */
+  public <E> void add(final ListProperty<E> property, final E item) {
+    final ArrayList<E> updated = property.get() == null ? new ArrayList<E>() : new ArrayList<E>(property.get());
+    updated.add(item);
+    set(property, updated);
+  }
+
+  /** Removes {@code item} from {@code property}, remembering its old value. */
+  public <E> void remove(final ListProperty<E> property, final E item) {
+    final ArrayList<E> updated = property.get() == null ? new ArrayList<E>() : new ArrayList<E>(property.get());
+    updated.remove(item);
+    set(property, updated);
+  }
+
+  /**
+   * Restores the old values of all changed properties.
+   *
+   * All of the values are restored before any change events are fired, so handlers see a
+   * consistent model. Properties that have been changed since (e.g. by a newer update) are left alone.
+   */
+  public void rollback() {
+    final ArrayList<Property<?>> restored = new ArrayList<Property<?>>();
+    for (int i = entries.size() - 1; i >= 0; i--) {
+      if (entries.get(i).restoreQuietly()) {
+        restored.add(entries.get(i).property);
+      }
+    }
+    entries.clear();
+    for (final Property<?> property : restored) {
+      property.reassess();
+    }
+  }
+
+  /** Forgets the recorded values, e.g. once the server has confirmed the changes. */
+  public void commit() {
+    entries.clear();
+  }
+
+  /** @return whether no properties have been changed */
+  public boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  @SuppressWarnings("unchecked")
+  private <P> Entry<P> find(final Property<P> property) {
+    for (final Entry<?> entry : entries) {
+      if (entry.property == property) {
+        return (Entry<P>) entry;
+      }
+    }
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <P> P copy(final Property<P> property, final P value) {
+    // lists are mutated in place, so copy them to keep the old contents
+    if (property instanceof AbstractProperty) {
+      return ((AbstractProperty<P, ?>) property).copyLastValue(value);
+    }
+    return value;
+  }
+
+  /** A property and its old/new values. */
+  private static class Entry<P> {
+    private final Property<P> property;
+    private final P oldValue;
+    private P newValue;
+
+    private Entry(final Property<P> property, final P oldValue) {
+      this.property = property;
+      this.oldValue = oldValue;
+    }
+
+    /** @return whether the old value was restored, which requires a reassess to fire events */
+    private boolean restoreQuietly() {
+      if (!eq(property.get(), newValue)) {
+        return false;
+      }
+      if (property instanceof AbstractProperty) {
+        // set the underlying value directly, so that events aren't fired until reassess
+        ((AbstractProperty<P, ?>) property).getValueObject().set(copy(property, oldValue));
+      } else {
+        property.set(oldValue);
+      }
+      return true;
+    }
+  }
+
+}
@@ -1,5 +1,6 @@
 package org.tessell.place;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 
 import org.tessell.place.events.PlaceChangedEvent;
@@ -7,8 +8,10 @@ import org.tessell.place.events.PlaceChangedHandler;
 import org.tessell.place.events.PlaceRequestEvent;
 import org.tessell.place.events.PlaceRequestHandler;
 import org.tessell.place.history.IsHistory;
+import org.tessell.place.tokenizer.RouteTokenizer;
 import org.tessell.place.tokenizer.Tokenizer;
 import org.tessell.place.tokenizer.TokenizerException;
+import org.tessell.presenter.PresenterCache;
 
 import com.google.gwt.event.logical.shared.ValueChangeEvent;
 import com.google.gwt.event.logical.shared.ValueChangeHandler;
@@ -20,6 +23,11 @@ public class DefaultPlaceManager implements PlaceManager {
   private final Tokenizer tokenizer;
   private final IsHistory history;
   private boolean alreadyHandling = false;
+  private PlaceRequest currentRequest;
+  private PresenterCache presenterCache = new PresenterCache(10);
+  private final ArrayList<PlaceRequest> queuedPrefetches = new ArrayList<PlaceRequest>();
+  private final ArrayList<PlaceRequest> activePrefetches = new ArrayList<PlaceRequest>();
+  private int maxConcurrentPrefetches = 2;
   protected final HashMap<String, Place> places = new HashMap<String, Place>();
 
   public DefaultPlaceManager(final EventBus eventBus, final Tokenizer tokenizer, final IsHistory history) {
@@ -36,12 +44,83 @@ public class DefaultPlaceManager implements PlaceManager {
       throw new IllegalStateException(place.getName() + " is already taken");
     }
     places.put(place.getName(), place);
+    if (place.getRoute() != null && tokenizer instanceof RouteTokenizer) {
+      ((RouteTokenizer) tokenizer).addRoute(place.getName(), place.getRoute());
+    }
     place.bind();
   }
 
   public void deregisterPlace(final Place place) {
     place.unbind();
     places.remove(place.getName());
+    if (tokenizer instanceof RouteTokenizer) {
+      ((RouteTokenizer) tokenizer).removeRoute(place.getName());
+    }
+    presenterCache.removePlace(place.getName());
+  }
+
+  /** @return the request currently being handled, or last handled, e.g. to key {@link #getPresenterCache()} */
+  public PlaceRequest getCurrentRequest() {
+    return currentRequest;
+  }
+
+  /** @return the cache places can use to keep presenters alive between visits */
+  public PresenterCache getPresenterCache() {
+    return presenterCache;
+  }
+
+  public void setPresenterCache(final PresenterCache presenterCache) {
+    this.presenterCache.clear();
+    this.presenterCache = presenterCache;
+  }
+
+  /**
+   * Prefetches {@code request}, or queues it if {@link #setMaxConcurrentPrefetches(int)} are already running.
+   *
+   * Requests that are already queued or running are ignored.
+   */
+  @Override
+  public void prefetch(final PlaceRequest request) {
+    if (!places.containsKey(request.getName()) || queuedPrefetches.contains(request) || activePrefetches.contains(request)) {
+      return;
+    }
+    queuedPrefetches.add(request);
+    startPrefetches();
+  }
+
+  /** Limits how many requests are prefetched at once, so prefetching doesn't crowd out real requests. */
+  public void setMaxConcurrentPrefetches(final int maxConcurrentPrefetches) {
+    this.maxConcurrentPrefetches = maxConcurrentPrefetches;
+    startPrefetches();
+  }
+
+  /** @return the number of requests currently being prefetched */
+  public int getActivePrefetches() {
+    return activePrefetches.size();
+  }
+
+  private void startPrefetches() {
+    while (activePrefetches.size() < maxConcurrentPrefetches && !queuedPrefetches.isEmpty()) {
+      final PlaceRequest request = queuedPrefetches.remove(0);
+      final Place place = places.get(request.getName());
+      if (place == null) {
+        continue; // deregistered since being queued
+      }
+      activePrefetches.add(request);
+      final Prefetch prefetch = new Prefetch(request) {
+        protected void finished() {
+          activePrefetches.remove(getRequest());
+          startPrefetches();
+        }
+      };
+      // hold a pending count while the place starts, in case it finishes synchronously
+      prefetch.start();
+      try {
+        place.prefetch(request, prefetch);
+      } finally {
+        prefetch.done();
+      }
+    }
   }
 
   /** Called when we can't parse the history token. */
@@ -70,6 +149,7 @@ public class DefaultPlaceManager implements PlaceManager {
     final Place place = places.get(request.getName());
     if (place != null) {
       setTokenWithoutEvent(request);
+      currentRequest = request;
       place.handleRequest(request);
       eventBus.fireEvent(new PlaceChangedEvent(place, request));
     }
@@ -26,9 +26,22 @@ public abstract class Place extends AbstractBound {
     return name;
   }
 
+  /** @return the route pattern for this place, e.g. {@code orders/{id:long}}, or {@code null} to use the default token format */
+  public String getRoute() {
+    return null;
+  }
+
   /** This method is for sub-classes to execute logic for a matched request. */
   public abstract void handleRequest(PlaceRequest request);
 
+  /**
+   * Loads the code and data for {@code request} ahead of time, e.g. when the user hovers over a link.
+   *
+   * Subclasses can override this to {@link Prefetch#warm} any actions they'll need; by default it does nothing.
+   */
+  public void prefetch(final PlaceRequest request, final Prefetch prefetch) {
+  }
+
   @Override
   public String toString() {
     return getName();
@@ -35,4 +35,11 @@ public interface PlaceManager {
    * @param place The place to deregister.
    */
   void deregisterPlace(Place place);
+
+  /**
+   * Loads the code and data for {@code request} ahead of time, so navigating to it later is quick.
+   *
+   * @param request The request to prefetch.
+   */
+  void prefetch(PlaceRequest request);
 }
@@ -1,5 +1,6 @@
 package org.tessell.place;
 
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
@@ -32,20 +33,41 @@ public class PlaceRequest {
 
   private final String name;
   private final LinkedHashMap<String, String> params = new LinkedHashMap<String, String>();
+  // parsed values, e.g. from typed route parameters, lazily created as most requests don't have any
+  private HashMap<String, Object> typedParams;
 
   public PlaceRequest(final String name) {
     this.name = name;
   }
 
+  /** Creates a request with all of {@code params} at once, e.g. from a tokenizer, instead of copying them for each {@link #with}. */
+  public PlaceRequest(final String name, final Map<String, String> params) {
+    this(name, params, null);
+  }
+
+  /** Creates a request with all of {@code params} at once, and already-parsed values from {@code typedParams}. */
+  public PlaceRequest(final String name, final Map<String, String> params, final Map<String, Object> typedParams) {
+    this.name = name;
+    this.params.putAll(params);
+    if (typedParams != null && !typedParams.isEmpty()) {
+      this.typedParams = new HashMap<String, Object>(typedParams);
+    }
+  }
+
   protected PlaceRequest(final PlaceRequest req) {
     name = req.name;
     params.putAll(req.params);
+    if (req.typedParams != null) {
+      typedParams = new HashMap<String, Object>(req.typedParams);
+    }
   }
 
   protected PlaceRequest(final PlaceRequest req, final String name, final String value) {
-    this.name = req.name;
-    params.putAll(req.params);
+    this(req);
     params.put(name, value);
+    if (typedParams != null) {
+      typedParams.remove(name);
+    }
   }
 
   public String getName() {
@@ -78,6 +100,53 @@ public class PlaceRequest {
     return new PlaceRequest(this, name, ObjectUtils.toStr(value, ""));
   }
 
+  /**
+   * Returns a new instance of the request with the specified parameter, keeping {@code value} as-is
+   * so that {@link #getTypedParameter(String)} doesn't have to parse it again.
+   */
+  public PlaceRequest withTyped(final String name, final Object value) {
+    final PlaceRequest request = with(name, value);
+    if (value != null) {
+      if (request.typedParams == null) {
+        request.typedParams = new HashMap<String, Object>();
+      }
+      request.typedParams.put(name, value);
+    }
+    return request;
+  }
+
+  /** @return the parsed value of {@code key} if available, otherwise its string value */
+  public Object getTypedParameter(final String key) {
+    final Object typed = typedParams == null ? null : typedParams.get(key);
+    return typed != null ? typed : getParameter(key, null);
+  }
+
+  /** @return the value of {@code key} as a {@link Long}, or {@code defaultValue} if it's missing or not a number */
+  public Long getLongParameter(final String key, final Long defaultValue) {
+    final Object value = getTypedParameter(key);
+    if (value instanceof Long) {
+      return (Long) value;
+    }
+    try {
+      return value == null ? defaultValue : Long.valueOf(value.toString());
+    } catch (final NumberFormatException nfe) {
+      return defaultValue;
+    }
+  }
+
+  /** @return the value of {@code key} as an {@link Integer}, or {@code defaultValue} if it's missing or not a number */
+  public Integer getIntegerParameter(final String key, final Integer defaultValue) {
+    final Object value = getTypedParameter(key);
+    if (value instanceof Integer) {
+      return (Integer) value;
+    }
+    try {
+      return value == null ? defaultValue : Integer.valueOf(value.toString());
+    } catch (final NumberFormatException nfe) {
+      return defaultValue;
+    }
+  }
+
   /** @return a new {@link PlaceRequestEvent} for this {@link PlaceRequest}. */
   public PlaceRequestEvent asEvent() {
     return new PlaceRequestEvent(this);
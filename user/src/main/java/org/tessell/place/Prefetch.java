@@ -0,0 +1,63 @@
+package org.tessell.place;
+
+import org.tessell.dispatch.shared.Action;
+import org.tessell.dispatch.shared.Result;
+import org.tessell.util.ActionCache;
+
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+/**
+ * Tracks the code and data being loaded ahead of time for a {@link PlaceRequest}.
+ *
+ * Places call {@link #start()}/{@link #done()} around any asynchronous loading, or {@link #warm} to
+ * populate an {@link ActionCache}; once everything has loaded, {@link #finished()} is called.
+ */
+public class Prefetch {
+
+  private final PlaceRequest request;
+  private int pending;
+
+  public Prefetch(final PlaceRequest request) {
+    this.request = request;
+  }
+
+  /** @return the request being prefetched */
+  public PlaceRequest getRequest() {
+    return request;
+  }
+
+  /** Notes that some loading has started. */
+  public void start() {
+    pending++;
+  }
+
+  /** Notes that some loading has finished, successfully or not. */
+  public void done() {
+    if (--pending == 0) {
+      finished();
+    }
+  }
+
+  /** Executes {@code action} through {@code cache}, unless it's already cached, so the real request finds it ready. */
+  public <A extends Action<R>, R extends Result, D> void warm(final ActionCache<A, R, D> cache, final A action) {
+    if (cache.isCached(action)) {
+      return;
+    }
+    start();
+    cache.executeWithFailure(action, new AsyncCallback<D>() {
+      public void onSuccess(final D result) {
+        done();
+      }
+
+      public void onFailure(final Throwable caught) {
+        // the real request will try again
+        done();
+      }
+    });
+  }
+
+  /** Called once all of the loading has finished. */
+  protected void finished() {
+  }
+
+}
@@ -6,12 +6,16 @@ import java.net.URLEncoder;
 
 /**
  * Utility class for <code>application/x-www-form-urlencoded</code> encoding and decoding.
- * 
+ *
+ * This is the JVM version, used by tests and stubs; it matches {@link URLEncoder}/{@link URLDecoder}
+ * but encodes and decodes in a single pass. The GWT version delegates to {@code URL}.
+ *
  * http://stackoverflow.com/questions/607176
  */
 public class Codec {
 
   private static String mark = "-_.!~*'()#;,/?:@=+$";
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
 
   /**
    * Encodes like encodeURI.
@@ -36,16 +40,50 @@ public class Codec {
 
   /**
    * Decodes like GWT's <code>decodePathSegment</code> function.
+   *
+   * Like {@link URLDecoder}, '+' is interpreted as space.
    */
   public static String decodePathSegment(final String s) {
     if (s == null) {
       return null;
     }
-    try {
-      return URLDecoder.decode(s, "UTF-8");
-    } catch (final UnsupportedEncodingException e) {
-      throw new RuntimeException(e);
+    if (s.indexOf('%') == -1 && s.indexOf('+') == -1) {
+      return s;
     }
+    final int length = s.length();
+    final StringBuilder out = new StringBuilder(length);
+    byte[] bytes = null;
+    int i = 0;
+    while (i < length) {
+      final char c = s.charAt(i);
+      if (c == '+') {
+        out.append(' ');
+        i++;
+      } else if (c == '%') {
+        // decode the whole run of %XX escapes at once, as multi-byte characters can span them
+        if (bytes == null) {
+          bytes = new byte[(length - i) / 3];
+        }
+        int n = 0;
+        while (i < length && s.charAt(i) == '%') {
+          if (i + 2 >= length) {
+            throw new IllegalArgumentException("Incomplete trailing escape (%) pattern in " + s);
+          }
+          final int hi = Character.digit(s.charAt(i + 1), 16);
+          final int lo = Character.digit(s.charAt(i + 2), 16);
+          if (hi == -1 || lo == -1) {
+            throw new IllegalArgumentException("Illegal hex characters in escape (%) pattern in " + s);
+          }
+          bytes[n++] = (byte) ((hi << 4) + lo);
+          i += 3;
+        }
+        out.append(utf8(bytes, n));
+      } else {
+        out.append(c);
+        i++;
+      }
+    }
+    return out.toString();
   }
 
   /**
@@ -54,17 +92,7 @@ public class Codec {
    * Note: spaces are encoded as %20.
    */
   public static String encodePathSegment(final String s) {
-    try {
-      return URLEncoder.encode(s, "UTF-8")//
-        .replaceAll("\\+", "%20")
-        .replaceAll("\\%21", "!")
-        .replaceAll("\\%27", "'")
-        .replaceAll("\\%28", "(")
-        .replaceAll("\\%29", ")")
-        .replaceAll("\\%7E", "~");
-    } catch (final UnsupportedEncodingException e) {
-      throw new RuntimeException(e);
-    }
+    return encode(s, "%20");
   }
 
   /**
@@ -73,7 +101,7 @@ public class Codec {
    * Note: '+' is interpreted as space.
    */
   public static String decodeQueryString(final String s) {
-    return decodePathSegment(s.replace("+", "%20"));
+    return decodePathSegment(s);
   }
 
   /**
@@ -82,7 +110,72 @@ public class Codec {
    * Note: spaces are encoded as '+'.
    */
   public static String encodeQueryString(final String s) {
-    return encodePathSegment(s).replace("%20", "+");
+    return encode(s, "+");
+  }
+
+  /** Encodes like {@link URLEncoder}, but leaves {@code !'()~} alone and encodes spaces as {@code space}, in one pass. */
+  private static String encode(final String s, final String space) {
+    final int length = s.length();
+    int i = 0;
+    while (i < length && isUnreserved(s.charAt(i))) {
+      i++;
+    }
+    if (i == length) {
+      return s;
+    }
+    final StringBuilder out = new StringBuilder(length + 16);
+    out.append(s, 0, i);
+    while (i < length) {
+      final char c = s.charAt(i);
+      if (isUnreserved(c)) {
+        out.append(c);
+        i++;
+      } else if (c == ' ') {
+        out.append(space);
+        i++;
+      } else {
+        // encode the whole run of other characters at once, so surrogate pairs stay together
+        final int start = i;
+        while (i < length && !isUnreserved(s.charAt(i)) && s.charAt(i) != ' ') {
+          i++;
+        }
+        for (final byte b : utf8(s.substring(start, i))) {
+          out.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+        }
+      }
+    }
+    return out.toString();
+  }
+
+  private static boolean isUnreserved(final char c) {
+    return (c >= 'a' && c <= 'z')
+      || (c >= 'A' && c <= 'Z')
+      || (c >= '0' && c <= '9')
+      || c == '-'
+      || c == '_'
+      || c == '.'
+      || c == '*'
+      || c == '!'
+      || c == '\''
+      || c == '('
+      || c == ')'
+      || c == '~';
+  }
+
+  private static byte[] utf8(final String s) {
+    try {
+      return s.getBytes("UTF-8");
+    } catch (final UnsupportedEncodingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static String utf8(final byte[] bytes, final int length) {
+    try {
+      return new String(bytes, 0, length, "UTF-8");
+    } catch (final UnsupportedEncodingException e) {
+      throw new RuntimeException(e);
+    }
   }
 
 }
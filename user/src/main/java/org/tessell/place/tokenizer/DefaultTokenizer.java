@@ -1,5 +1,7 @@
 package org.tessell.place.tokenizer;
 
+import java.util.LinkedHashMap;
+
 import org.tessell.place.PlaceRequest;
 
 /**
@@ -40,22 +42,31 @@ public class DefaultTokenizer implements Tokenizer {
     final int paramSepIndex = token.indexOf(paramSep);
     if (paramSepIndex == -1) {
       return new PlaceRequest(unescape(token));
-    } else if (paramSepIndex >= 0) {
-      PlaceRequest request = new PlaceRequest(unescape(token.substring(0, paramSepIndex)));
-      for (final String paramToken : token.substring(paramSepIndex + 1).split(paramSep)) {
-        final String[] param = paramToken.split(valueSep);
-        if (param.length == 1) {
-          request = request.with(unescape(param[0]), "");
-        } else if (param.length == 2) {
-          request = request.with(unescape(param[0]), unescape(param[1]));
+    }
+    // a single pass with indexOf, instead of String.split's regexes, filling in the params once
+    final LinkedHashMap<String, String> params = new LinkedHashMap<String, String>();
+    int start = paramSepIndex + paramSep.length();
+    while (start <= token.length()) {
+      int end = token.indexOf(paramSep, start);
+      if (end == -1) {
+        end = token.length();
+      }
+      if (end > start) {
+        final int valueSepIndex = token.indexOf(valueSep, start);
+        if (valueSepIndex == -1 || valueSepIndex >= end) {
+          params.put(unescape(token.substring(start, end)), "");
         } else {
-          throw new TokenizerException("Parameters require a single '" + valueSep + "' between the key and value.");
+          final int valueStart = valueSepIndex + valueSep.length();
+          final int extra = token.indexOf(valueSep, valueStart);
+          if (extra != -1 && extra < end) {
+            throw new TokenizerException("Parameters require a single '" + valueSep + "' between the key and value.");
+          }
+          params.put(unescape(token.substring(start, valueSepIndex)), unescape(token.substring(valueStart, end)));
         }
       }
-      return request;
-    } else {
-      throw new TokenizerException("Invalid token " + token);
+      start = end + paramSep.length();
     }
+    return new PlaceRequest(unescape(token.substring(0, paramSepIndex)), params);
   }
 
   protected String escape(final String value) {
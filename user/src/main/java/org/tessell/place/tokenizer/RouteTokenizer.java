@@ -0,0 +1,287 @@
+package org.tessell.place.tokenizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+import org.tessell.place.PlaceRequest;
+
+/**
+ * Formats tokens using route patterns like {@code orders/{id:long}/lines/{lineId}}.
+ *
+ * Routes are compiled into a trie of path segments, so matching a token only walks its
+ * segments once, regardless of how many routes there are. Path parameters can be typed
+ * as {@code :long}, {@code :int} or {@code :string} (the default), and are parsed while
+ * matching and available from {@link PlaceRequest#getTypedParameter(String)}.
+ *
+ * Any parameters that aren't in the route are appended like {@code ;key=value}, and tokens
+ * (or requests) that don't match a route are handled by a fallback {@link DefaultTokenizer}.
+ */
+public class RouteTokenizer implements Tokenizer {
+
+  private final Tokenizer fallback;
+  private final Node root = new Node();
+  private final HashMap<String, Route> routesByPlace = new HashMap<String, Route>();
+
+  public RouteTokenizer() {
+    this(new DefaultTokenizer());
+  }
+
+  public RouteTokenizer(final Tokenizer fallback) {
+    this.fallback = fallback;
+  }
+
+  /** Adds {@code pattern} as the route for the place {@code placeName}. */
+  public void addRoute(final String placeName, final String pattern) {
+    if (routesByPlace.containsKey(placeName)) {
+      throw new IllegalStateException(placeName + " already has a route");
+    }
+    final Route route = new Route(placeName, pattern);
+    Node node = root;
+    for (final Segment segment : route.segments) {
+      node = node.child(segment);
+    }
+    if (node.route != null) {
+      throw new IllegalStateException(pattern + " is already used by " + node.route.placeName);
+    }
+    node.route = route;
+    route.node = node;
+    routesByPlace.put(placeName, route);
+  }
+
+  /** Removes the route for the place {@code placeName}, if any. */
+  public void removeRoute(final String placeName) {
+    final Route route = routesByPlace.remove(placeName);
+    if (route != null) {
+      route.node.route = null;
+    }
+  }
+
+  public String toHistoryToken(final PlaceRequest request) {
+    final Route route = routesByPlace.get(request.getName());
+    if (route == null) {
+      return fallback.toHistoryToken(request);
+    }
+    final StringBuilder out = new StringBuilder();
+    for (final Segment segment : route.segments) {
+      if (out.length() > 0) {
+        out.append('/');
+      }
+      if (segment.type == null) {
+        out.append(escape(segment.value));
+      } else {
+        final String value = request.getParameter(segment.value, null);
+        if (value == null) {
+          return fallback.toHistoryToken(request); // can't fill in the route
+        }
+        out.append(escape(value));
+      }
+    }
+    for (final String name : request.getParameterNames()) {
+      if (!route.paramNames.contains(name)) {
+        out.append(';').append(escape(name)).append('=').append(escape(request.getParameter(name, "")));
+      }
+    }
+    return out.toString();
+  }
+
+  public PlaceRequest toPlaceRequest(final String token) throws TokenizerException {
+    final int paramsStart = token.indexOf(';');
+    final String path = paramsStart == -1 ? token : token.substring(0, paramsStart);
+    final ArrayList<Object> values = new ArrayList<Object>();
+    final Route route = match(root, path, 0, values);
+    if (route == null) {
+      return fallback.toPlaceRequest(token);
+    }
+    final LinkedHashMap<String, String> params = new LinkedHashMap<String, String>();
+    final HashMap<String, Object> typedParams = new HashMap<String, Object>();
+    for (int i = 0; i < values.size(); i++) {
+      final String name = route.paramNames.get(i);
+      params.put(name, values.get(i).toString());
+      typedParams.put(name, values.get(i));
+    }
+    // parse any ;key=value parameters in one pass
+    int start = paramsStart;
+    while (start != -1) {
+      final int end = token.indexOf(';', start + 1);
+      final String param = end == -1 ? token.substring(start + 1) : token.substring(start + 1, end);
+      final int eq = param.indexOf('=');
+      if (eq == -1) {
+        params.put(unescape(param), "");
+      } else if (param.indexOf('=', eq + 1) == -1) {
+        params.put(unescape(param.substring(0, eq)), unescape(param.substring(eq + 1)));
+      } else {
+        throw new TokenizerException("Parameters require a single '=' between the key and value.");
+      }
+      start = end;
+    }
+    return new PlaceRequest(route.placeName, params, typedParams);
+  }
+
+  /** Matches the segments of {@code path} from {@code from}, trying literals before parameters. */
+  private Route match(final Node node, final String path, final int from, final ArrayList<Object> values) {
+    if (from == -1) {
+      return node.route;
+    }
+    final int end = path.indexOf('/', from);
+    final String segment = end == -1 ? path.substring(from) : path.substring(from, end);
+    final int next = end == -1 ? -1 : end + 1;
+    if (node.literals != null) {
+      final Node literal = node.literals.get(unescape(segment));
+      if (literal != null) {
+        final Route route = match(literal, path, next, values);
+        if (route != null) {
+          return route;
+        }
+      }
+    }
+    if (node.params != null) {
+      for (final Node param : node.params) {
+        final Object value = param.type.parse(unescape(segment));
+        if (value != null) {
+          values.add(value);
+          final Route route = match(param, path, next, values);
+          if (route != null) {
+            return route;
+          }
+          values.remove(values.size() - 1);
+        }
+      }
+    }
+    return null;
+  }
+
+  protected String escape(final String value) {
+    return Codec.encodeQueryString(value);
+  }
+
+  protected String unescape(final String value) {
+    return Codec.decodeQueryString(value);
+  }
+
+  /** The types of path parameters, in the order they're tried when matching. */
+  private enum ParamType {
+    LONG, INT, STRING;
+
+    private static ParamType parse(final String name, final String pattern) {
+      if (name == null || name.equals("string")) {
+        return STRING;
+      } else if (name.equals("long")) {
+        return LONG;
+      } else if (name.equals("int")) {
+        return INT;
+      }
+      throw new IllegalArgumentException("Unknown parameter type " + name + " in " + pattern);
+    }
+
+    /** @return the parsed value, or {@code null} if {@code value} isn't valid for this type */
+    private Object parse(final String value) {
+      if (value.length() == 0) {
+        return null;
+      }
+      try {
+        switch (this) {
+          case LONG:
+            return Long.valueOf(value);
+          case INT:
+            return Integer.valueOf(value);
+          default:
+            return value;
+        }
+      } catch (final NumberFormatException nfe) {
+        return null;
+      }
+    }
+  }
+
+  /** A literal segment (with a {@code null} type) or a parameter name and type. */
+  private static class Segment {
+    private final String value;
+    private final ParamType type;
+
+    private Segment(final String value, final ParamType type) {
+      this.value = value;
+      this.type = type;
+    }
+  }
+
+  /** A parsed route pattern. */
+  private static class Route {
+    private final String placeName;
+    private final ArrayList<Segment> segments = new ArrayList<Segment>();
+    private final ArrayList<String> paramNames = new ArrayList<String>();
+    private Node node;
+
+    private Route(final String placeName, final String pattern) {
+      this.placeName = placeName;
+      if (pattern.length() == 0) {
+        throw new IllegalArgumentException("Routes cannot be empty");
+      }
+      int start = 0;
+      while (start != -1) {
+        final int end = pattern.indexOf('/', start);
+        final String part = end == -1 ? pattern.substring(start) : pattern.substring(start, end);
+        if (part.startsWith("{") && part.endsWith("}")) {
+          final int colon = part.indexOf(':');
+          final String name = part.substring(1, colon == -1 ? part.length() - 1 : colon);
+          if (name.length() == 0 || paramNames.contains(name)) {
+            throw new IllegalArgumentException("Invalid parameter " + part + " in " + pattern);
+          }
+          paramNames.add(name);
+          segments.add(new Segment(name, ParamType.parse(colon == -1 ? null : part.substring(colon + 1, part.length() - 1), pattern)));
+        } else if (part.length() == 0 || part.indexOf('{') != -1 || part.indexOf('}') != -1) {
+          throw new IllegalArgumentException("Invalid segment '" + part + "' in " + pattern);
+        } else {
+          segments.add(new Segment(part, null));
+        }
+        start = end == -1 ? -1 : end + 1;
+      }
+    }
+  }
+
+  /** A node in the trie, with children for literal segments and for each parameter type. */
+  private static class Node {
+    private final ParamType type;
+    private HashMap<String, Node> literals;
+    private ArrayList<Node> params;
+    private Route route;
+
+    private Node() {
+      this(null);
+    }
+
+    private Node(final ParamType type) {
+      this.type = type;
+    }
+
+    private Node child(final Segment segment) {
+      if (segment.type == null) {
+        if (literals == null) {
+          literals = new HashMap<String, Node>();
+        }
+        Node child = literals.get(segment.value);
+        if (child == null) {
+          child = new Node();
+          literals.put(segment.value, child);
+        }
+        return child;
+      }
+      if (params == null) {
+        params = new ArrayList<Node>();
+      }
+      int i = 0;
+      for (; i < params.size(); i++) {
+        if (params.get(i).type == segment.type) {
+          return params.get(i);
+        }
+        if (params.get(i).type.ordinal() > segment.type.ordinal()) {
+          break;
+        }
+      }
+      final Node child = new Node(segment.type);
+      params.add(i, child);
+      return child;
+    }
+  }
+
+}
@@ -21,7 +21,7 @@ public abstract class BasicPresenter<V extends IsWidget> extends AbstractBound i
   /** @return The view for the presenter. */
   @Override
   public V getView() {
-    if (!isBound()) {
+    if (!isBound() && !isSuspended()) {
       throw new IllegalStateException(this + " has not been bound");
     }
     return view;
@@ -51,10 +51,36 @@ public abstract class BasicPresenter<V extends IsWidget> extends AbstractBound i
     binder.unbind();
   }
 
-  /** Adds {@code child} as a child presenter, and binds it if we're already bound. */
+  @Override
+  protected void onResume() {
+    super.onResume();
+    binder.bind();
+    if (children != null) {
+      for (final Presenter child : children) {
+        child.bind();
+      }
+    }
+  }
+
+  @Override
+  protected void onSuspend() {
+    super.onSuspend();
+    if (children != null) {
+      for (final Presenter child : children) {
+        suspendOrUnbind(child);
+      }
+    }
+    binder.suspend();
+  }
+
+  /**
+   * Adds {@code child} as a child presenter, and binds it if we're already bound.
+   *
+   * Children added while we're suspended, e.g. by a list binding, are bound too, so their views can be shown.
+   */
   public <C extends Presenter> C addPresenter(final C child) {
     if (children().add(child)) {
-      if (isBound()) {
+      if (isBound() || isSuspended()) {
         child.bind();
       }
     }
@@ -70,6 +96,19 @@ public abstract class BasicPresenter<V extends IsWidget> extends AbstractBound i
     }
   }
 
+  /**
+   * Removes {@code child} as a child presenter, and suspends it so that it can be added again later.
+   *
+   * Children that aren't {@link AbstractBound}s can't be suspended, so are unbound instead.
+   */
+  public void suspendPresenter(final Presenter child) {
+    if (children().remove(child)) {
+      suspendOrUnbind(child);
+    } else {
+      throw new NoSuchElementException("Presenter was not a child of ours " + child);
+    }
+  }
+
   /** @return our list of child presenters, lazily instantiated. */
   protected ArrayList<Presenter> children() {
     if (children == null) {
@@ -0,0 +1,104 @@
+package org.tessell.presenter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.tessell.bus.AbstractBound;
+import org.tessell.place.PlaceRequest;
+
+/**
+ * Keeps the presenters of recently-visited places alive, so that going back to a place doesn't rebuild its view.
+ *
+ * Presenters are keyed by their {@link PlaceRequest}; when a {@link Slot} using this cache replaces a cached
+ * presenter, it's suspended instead of unbound, and can be put back in the slot later, which resumes it.
+ *
+ * The least-recently-used presenters are unbound once there are more than {@code maxSize} of them, and
+ * {@link #trimTo(int)} can be called to release memory sooner.
+ */
+public class PresenterCache {
+
+  private final LinkedHashMap<PlaceRequest, Presenter> presenters = new LinkedHashMap<PlaceRequest, Presenter>(16, 0.75f, true);
+  private int maxSize;
+
+  public PresenterCache(final int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /** @return the cached presenter for {@code request}, or {@code null} */
+  public Presenter get(final PlaceRequest request) {
+    return presenters.get(request);
+  }
+
+  /** Caches {@code presenter} for {@code request}, evicting the least-recently-used presenters if needed. */
+  public void put(final PlaceRequest request, final Presenter presenter) {
+    final Presenter old = presenters.put(request, presenter);
+    if (old != null && old != presenter) {
+      evicted(request, old);
+    }
+    trimTo(maxSize);
+  }
+
+  /** Removes and unbinds the cached presenter for {@code request}, if any. */
+  public void remove(final PlaceRequest request) {
+    final Presenter old = presenters.remove(request);
+    if (old != null) {
+      evicted(request, old);
+    }
+  }
+
+  /** Removes and unbinds the cached presenters for all requests to the place {@code name}. */
+  public void removePlace(final String name) {
+    for (final PlaceRequest request : new ArrayList<PlaceRequest>(presenters.keySet())) {
+      if (request.getName().equals(name)) {
+        remove(request);
+      }
+    }
+  }
+
+  /** @return whether {@code presenter} is cached, i.e. should be suspended instead of unbound */
+  public boolean contains(final Presenter presenter) {
+    return presenters.containsValue(presenter);
+  }
+
+  /** Evicts the least-recently-used presenters until there are at most {@code size}, e.g. under memory pressure. */
+  public void trimTo(final int size) {
+    final Iterator<Map.Entry<PlaceRequest, Presenter>> i = presenters.entrySet().iterator();
+    while (presenters.size() > size && i.hasNext()) {
+      final Map.Entry<PlaceRequest, Presenter> e = i.next();
+      i.remove();
+      evicted(e.getKey(), e.getValue());
+    }
+  }
+
+  /** Evicts all of the presenters. */
+  public void clear() {
+    trimTo(0);
+  }
+
+  public void setMaxSize(final int maxSize) {
+    this.maxSize = maxSize;
+    trimTo(maxSize);
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public int size() {
+    return presenters.size();
+  }
+
+  /**
+   * Called when {@code presenter} is evicted; by default unbinds it if it's suspended.
+   *
+   * Presenters that are still bound (i.e. currently shown) are left alone, and will be unbound as usual by their slot.
+   */
+  protected void evicted(final PlaceRequest request, final Presenter presenter) {
+    if (presenter instanceof AbstractBound && ((AbstractBound) presenter).isSuspended()) {
+      presenter.unbind();
+    }
+  }
+
+}
@@ -0,0 +1,108 @@
+package org.tessell.presenter;
+
+import java.util.ArrayList;
+
+import org.tessell.bus.AbstractBound;
+
+/**
+ * Keeps suspended {@link ReusablePresenter}s around so that list rows can be reused instead of rebuilt.
+ *
+ * When a row is removed, its presenter is suspended and {@link #offer(ReusablePresenter) offered} to the
+ * pool; when a row is added, an idle presenter is {@link #poll() taken} from the pool, if any, and
+ * {@link ReusablePresenter#rebind(Object) rebound} to the new value.
+ *
+ * At most {@code maxIdle} presenters are kept; any more are unbound. The counts of reused, created,
+ * and discarded presenters can be used to tune {@code maxIdle}.
+ */
+public class PresenterPool<P> {
+
+  private final ArrayList<ReusablePresenter<P>> idle = new ArrayList<ReusablePresenter<P>>();
+  private int maxIdle;
+  private int reused;
+  private int created;
+  private int discarded;
+
+  public PresenterPool(final int maxIdle) {
+    this.maxIdle = maxIdle;
+  }
+
+  /** @return an idle presenter, or {@code null} if the caller should create a new one */
+  public ReusablePresenter<P> poll() {
+    if (idle.isEmpty()) {
+      created++;
+      return null;
+    }
+    reused++;
+    return idle.remove(idle.size() - 1);
+  }
+
+  /**
+   * @return whether {@code presenter} was kept for reuse, otherwise the caller should unbind it
+   *
+   * Only presenters that can be suspended, i.e. {@link AbstractBound}s, are kept, as others can't be bound again.
+   */
+  public boolean offer(final ReusablePresenter<P> presenter) {
+    if (!(presenter instanceof AbstractBound)) {
+      return false;
+    }
+    if (idle.size() >= maxIdle) {
+      discarded++;
+      return false;
+    }
+    idle.add(presenter);
+    return true;
+  }
+
+  /** Unbinds idle presenters until there are at most {@code size}, e.g. under memory pressure. */
+  public void trimTo(final int size) {
+    while (idle.size() > size) {
+      evicted(idle.remove(idle.size() - 1));
+    }
+  }
+
+  /** Unbinds all of the idle presenters. */
+  public void clear() {
+    trimTo(0);
+  }
+
+  public void setMaxIdle(final int maxIdle) {
+    this.maxIdle = maxIdle;
+    trimTo(maxIdle);
+  }
+
+  public int getMaxIdle() {
+    return maxIdle;
+  }
+
+  /** @return the number of idle presenters */
+  public int size() {
+    return idle.size();
+  }
+
+  /** @return the number of times {@link #poll()} returned an idle presenter */
+  public int getReusedCount() {
+    return reused;
+  }
+
+  /** @return the number of times {@link #poll()} came up empty */
+  public int getCreatedCount() {
+    return created;
+  }
+
+  /** @return the number of presenters turned away because the pool was full */
+  public int getDiscardedCount() {
+    return discarded;
+  }
+
+  /** @return the fraction of {@link #poll()} calls that reused a presenter, or 0 if there haven't been any */
+  public double getReuseRate() {
+    final int total = reused + created;
+    return total == 0 ? 0 : (double) reused / total;
+  }
+
+  /** Called when an idle {@code presenter} is dropped from the pool; by default unbinds it. */
+  protected void evicted(final ReusablePresenter<P> presenter) {
+    presenter.unbind();
+  }
+
+}
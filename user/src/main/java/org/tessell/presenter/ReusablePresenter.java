@@ -0,0 +1,16 @@
+package org.tessell.presenter;
+
+/** A presenter for one value, e.g. a row in a list, that can be reused for a different value. */
+public interface ReusablePresenter<P> extends Presenter {
+
+  /**
+   * Switches this presenter to {@code value}.
+   *
+   * Called while the presenter is suspended, right before it's resumed, or while it's bound, when
+   * its list is reloaded with a new instance with the same key. {@code onBind} isn't called again,
+   * so update state in place, e.g. merge {@code value} into the presenter's model, so that its
+   * existing bindings show the new value.
+   */
+  void rebind(P value);
+
+}
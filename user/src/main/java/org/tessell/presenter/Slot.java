@@ -1,14 +1,25 @@
 package org.tessell.presenter;
 
 
-/** Eagerly binds/unbinds a presenter for our parent. */
+/**
+ * Eagerly binds/unbinds a presenter for our parent.
+ *
+ * If given a {@link PresenterCache}, presenters that are in the cache are suspended instead
+ * of unbound, so they can be put back in the slot later.
+ */
 public class Slot<C extends Presenter> {
 
   private final BasicPresenter<?> parent;
+  private final PresenterCache cache;
   private C current;
 
   public Slot(final BasicPresenter<?> parent) {
+    this(parent, null);
+  }
+
+  public Slot(final BasicPresenter<?> parent, final PresenterCache cache) {
     this.parent = parent;
+    this.cache = cache;
   }
 
   public void set(final C presenter) {
@@ -16,7 +27,11 @@ public class Slot<C extends Presenter> {
       return;
     }
     if (current != null) {
-      parent.removePresenter(current);
+      if (cache != null && cache.contains(current)) {
+        parent.suspendPresenter(current);
+      } else {
+        parent.removePresenter(current);
+      }
     }
     current = presenter;
     parent.addPresenter(current);
@@ -8,6 +8,8 @@ import org.tessell.dispatch.client.util.OutstandingDispatchAsync;
 import org.tessell.dispatch.shared.Action;
 import org.tessell.dispatch.shared.Result;
 
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
 /**
  * @param A
  *          the action
@@ -33,12 +35,28 @@ public abstract class ActionCache<A extends Action<R>, R extends Result, D> {
 
   /** Executes <code>A</code> once, queueing any <code>onSuccess</code> until it arrives. */
   public void execute(final A action, final SuccessCallback<D> onSuccess) {
+    executeWithFailure(action, onSuccess == null ? null : new SuccessOnly(onSuccess));
+  }
+
+  /**
+   * Executes <code>A</code> once, queueing any <code>callback</code> until it arrives.
+   *
+   * Failures are passed to any queued callbacks, and are not cached, so the next
+   * call will execute <code>A</code> again.
+   */
+  public void executeWithFailure(final A action, final AsyncCallback<D> callback) {
     ResultHandler h = results.get(action);
     if (h == null) {
       h = new ResultHandler(action);
       results.put(action, h);
     }
-    h.execute(onSuccess);
+    h.execute(callback);
+  }
+
+  /** @return whether the result of <code>A</code> has already been cached */
+  public boolean isCached(final A action) {
+    final ResultHandler h = results.get(action);
+    return h != null && h.derived != null;
   }
 
   /** Clears all cached results. */
@@ -47,9 +65,9 @@ public abstract class ActionCache<A extends Action<R>, R extends Result, D> {
   }
 
   /** For given action, calls and caches its derived result. */
-  private class ResultHandler implements SuccessCallback<R> {
+  private class ResultHandler implements AsyncCallback<R> {
     private final A action;
-    private final ArrayList<SuccessCallback<D>> onSuccess = new ArrayList<SuccessCallback<D>>();
+    private final ArrayList<AsyncCallback<D>> callbacks = new ArrayList<AsyncCallback<D>>();
     private D derived;
     private boolean calling;
 
@@ -57,18 +75,18 @@ public abstract class ActionCache<A extends Action<R>, R extends Result, D> {
       this.action = action;
     }
 
-    private void execute(final SuccessCallback<D> onSuccess) {
+    private void execute(final AsyncCallback<D> callback) {
       if (derived != null) {
-        if (onSuccess != null) {
-          onSuccess.onSuccess(derived);
+        if (callback != null) {
+          callback.onSuccess(derived);
         }
       } else if (calling) {
-        if (onSuccess != null) {
-          this.onSuccess.add(onSuccess);
+        if (callback != null) {
+          callbacks.add(callback);
         }
       } else {
-        if (onSuccess != null) {
-          this.onSuccess.add(onSuccess);
+        if (callback != null) {
+          callbacks.add(callback);
         }
         calling = true;
         async.execute(action, this);
@@ -76,11 +94,50 @@ public abstract class ActionCache<A extends Action<R>, R extends Result, D> {
     }
 
     public void onSuccess(final R result) {
+      calling = false;
       derived = derive(result);
-      for (final SuccessCallback<D> s : onSuccess) {
-        s.onSuccess(derived);
+      final ArrayList<AsyncCallback<D>> copy = new ArrayList<AsyncCallback<D>>(callbacks);
+      callbacks.clear();
+      for (final AsyncCallback<D> c : copy) {
+        c.onSuccess(derived);
+      }
+    }
+
+    public void onFailure(final Throwable caught) {
+      calling = false;
+      if (results.get(action) == this) {
+        results.remove(action);
+      }
+      final ArrayList<AsyncCallback<D>> copy = new ArrayList<AsyncCallback<D>>(callbacks);
+      callbacks.clear();
+      // like OutstandingDispatchAsync, fire a single unhandled failure for success-only callers
+      boolean unhandled = copy.isEmpty();
+      for (final AsyncCallback<D> c : copy) {
+        if (c instanceof ActionCache.SuccessOnly) {
+          unhandled = true;
+        } else {
+          c.onFailure(caught);
+        }
       }
-      onSuccess.clear();
+      if (unhandled) {
+        async.unhandledFailure(action, caught);
+      }
+    }
+  }
+
+  /** Adapts a {@link SuccessCallback}, leaving failures to {@link ResultHandler}. */
+  private class SuccessOnly implements AsyncCallback<D> {
+    private final SuccessCallback<D> onSuccess;
+
+    private SuccessOnly(final SuccessCallback<D> onSuccess) {
+      this.onSuccess = onSuccess;
+    }
+
+    public void onSuccess(final D result) {
+      onSuccess.onSuccess(result);
+    }
+
+    public void onFailure(final Throwable caught) {
     }
   }
 }
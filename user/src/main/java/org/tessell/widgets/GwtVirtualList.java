@@ -0,0 +1,134 @@
+package org.tessell.widgets;
+
+import java.util.List;
+
+import org.tessell.gwt.dom.client.GwtElement;
+import org.tessell.gwt.dom.client.IsElement;
+import org.tessell.gwt.dom.client.IsStyle;
+import org.tessell.gwt.user.client.ui.IsWidget;
+
+import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.event.dom.client.ScrollEvent;
+import com.google.gwt.event.dom.client.ScrollHandler;
+import com.google.gwt.user.client.ui.Composite;
+import com.google.gwt.user.client.ui.FlowPanel;
+import com.google.gwt.user.client.ui.RequiresResize;
+import com.google.gwt.user.client.ui.ScrollPanel;
+import com.google.gwt.user.client.ui.SimplePanel;
+import com.google.gwt.user.client.ui.Widget;
+
+/**
+ * A {@link ScrollPanel} that only renders the rows in its viewport.
+ *
+ * The rendered rows are placed between two spacer divs that take up the height of
+ * the rows above and below them, so the scroll bar reflects the whole list.
+ */
+public class GwtVirtualList<T> extends Composite implements IsVirtualList<T>, RequiresResize {
+
+  private final ScrollPanel scroll = new ScrollPanel();
+  private final SimplePanel top = new SimplePanel();
+  private final FlowPanel rows = new FlowPanel();
+  private final SimplePanel bottom = new SimplePanel();
+  private final VirtualListLayout<T> layout = new VirtualListLayout<T>() {
+    protected void insertView(IsWidget view, int position) {
+      rows.insert(view.asWidget(), position);
+    }
+
+    protected void removeView(IsWidget view) {
+      rows.remove(view.asWidget());
+    }
+
+    protected void setSpacers(int topHeight, int bottomHeight) {
+      top.getElement().getStyle().setHeight(topHeight, Unit.PX);
+      bottom.getElement().getStyle().setHeight(bottomHeight, Unit.PX);
+    }
+  };
+
+  public GwtVirtualList() {
+    final FlowPanel inner = new FlowPanel();
+    inner.add(top);
+    inner.add(rows);
+    inner.add(bottom);
+    scroll.setWidget(inner);
+    scroll.addScrollHandler(new ScrollHandler() {
+      public void onScroll(ScrollEvent event) {
+        update();
+      }
+    });
+    initWidget(scroll);
+  }
+
+  @Override
+  public void setRenderer(final RowRenderer<T> renderer) {
+    layout.setRenderer(renderer);
+    update();
+  }
+
+  @Override
+  public void setRows(final List<T> rows) {
+    layout.setRows(rows);
+    update();
+  }
+
+  @Override
+  public List<T> getRows() {
+    return layout.getRows();
+  }
+
+  @Override
+  public void setEstimatedRowHeight(final int pixels) {
+    layout.setEstimatedRowHeight(pixels);
+    update();
+  }
+
+  @Override
+  public void setOverscan(final int rows) {
+    layout.setOverscan(rows);
+    update();
+  }
+
+  @Override
+  public void scrollToRow(final int index) {
+    scroll.setScrollPosition(layout.offsetOf(index));
+    update();
+  }
+
+  @Override
+  public void redraw() {
+    layout.redraw();
+  }
+
+  @Override
+  public void onResize() {
+    update();
+  }
+
+  @Override
+  protected void onLoad() {
+    super.onLoad();
+    update();
+  }
+
+  private void update() {
+    // rows can't be measured until we're in the DOM
+    if (isAttached()) {
+      layout.update(scroll.getScrollPosition(), scroll.getOffsetHeight());
+    }
+  }
+
+  @Override
+  public Widget asWidget() {
+    return this;
+  }
+
+  @Override
+  public IsStyle getStyle() {
+    return getIsElement().getStyle();
+  }
+
+  @Override
+  public IsElement getIsElement() {
+    return new GwtElement(getElement());
+  }
+
+}
@@ -135,6 +135,11 @@ public class GwtWidgetsProvider implements WidgetsProvider {
     return new GwtCellList<T>(cell);
   }
 
+  @Override
+  public <T> IsVirtualList<T> newVirtualList() {
+    return new GwtVirtualList<T>();
+  }
+
   @Override
   public IsCheckBox newCheckBox() {
     return new CheckBox();
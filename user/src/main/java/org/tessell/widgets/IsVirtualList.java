@@ -0,0 +1,41 @@
+package org.tessell.widgets;
+
+import java.util.List;
+
+import org.tessell.gwt.user.client.ui.IsWidget;
+
+/**
+ * A scrolling list that only has views for the rows in (or near) its viewport.
+ *
+ * Views are created by a {@link RowRenderer} and recycled as the user scrolls,
+ * so a list of thousands of rows only ever has a screenful of views.
+ */
+public interface IsVirtualList<T> extends IsWidget {
+
+  /** Creates row views, and fills them in with (possibly different) values as they're recycled. */
+  interface RowRenderer<T> {
+    IsWidget createView();
+
+    void render(IsWidget view, T value);
+  }
+
+  void setRenderer(RowRenderer<T> renderer);
+
+  /** Sets the rows, re-rendering any views that are visible. */
+  void setRows(List<T> rows);
+
+  List<T> getRows();
+
+  /** Sets the height used for rows that haven't been rendered (and measured) yet. */
+  void setEstimatedRowHeight(int pixels);
+
+  /** Sets how many rows to render above and below the viewport, to avoid blank rows while scrolling. */
+  void setOverscan(int rows);
+
+  /** Scrolls so that row {@code index} is at the top of the viewport. */
+  void scrollToRow(int index);
+
+  /** Re-renders the visible rows, e.g. after their values have changed in place. */
+  void redraw();
+
+}
@@ -9,12 +9,22 @@ import org.tessell.widgets.cellview.StubCellTable;
 import com.google.gwt.core.client.impl.SchedulerImpl;
 import com.google.gwt.user.cellview.client.PublicHasDataPresenter;
 
-/** A fake scheduler that can as-needed pretend to defer commands or execute them immediately. */
+/**
+ * A fake scheduler that can as-needed pretend to defer commands or execute them immediately.
+ *
+ * Fixed delay/period commands are not run until tests move the fake clock forward with {@link #advance(int)}.
+ *
+ * Within {@link #runWithDeferred(Runnable)}, finally commands run first, in the order they were
+ * scheduled, then deferred commands, like the end of a browser event loop.
+ */
 public class StubScheduler extends SchedulerImpl {
 
   private int deferredLevel = 0;
+  private final List<ScheduledCommand> finallys = new ArrayList<ScheduledCommand>();
   private final List<ScheduledCommand> deferred = new ArrayList<ScheduledCommand>();
   private final List<RepeatingCommand> repeating = new ArrayList<RepeatingCommand>();
+  private final List<Timed> timed = new ArrayList<Timed>();
+  private int now = 0;
 
   public static StubScheduler get() {
     return StubGWTBridge.getScheduler();
@@ -34,6 +44,11 @@ public class StubScheduler extends SchedulerImpl {
     // until the last one is complete
     deferredLevel--;
     if (deferredLevel == 0) {
+      for (Iterator<ScheduledCommand> i = finallys.iterator(); i.hasNext();) {
+        i.next().execute();
+        i.remove();
+      }
+
       for (Iterator<ScheduledCommand> i = deferred.iterator(); i.hasNext();) {
         i.next().execute();
         i.remove();
@@ -77,16 +92,45 @@ public class StubScheduler extends SchedulerImpl {
     if (executeImmediately()) {
       cmd.execute();
     } else {
-      deferred.add(cmd);
+      finallys.add(cmd);
     }
   }
 
   @Override
   public void scheduleFixedDelay(final RepeatingCommand cmd, final int delayMs) {
+    timed.add(new Timed(cmd, delayMs, now + delayMs));
   }
 
   @Override
   public void scheduleFixedPeriod(final RepeatingCommand cmd, final int delayMs) {
+    timed.add(new Timed(cmd, delayMs, now + delayMs));
+  }
+
+  /** Moves the fake clock forward {@code millis}, running any fixed delay/period commands that come due, in order. */
+  public void advance(final int millis) {
+    final int target = now + millis;
+    while (true) {
+      Timed next = null;
+      for (final Timed t : timed) {
+        if (t.dueAt <= target && (next == null || t.dueAt < next.dueAt)) {
+          next = t;
+        }
+      }
+      if (next == null) {
+        break;
+      }
+      timed.remove(next);
+      now = next.dueAt;
+      if (next.command.execute()) {
+        timed.add(new Timed(next.command, next.delay, now + next.delay));
+      }
+    }
+    now = target;
+  }
+
+  /** @return the number of fixed delay/period commands waiting to run */
+  public int getTimedCount() {
+    return timed.size();
   }
 
   @Override
@@ -97,4 +141,17 @@ public class StubScheduler extends SchedulerImpl {
     return deferredLevel == 0;
   }
 
+  /** A fixed delay/period command and when it should next run. */
+  private static class Timed {
+    private final RepeatingCommand command;
+    private final int delay;
+    private final int dueAt;
+
+    private Timed(final RepeatingCommand command, final int delay, final int dueAt) {
+      this.command = command;
+      this.delay = delay;
+      this.dueAt = dueAt;
+    }
+  }
+
 }
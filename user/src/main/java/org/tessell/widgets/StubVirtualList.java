@@ -0,0 +1,103 @@
+package org.tessell.widgets;
+
+import java.util.List;
+
+import org.tessell.gwt.user.client.ui.IsWidget;
+
+/** A stub {@link IsVirtualList} with a fake viewport, see {@link #setViewportHeight(int)} and {@link #scrollTo(int)}. */
+public class StubVirtualList<T> extends StubWidget implements IsVirtualList<T> {
+
+  private final VirtualListLayout<T> layout = new VirtualListLayout<T>() {
+    protected void insertView(IsWidget view, int position) {
+    }
+
+    protected void removeView(IsWidget view) {
+    }
+
+    protected void setSpacers(int top, int bottom) {
+      topSpacer = top;
+      bottomSpacer = bottom;
+    }
+  };
+  private int scrollTop;
+  private int viewportHeight = 200;
+  private int topSpacer;
+  private int bottomSpacer;
+
+  @Override
+  public void setRenderer(final RowRenderer<T> renderer) {
+    layout.setRenderer(renderer);
+    update();
+  }
+
+  @Override
+  public void setRows(final List<T> rows) {
+    layout.setRows(rows);
+    update();
+  }
+
+  @Override
+  public List<T> getRows() {
+    return layout.getRows();
+  }
+
+  @Override
+  public void setEstimatedRowHeight(final int pixels) {
+    layout.setEstimatedRowHeight(pixels);
+    update();
+  }
+
+  @Override
+  public void setOverscan(final int rows) {
+    layout.setOverscan(rows);
+    update();
+  }
+
+  @Override
+  public void scrollToRow(final int index) {
+    scrollTo(layout.offsetOf(index));
+  }
+
+  @Override
+  public void redraw() {
+    layout.redraw();
+  }
+
+  /** Simulates the user scrolling to {@code scrollTop}. */
+  public void scrollTo(final int scrollTop) {
+    this.scrollTop = scrollTop;
+    update();
+  }
+
+  public void setViewportHeight(final int viewportHeight) {
+    this.viewportHeight = viewportHeight;
+    update();
+  }
+
+  public int getScrollTop() {
+    return scrollTop;
+  }
+
+  /** @return the views currently rendered, in row order */
+  public List<IsWidget> getRenderedViews() {
+    return layout.getViews();
+  }
+
+  /** @return the index of the first rendered row */
+  public int getFirstRenderedRow() {
+    return layout.getFirstRendered();
+  }
+
+  public int getTopSpacer() {
+    return topSpacer;
+  }
+
+  public int getBottomSpacer() {
+    return bottomSpacer;
+  }
+
+  private void update() {
+    layout.update(scrollTop, viewportHeight);
+  }
+
+}
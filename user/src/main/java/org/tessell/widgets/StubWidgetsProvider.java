@@ -145,6 +145,11 @@ public class StubWidgetsProvider implements WidgetsProvider {
     return new StubCellList<T>(cell);
   }
 
+  @Override
+  public <T> IsVirtualList<T> newVirtualList() {
+    return new StubVirtualList<T>();
+  }
+
   @Override
   public IsCheckBox newCheckBox() {
     return new StubCheckBox();
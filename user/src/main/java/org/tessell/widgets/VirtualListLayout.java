@@ -0,0 +1,209 @@
+package org.tessell.widgets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.tessell.gwt.user.client.ui.IsWidget;
+import org.tessell.widgets.IsVirtualList.RowRenderer;
+
+/**
+ * Decides which rows of an {@link IsVirtualList} to render, for both the GWT and stub implementations.
+ *
+ * Row heights start as an estimate and are replaced with the measured height of each row once
+ * it's rendered. The heights are kept in a Fenwick tree, so finding the row at a scroll position,
+ * or the offset of a row, takes {@code O(log n)} even with tens of thousands of rows.
+ */
+public abstract class VirtualListLayout<T> {
+
+  private final ArrayList<IsWidget> views = new ArrayList<IsWidget>();
+  private final ArrayList<IsWidget> pool = new ArrayList<IsWidget>();
+  private List<T> rows = new ArrayList<T>();
+  private RowRenderer<T> renderer;
+  private int estimatedHeight = 20;
+  private int overscan = 3;
+  private int[] heights = new int[0]; // measured heights, or 0 if not measured
+  private int[] tree = new int[1]; // fenwick tree of heights, 1-based
+  private int first;
+  private int scrollTop;
+  private int viewportHeight;
+
+  /** Inserts {@code view} at {@code position} among the rendered views. */
+  protected abstract void insertView(IsWidget view, int position);
+
+  /** Removes {@code view} from the rendered views. */
+  protected abstract void removeView(IsWidget view);
+
+  /** Sets the blank space above and below the rendered views. */
+  protected abstract void setSpacers(int top, int bottom);
+
+  public void setRenderer(final RowRenderer<T> renderer) {
+    this.renderer = renderer;
+    clearViews();
+    pool.clear();
+  }
+
+  /** Sets the rows, keeping the measured heights of the rows that are still there. */
+  public void setRows(final List<T> rows) {
+    this.rows = rows == null ? new ArrayList<T>() : rows;
+    final int[] old = heights;
+    heights = new int[this.rows.size()];
+    System.arraycopy(old, 0, heights, 0, Math.min(old.length, heights.length));
+    rebuildTree();
+    // rows may have changed in place, so re-render the views we keep
+    clearViews();
+  }
+
+  public List<T> getRows() {
+    return rows;
+  }
+
+  public void setEstimatedRowHeight(final int estimatedHeight) {
+    this.estimatedHeight = estimatedHeight;
+    rebuildTree();
+  }
+
+  public void setOverscan(final int overscan) {
+    this.overscan = overscan;
+  }
+
+  /** Renders the rows for the current viewport. */
+  public void update(final int scrollTop, final int viewportHeight) {
+    this.scrollTop = scrollTop;
+    this.viewportHeight = viewportHeight;
+    if (renderer == null) {
+      return;
+    }
+    // measuring rows can change which rows are visible, so repeat (a few times at most) until it settles
+    for (int i = 0; i < 3; i++) {
+      if (!render()) {
+        break;
+      }
+    }
+    final int last = first + views.size();
+    setSpacers(offsetOf(first), offsetOf(rows.size()) - offsetOf(last));
+  }
+
+  /** Re-renders the visible rows. */
+  public void redraw() {
+    clearViews();
+    update(scrollTop, viewportHeight);
+  }
+
+  /** @return the offset in pixels of the top of row {@code index} */
+  public int offsetOf(final int index) {
+    int sum = 0;
+    for (int i = index; i > 0; i -= i & -i) {
+      sum += tree[i];
+    }
+    return sum;
+  }
+
+  /** @return the index of the row at {@code offset} pixels from the top */
+  public int rowAt(final int offset) {
+    // walk down the fenwick tree, finding the last row that starts at or before offset
+    int index = 0;
+    int remaining = offset;
+    for (int step = Integer.highestOneBit(Math.max(1, rows.size())); step > 0; step >>= 1) {
+      final int next = index + step;
+      if (next <= rows.size() && tree[next] <= remaining) {
+        index = next;
+        remaining -= tree[next];
+      }
+    }
+    return Math.min(index, Math.max(0, rows.size() - 1));
+  }
+
+  /** @return the index of the first rendered row */
+  public int getFirstRendered() {
+    return first;
+  }
+
+  /** @return the currently rendered views, in row order */
+  public List<IsWidget> getViews() {
+    return views;
+  }
+
+  /** @return whether any heights changed, meaning the range should be re-checked */
+  private boolean render() {
+    final int newFirst = rows.isEmpty() ? 0 : Math.max(0, rowAt(scrollTop) - overscan);
+    final int lastVisible = rowAt(scrollTop + Math.max(0, viewportHeight - 1));
+    final int newLast = rows.isEmpty() ? 0 : Math.min(rows.size(), lastVisible + 1 + overscan);
+    // recycle views that scrolled out of range
+    int last = first + views.size();
+    while (!views.isEmpty() && (first < newFirst || first >= newLast)) {
+      recycle(views.remove(0));
+      first++;
+    }
+    while (!views.isEmpty() && (last > newLast || last <= newFirst)) {
+      recycle(views.remove(views.size() - 1));
+      last--;
+    }
+    if (views.isEmpty()) {
+      first = newFirst;
+      last = newFirst;
+    }
+    // add views for rows that scrolled into range
+    boolean changed = false;
+    while (first > newFirst) {
+      first--;
+      changed |= show(first, 0);
+    }
+    while (last < newLast) {
+      changed |= show(last, views.size());
+      last++;
+    }
+    return changed;
+  }
+
+  /** Renders row {@code index} into a recycled or new view, returning whether its height changed. */
+  private boolean show(final int index, final int position) {
+    final IsWidget view = pool.isEmpty() ? renderer.createView() : pool.remove(pool.size() - 1);
+    renderer.render(view, rows.get(index));
+    views.add(position, view);
+    insertView(view, position);
+    final int measured = view.getOffsetHeight();
+    if (measured > 0) {
+      final int delta = measured - heightOf(index);
+      heights[index] = measured;
+      if (delta != 0) {
+        add(index, delta);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void recycle(final IsWidget view) {
+    removeView(view);
+    pool.add(view);
+  }
+
+  private void clearViews() {
+    while (!views.isEmpty()) {
+      recycle(views.remove(views.size() - 1));
+    }
+  }
+
+  private int heightOf(final int index) {
+    return heights[index] > 0 ? heights[index] : estimatedHeight;
+  }
+
+  private void rebuildTree() {
+    // O(n) construction, pushing each node's sum up to its parent
+    tree = new int[heights.length + 1];
+    for (int i = 1; i <= heights.length; i++) {
+      tree[i] += heightOf(i - 1);
+      final int parent = i + (i & -i);
+      if (parent <= heights.length) {
+        tree[parent] += tree[i];
+      }
+    }
+  }
+
+  private void add(final int index, final int delta) {
+    for (int i = index + 1; i < tree.length; i += i & -i) {
+      tree[i] += delta;
+    }
+  }
+
+}
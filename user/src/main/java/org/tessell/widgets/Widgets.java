@@ -216,6 +216,10 @@ public class Widgets {
     return provider.newCellList(cell);
   }
 
+  public static <T> IsVirtualList<T> newVirtualList() {
+    return provider.newVirtualList();
+  }
+
   public static IsPopupPanel newPopupPanel() {
     return provider.newPopupPanel();
   }
@@ -106,6 +106,8 @@ public interface WidgetsProvider {
 
   <T> IsCellList<T> newCellList(Cell<T> cell);
 
+  <T> IsVirtualList<T> newVirtualList();
+
   IsSuggestBox newSuggestBox(SuggestOracle oracle);
 
   IsSuggestBox newSuggestBox(SuggestOracle oracle, IsTextBoxBase box);
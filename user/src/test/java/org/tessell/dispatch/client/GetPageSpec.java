@@ -0,0 +1,19 @@
+package org.tessell.dispatch.client;
+
+import java.util.ArrayList;
+
+import org.tessell.GenDispatch;
+import org.tessell.In;
+import org.tessell.Out;
+
+@GenDispatch(baseAction = "org.tessell.dispatch.shared.AbstractPagedAction", baseResult = "org.tessell.dispatch.shared.AbstractPagedResult<String>")
+public class GetPageSpec {
+  @In(1)
+  String cursor;
+  @In(2)
+  int pageSize;
+  @Out(1)
+  ArrayList<String> items;
+  @Out(2)
+  String nextCursor;
+}
@@ -0,0 +1,97 @@
+package org.tessell.dispatch.client;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.tessell.dispatch.server.ResultVersionsTest.rows;
+
+import org.junit.Test;
+import org.tessell.dispatch.server.ResultVersions;
+import org.tessell.dispatch.server.ResultVersionsTest.RowsResult;
+import org.tessell.dispatch.shared.DeltaResult;
+import org.tessell.dispatch.shared.NotModifiedResult;
+import org.tessell.dispatch.shared.Result;
+
+public class VersionedResultsTest {
+
+  private final VersionedResults versioned = new VersionedResults(10);
+  private final GetTestAction action = new GetTestAction("a");
+
+  @Test
+  public void remembersFullResults() {
+    RowsResult r = rows("a=1", "b=2");
+    assertThat(versioned.resolve(action, null, r), is(sameInstance((Result) r)));
+    assertThat(versioned.get(new GetTestAction("a")), is(sameInstance((Object) r)));
+  }
+
+  @Test
+  public void doesNotRememberResultsWithoutAVersion() {
+    RowsResult r = rows("a=1", "b=2");
+    r.setVersion(null);
+    versioned.resolve(action, null, r);
+    assertThat(versioned.get(action), is(nullValue()));
+  }
+
+  @Test
+  public void resolvesNotModifiedToTheKnownResult() {
+    RowsResult known = rows("a=1", "b=2");
+    versioned.resolve(action, null, known);
+    assertThat(versioned.resolve(action, known, new NotModifiedResult()), is(sameInstance((Result) known)));
+  }
+
+  @Test
+  public void appliesDeltasToACopy() {
+    RowsResult known = rows("a=1", "b=2", "c=3");
+    versioned.resolve(action, null, known);
+    RowsResult current = rows("a=1", "b=4", "c=3");
+    DeltaResult delta = ResultVersions.diff(known.getEntries(), current.getEntries(), current.getVersion());
+
+    Result resolved = versioned.resolve(action, known, delta);
+    assertThat(resolved, is(not(sameInstance((Result) known))));
+    assertThat(resolved.toString(), is("[a=1, b=4, c=3]"));
+    assertThat(((RowsResult) resolved).getVersion(), is(current.getVersion()));
+    assertThat(versioned.get(action), is(sameInstance((Object) resolved)));
+    // callbacks that already have the known result don't see it change
+    assertThat(known.toString(), is("[a=1, b=2, c=3]"));
+  }
+
+  @Test
+  public void appliesALateDeltaToTheResultItWasAgainst() {
+    RowsResult v1 = rows("a=1", "b=2", "c=3");
+    versioned.resolve(action, null, v1);
+    // a second request gets a full response first
+    versioned.resolve(action, v1, rows("a=5", "b=6", "c=7"));
+    // then the first request's delta against v1 arrives
+    DeltaResult delta = ResultVersions.diff(v1.getEntries(), rows("a=1", "b=4", "c=3").getEntries(), "v2");
+    assertThat(versioned.resolve(action, v1, delta).toString(), is("[a=1, b=4, c=3]"));
+    assertThat(v1.toString(), is("[a=1, b=2, c=3]"));
+  }
+
+  @Test
+  public void forgetsTheKnownResultWhenADeltaDoesNotApply() {
+    RowsResult known = rows("a=1", "b=2");
+    versioned.resolve(action, null, known);
+    DeltaResult delta = ResultVersions.diff(rows("x=1", "y=2").getEntries(), rows("x=1", "y=2", "z=3").getEntries(), "v2");
+    try {
+      versioned.resolve(action, known, delta);
+      fail();
+    } catch (IllegalStateException ise) {
+      assertThat(ise.getMessage(), is("Delta to v2 has unknown key x"));
+    }
+    assertThat(versioned.get(action), is(nullValue()));
+  }
+
+  @Test
+  public void failsWithoutAKnownResult() {
+    try {
+      versioned.resolve(action, null, new NotModifiedResult());
+      fail();
+    } catch (IllegalStateException ise) {
+      assertThat(ise.getMessage().startsWith("Received"), is(true));
+    }
+  }
+
+}
@@ -0,0 +1,288 @@
+package org.tessell.dispatch.server;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.tessell.dispatch.client.GetPageAction;
+import org.tessell.dispatch.client.GetPageResult;
+import org.tessell.dispatch.client.GetTestAction;
+import org.tessell.dispatch.client.GetTestResult;
+import org.tessell.dispatch.server.cache.LocalResultCache;
+import org.tessell.dispatch.server.cache.ResultCache;
+import org.tessell.dispatch.server.handlers.CacheableActionHandler;
+import org.tessell.dispatch.server.handlers.InvalidatingActionHandler;
+
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+public class DefaultActionDispatchTest {
+
+  private final DefaultActionDispatch dispatch = new DefaultActionDispatch();
+  private final StubCache cache = new StubCache();
+  private final GetTestHandler handler = new GetTestHandler();
+
+  {
+    dispatch.setResultCache(cache);
+    dispatch.addHandler(handler);
+  }
+
+  @Test
+  public void cachesResultsOfIdenticalActions() {
+    GetTestResult r1 = dispatch.execute(new GetTestAction("a"), null);
+    GetTestResult r2 = dispatch.execute(new GetTestAction("a"), null);
+    assertThat(r2, is(sameInstance(r1)));
+    assertThat(handler.executions, is(1));
+  }
+
+  @Test
+  public void doesNotShareResultsOfDifferentActions() {
+    dispatch.execute(new GetTestAction("a"), null);
+    dispatch.execute(new GetTestAction("b"), null);
+    assertThat(handler.executions, is(2));
+  }
+
+  @Test
+  public void skipsCachingForNullKeys() {
+    dispatch.execute(new GetTestAction(null), null);
+    dispatch.execute(new GetTestAction(null), null);
+    assertThat(handler.executions, is(2));
+  }
+
+  @Test
+  public void reloadsExpiredResults() {
+    dispatch.execute(new GetTestAction("a"), null);
+    cache.now += 100;
+    dispatch.execute(new GetTestAction("a"), null);
+    assertThat(handler.executions, is(2));
+  }
+
+  @Test
+  public void invalidatesByTag() {
+    dispatch.execute(new GetTestAction("a"), null);
+    cache.invalidate("other");
+    dispatch.execute(new GetTestAction("a"), null);
+    assertThat(handler.executions, is(1));
+    cache.invalidate("tests");
+    dispatch.execute(new GetTestAction("a"), null);
+    assertThat(handler.executions, is(2));
+  }
+
+  @Test
+  public void doesNotCacheFailures() {
+    handler.fail = true;
+    try {
+      dispatch.execute(new GetTestAction("a"), null);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertThat(iae.getMessage(), is("failed"));
+    }
+    handler.fail = false;
+    dispatch.execute(new GetTestAction("a"), null);
+    assertThat(handler.executions, is(2));
+    assertThat(cache.size(), is(1));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsed() {
+    dispatch.execute(new GetTestAction("a"), null);
+    dispatch.execute(new GetTestAction("b"), null);
+    dispatch.execute(new GetTestAction("a"), null);
+    dispatch.execute(new GetTestAction("c"), null);
+    assertThat(cache.size(), is(2));
+    // b was evicted, a was not
+    dispatch.execute(new GetTestAction("a"), null);
+    assertThat(handler.executions, is(3));
+    dispatch.execute(new GetTestAction("b"), null);
+    assertThat(handler.executions, is(4));
+  }
+
+  @Test
+  public void executeAsyncRunsSynchronousHandlers() {
+    final GetTestResult[] result = { null };
+    dispatch.executeAsync(new GetTestAction("a"), null, new AsyncCallback<GetTestResult>() {
+      public void onSuccess(GetTestResult r) {
+        result[0] = r;
+      }
+
+      public void onFailure(Throwable caught) {
+        fail();
+      }
+    });
+    assertThat(handler.executions, is(1));
+    assertThat(result[0], is(dispatch.execute(new GetTestAction("a"), null)));
+  }
+
+  @Test
+  public void executeAsyncPassesFailuresToTheCallback() {
+    handler.fail = true;
+    final Throwable[] failure = { null };
+    dispatch.executeAsync(new GetTestAction("a"), null, new AsyncCallback<GetTestResult>() {
+      public void onSuccess(GetTestResult r) {
+        fail();
+      }
+
+      public void onFailure(Throwable caught) {
+        failure[0] = caught;
+      }
+    });
+    assertThat(failure[0].getMessage(), is("failed"));
+  }
+
+  @Test
+  public void concurrentRequestsShareOneLoad() throws Exception {
+    final LocalResultCache cache = new LocalResultCache(10);
+    final CountDownLatch loading = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger loads = new AtomicInteger();
+    final ResultCache.Loader<GetTestResult> loader = new ResultCache.Loader<GetTestResult>() {
+      public GetTestResult load() {
+        loads.incrementAndGet();
+        loading.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException ie) {
+          throw new IllegalStateException(ie);
+        }
+        return new GetTestResult();
+      }
+    };
+    final GetTestResult[] results = new GetTestResult[2];
+    final Thread first = new Thread() {
+      public void run() {
+        results[0] = cache.get("a", 100, null, loader);
+      }
+    };
+    final Thread second = new Thread() {
+      public void run() {
+        results[1] = cache.get("a", 100, null, loader);
+      }
+    };
+    first.start();
+    loading.await();
+    second.start();
+    // wait until the second caller is blocked on the first caller's load
+    while (second.getState() != Thread.State.WAITING) {
+      Thread.sleep(1);
+    }
+    release.countDown();
+    first.join();
+    second.join();
+    assertThat(loads.get(), is(1));
+    assertThat(results[1], is(sameInstance(results[0])));
+  }
+
+  @Test
+  public void invalidatingHandlersEvictTheirTagsOnSuccess() {
+    final InvalidatingHandler invalidating = new InvalidatingHandler();
+    dispatch.addHandler(invalidating);
+    dispatch.execute(new GetTestAction("a"), null);
+    dispatch.execute(new GetPageAction("c", 10), null);
+    dispatch.execute(new GetTestAction("a"), null);
+    assertThat(handler.executions, is(2));
+  }
+
+  @Test
+  public void invalidatingHandlersDoNotEvictOnFailure() {
+    final InvalidatingHandler invalidating = new InvalidatingHandler();
+    invalidating.fail = true;
+    dispatch.addHandler(invalidating);
+    dispatch.execute(new GetTestAction("a"), null);
+    try {
+      dispatch.execute(new GetPageAction("c", 10), null);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertThat(iae.getMessage(), is("failed"));
+    }
+    dispatch.execute(new GetTestAction("a"), null);
+    assertThat(handler.executions, is(1));
+  }
+
+  private static class StubCache extends LocalResultCache {
+    private long now = 0;
+
+    private StubCache() {
+      super(2);
+    }
+
+    @Override
+    protected long now() {
+      return now;
+    }
+  }
+
+  /** Pretends {@link GetPageAction} mutates whatever the "tests" tag covers. */
+  private static class InvalidatingHandler implements InvalidatingActionHandler<GetPageAction, GetPageResult> {
+    private boolean fail;
+
+    @Override
+    public Class<GetPageAction> getActionType() {
+      return GetPageAction.class;
+    }
+
+    @Override
+    public GetPageResult execute(GetPageAction action, ExecutionContext context) {
+      if (fail) {
+        throw new IllegalArgumentException("failed");
+      }
+      return new GetPageResult(new ArrayList<String>(), null);
+    }
+
+    @Override
+    public boolean skipCSRFCheck() {
+      return false;
+    }
+
+    @Override
+    public Collection<String> getInvalidatedTags(GetPageAction action) {
+      return Arrays.asList("tests");
+    }
+  }
+
+  private static class GetTestHandler implements CacheableActionHandler<GetTestAction, GetTestResult> {
+    private int executions;
+    private boolean fail;
+
+    @Override
+    public Class<GetTestAction> getActionType() {
+      return GetTestAction.class;
+    }
+
+    @Override
+    public GetTestResult execute(GetTestAction action, ExecutionContext context) {
+      executions++;
+      if (fail) {
+        throw new IllegalArgumentException("failed");
+      }
+      return new GetTestResult();
+    }
+
+    @Override
+    public boolean skipCSRFCheck() {
+      return false;
+    }
+
+    @Override
+    public Object getCacheKey(GetTestAction action, ExecutionContext context) {
+      return action.getName() == null ? null : action;
+    }
+
+    @Override
+    public long getCacheTtl() {
+      return 100;
+    }
+
+    @Override
+    public Collection<String> getCacheTags(GetTestAction action) {
+      return Arrays.asList("tests");
+    }
+  }
+
+}
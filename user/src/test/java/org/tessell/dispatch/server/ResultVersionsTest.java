@@ -0,0 +1,191 @@
+package org.tessell.dispatch.server;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.tessell.dispatch.client.GetTestAction;
+import org.tessell.dispatch.shared.DeltaResult;
+import org.tessell.dispatch.shared.Keyed;
+import org.tessell.dispatch.shared.NotModifiedResult;
+import org.tessell.dispatch.shared.Result;
+import org.tessell.dispatch.shared.VersionedListResult;
+
+public class ResultVersionsTest {
+
+  private final ResultVersions versions = new ResultVersions(10);
+  private final GetTestAction action = new GetTestAction("a");
+
+  @Test
+  public void returnsTheFullResultWithoutAKnownVersion() {
+    RowsResult r = rows("a=1", "b=2");
+    assertThat(versions.respond(action, r, null), is((Result) r));
+  }
+
+  @Test
+  public void returnsTheFullResultWithoutAVersion() {
+    RowsResult r = rows("a=1", "b=2");
+    r.setVersion(null);
+    assertThat(versions.respond(action, r, null), is(sameInstance((Result) r)));
+    assertThat(r.getVersion(), is(nullValue()));
+    // and a later client asking about a null version gets the full result too
+    RowsResult r2 = rows("a=1", "b=2");
+    r2.setVersion(null);
+    assertThat(versions.respond(action, r2, "null"), is(sameInstance((Result) r2)));
+  }
+
+  @Test
+  public void returnsNotModifiedForTheSameVersion() {
+    String v1 = version(rows("a=1", "b=2"));
+    assertThat(versions.respond(action, rows("a=1", "b=2"), v1), is(instanceOf(NotModifiedResult.class)));
+  }
+
+  @Test
+  public void returnsADeltaOfUpdatedEntries() {
+    String v1 = version(rows("a=1", "b=2", "c=3"));
+    Result r = versions.respond(action, rows("a=1", "b=4", "c=3"), v1);
+    DeltaResult delta = (DeltaResult) r;
+    assertThat(delta.getUpserted().size(), is(1));
+    assertThat(delta.getOrder(), is(nullValue()));
+
+    RowsResult known = rows("a=1", "b=2", "c=3");
+    VersionedListResult<Row> updated = known.copyWith(delta);
+    assertThat(updated.toString(), is("[a=1, b=4, c=3]"));
+    assertThat(updated.getVersion(), is(delta.getVersion()));
+    // the known result is left as-is
+    assertThat(known.toString(), is("[a=1, b=2, c=3]"));
+    assertThat(known.getVersion(), is(v1));
+  }
+
+  @Test
+  public void returnsADeltaOfAddedAndRemovedEntries() {
+    String v1 = version(rows("a=1", "b=2", "c=3", "d=4"));
+    DeltaResult delta = (DeltaResult) versions.respond(action, rows("a=1", "c=3", "d=4", "e=5"), v1);
+    assertThat(delta.getUpserted().size(), is(1));
+    assertThat(delta.getOrder().toString(), is("[a, c, d, e]"));
+
+    RowsResult known = rows("a=1", "b=2", "c=3", "d=4");
+    assertThat(known.copyWith(delta).toString(), is("[a=1, c=3, d=4, e=5]"));
+  }
+
+  @Test
+  public void returnsTheFullResultForUnknownVersions() {
+    RowsResult r = rows("a=1");
+    assertThat(versions.respond(action, r, "unknown"), is(sameInstance((Result) r)));
+  }
+
+  @Test
+  public void returnsTheFullResultWhenMostEntriesChanged() {
+    String v1 = version(rows("a=1", "b=2"));
+    RowsResult r = rows("a=3", "b=4");
+    assertThat(versions.respond(action, r, v1), is(sameInstance((Result) r)));
+  }
+
+  @Test
+  public void keepsSnapshotsPerAction() {
+    GetTestAction other = new GetTestAction("b");
+    RowsResult r1 = rows("a=1", "b=2", "c=3");
+    r1.setVersion("42");
+    versions.respond(action, r1, null);
+    RowsResult r2 = rows("x=1", "y=2", "z=3");
+    r2.setVersion("42");
+    versions.respond(other, r2, null);
+
+    RowsResult r3 = rows("a=1", "b=4", "c=3");
+    r3.setVersion("43");
+    DeltaResult delta = (DeltaResult) versions.respond(action, r3, "42");
+    assertThat(delta.getUpserted().size(), is(1));
+    assertThat(r1.copyWith(delta).toString(), is("[a=1, b=4, c=3]"));
+  }
+
+  @Test
+  public void failsToApplyADeltaAgainstOtherEntries() {
+    DeltaResult delta = ResultVersions.diff(rows("x=1", "y=2").getEntries(), rows("x=1", "y=2", "z=3").getEntries(), "v2");
+    RowsResult known = rows("a=1", "b=2");
+    try {
+      known.copyWith(delta);
+      fail();
+    } catch (IllegalStateException ise) {
+      assertThat(ise.getMessage(), is("Delta to v2 has unknown key x"));
+    }
+    assertThat(known.toString(), is("[a=1, b=2]"));
+  }
+
+  @Test
+  public void failsToApplyADeltaWithUnknownUpserts() {
+    DeltaResult delta = ResultVersions.diff(rows("x=1").getEntries(), rows("x=2").getEntries(), "v2");
+    try {
+      rows("a=1").copyWith(delta);
+      fail();
+    } catch (IllegalStateException ise) {
+      assertThat(ise.getMessage(), is("Delta to v2 has unknown key x"));
+    }
+  }
+
+  private String version(RowsResult result) {
+    versions.respond(action, result, null);
+    return result.getVersion();
+  }
+
+  public static RowsResult rows(String... rows) {
+    ArrayList<Row> entries = new ArrayList<Row>();
+    for (String row : rows) {
+      entries.add(new Row(row.split("=")[0], row.split("=")[1]));
+    }
+    RowsResult result = new RowsResult();
+    result.setEntries(entries);
+    // handlers would usually use a row version, but the content works for tests
+    result.setVersion(Arrays.toString(rows));
+    return result;
+  }
+
+  public static class RowsResult extends VersionedListResult<Row> {
+    @Override
+    protected RowsResult newCopy() {
+      return new RowsResult();
+    }
+
+    @Override
+    public String toString() {
+      return getEntries().toString();
+    }
+  }
+
+  public static class Row implements Keyed {
+    private final String key;
+    private final String value;
+
+    public Row(String key, String value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public String getKey() {
+      return key;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Row && ((Row) other).key.equals(key) && ((Row) other).value.equals(value);
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode() * 31 + value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + value;
+    }
+  }
+
+}
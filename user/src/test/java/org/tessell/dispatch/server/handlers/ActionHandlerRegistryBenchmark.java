@@ -0,0 +1,106 @@
+package org.tessell.dispatch.server.handlers;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Random;
+
+import org.tessell.dispatch.server.ExecutionContext;
+import org.tessell.dispatch.shared.Action;
+import org.tessell.dispatch.shared.Result;
+
+/**
+ * Times {@link ActionHandlerRegistry#findHandler(Action)} with ~1,000 registered action types.
+ *
+ * Each action type is a proxy class from its own class loader, so we don't need 1,000 source files. Half of the
+ * lookups are exact matches, and half are for subtypes that resolve through their interface's handler.
+ *
+ * Args (all optional): {@code types lookups rounds}, defaulting to {@code 1000 1000000 10}.
+ */
+public class ActionHandlerRegistryBenchmark {
+
+  public static void main(final String[] args) throws Exception {
+    final int types = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    final int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+    final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+    final ActionHandlerRegistry registry = new ActionHandlerRegistry();
+    final Action<?>[] actions = new Action<?>[types];
+    for (int i = 0; i < types; i++) {
+      final ClassLoader loader = new URLClassLoader(new URL[0], ActionHandlerRegistryBenchmark.class.getClassLoader());
+      final Action<?> action = newAction(loader, Action.class);
+      registry.addHandler(new StubHandler(action.getClass()));
+      // every other action is an unregistered subtype, resolved through the Marker handler
+      actions[i] = i % 2 == 0 ? action : newAction(loader, Marker.class);
+    }
+    registry.addHandler(new StubHandler(Marker.class));
+
+    final int[] order = new int[lookups];
+    final Random random = new Random(1);
+    for (int i = 0; i < lookups; i++) {
+      order[i] = random.nextInt(types);
+    }
+
+    long best = Long.MAX_VALUE;
+    int misses = 0;
+    for (int round = 0; round < rounds; round++) {
+      final long start = System.nanoTime();
+      for (int i = 0; i < lookups; i++) {
+        if (registry.findHandler(actions[order[i]]) == null) {
+          misses++;
+        }
+      }
+      final long nanos = System.nanoTime() - start;
+      best = Math.min(best, nanos);
+      System.out.println("round " + round + ": " + (nanos / 1000000) + "ms");
+    }
+    if (misses > 0) {
+      throw new IllegalStateException(misses + " lookups found no handler");
+    }
+    System.out.println(types + " types, " + lookups + " lookups, best " + (best / lookups) + "ns/lookup");
+  }
+
+  private static Action<?> newAction(final ClassLoader loader, final Class<?> type) {
+    return (Action<?>) Proxy.newProxyInstance(loader, new Class<?>[] { type }, new InvocationHandler() {
+      public Object invoke(final Object proxy, final Method method, final Object[] args) {
+        if (method.getName().equals("hashCode")) {
+          return System.identityHashCode(proxy);
+        } else if (method.getName().equals("equals")) {
+          return proxy == args[0];
+        }
+        return null;
+      }
+    });
+  }
+
+  /** An action interface with a handler, so subtypes resolve through the hierarchy. */
+  public interface Marker extends Action<Result> {
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static class StubHandler implements ActionHandler {
+    private final Class<?> type;
+
+    private StubHandler(final Class<?> type) {
+      this.type = type;
+    }
+
+    @Override
+    public Class getActionType() {
+      return type;
+    }
+
+    @Override
+    public Result execute(final Action action, final ExecutionContext context) {
+      return null;
+    }
+
+    @Override
+    public boolean skipCSRFCheck() {
+      return false;
+    }
+  }
+
+}
@@ -0,0 +1,103 @@
+package org.tessell.dispatch.server.handlers;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+import org.tessell.dispatch.client.GetTestAction;
+import org.tessell.dispatch.client.GetTestResult;
+import org.tessell.dispatch.server.ExecutionContext;
+import org.tessell.dispatch.shared.Action;
+
+public class ActionHandlerRegistryTest {
+
+  private final ActionHandlerRegistry registry = new ActionHandlerRegistry();
+
+  @Test
+  public void findsHandlerForExactClass() {
+    StubHandler<GetTestAction> h = new StubHandler<GetTestAction>(GetTestAction.class);
+    registry.addHandler(h);
+    assertThat(registry.findHandler(new GetTestAction("a")), is((Object) h));
+  }
+
+  @Test
+  public void findsHandlerForSuperclass() {
+    StubHandler<GetTestAction> h = new StubHandler<GetTestAction>(GetTestAction.class);
+    registry.addHandler(h);
+    assertThat(registry.findHandler(new SubAction()), is((Object) h));
+  }
+
+  @Test
+  public void prefersTheMostSpecificHandler() {
+    StubHandler<GetTestAction> h1 = new StubHandler<GetTestAction>(GetTestAction.class);
+    StubHandler<SubAction> h2 = new StubHandler<SubAction>(SubAction.class);
+    registry.addHandler(h1);
+    registry.addHandler(h2);
+    assertThat(registry.findHandler(new SubAction()), is((Object) h2));
+    assertThat(registry.findHandler(new GetTestAction("a")), is((Object) h1));
+  }
+
+  @Test
+  public void findsHandlerForInterface() {
+    StubHandler<MarkerAction> h = new StubHandler<MarkerAction>(MarkerAction.class);
+    registry.addHandler(h);
+    assertThat(registry.findHandler(new MarkedAction()), is((Object) h));
+    assertThat(registry.findHandler(new SubAction()), is(nullValue()));
+  }
+
+  @Test
+  public void handlersCanBeAddedAfterAMiss() {
+    assertThat(registry.findHandler(new SubAction()), is(nullValue()));
+    StubHandler<GetTestAction> h = new StubHandler<GetTestAction>(GetTestAction.class);
+    registry.addHandler(h);
+    assertThat(registry.findHandler(new SubAction()), is((Object) h));
+  }
+
+  @Test
+  public void handlersCanBeRemoved() {
+    StubHandler<GetTestAction> h1 = new StubHandler<GetTestAction>(GetTestAction.class);
+    StubHandler<SubAction> h2 = new StubHandler<SubAction>(SubAction.class);
+    registry.addHandler(h1);
+    registry.addHandler(h2);
+    assertThat(registry.findHandler(new SubAction()), is((Object) h2));
+    registry.removeHandler(h2);
+    assertThat(registry.findHandler(new SubAction()), is((Object) h1));
+  }
+
+  public static class SubAction extends GetTestAction {
+    public SubAction() {
+      super("sub");
+    }
+  }
+
+  public interface MarkerAction extends Action<GetTestResult> {
+  }
+
+  public static class MarkedAction extends SubAction implements MarkerAction {
+  }
+
+  private static class StubHandler<A extends Action<GetTestResult>> implements ActionHandler<A, GetTestResult> {
+    private final Class<A> type;
+
+    private StubHandler(Class<A> type) {
+      this.type = type;
+    }
+
+    @Override
+    public Class<A> getActionType() {
+      return type;
+    }
+
+    @Override
+    public GetTestResult execute(A action, ExecutionContext context) {
+      return new GetTestResult();
+    }
+
+    @Override
+    public boolean skipCSRFCheck() {
+      return false;
+    }
+  }
+
+}
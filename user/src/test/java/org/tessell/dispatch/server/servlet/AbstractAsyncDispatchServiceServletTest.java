@@ -0,0 +1,323 @@
+package org.tessell.dispatch.server.servlet;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.tessell.dispatch.server.ResultVersionsTest.rows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.tessell.dispatch.client.GetTestAction;
+import org.tessell.dispatch.client.GetTestResult;
+import org.tessell.dispatch.server.ActionDispatch;
+import org.tessell.dispatch.server.AsyncActionDispatch;
+import org.tessell.dispatch.server.ExecutionContext;
+import org.tessell.dispatch.server.ResultVersions;
+import org.tessell.dispatch.server.ResultVersionsTest.RowsResult;
+import org.tessell.dispatch.server.SessionIdValidator;
+import org.tessell.dispatch.shared.Action;
+import org.tessell.dispatch.shared.ActionException;
+import org.tessell.dispatch.shared.DeltaResult;
+import org.tessell.dispatch.shared.DispatchService;
+import org.tessell.dispatch.shared.Result;
+
+import com.google.gwt.user.client.rpc.AsyncCallback;
+import com.google.gwt.user.server.rpc.RPC;
+import com.google.gwt.user.server.rpc.RPCRequest;
+
+/** Drives the servlet with fake request/response/{@link AsyncContext} proxies. */
+public class AbstractAsyncDispatchServiceServletTest {
+
+  private final TestServlet servlet = new TestServlet();
+  private final HeldDispatch held = new HeldDispatch();
+  private final Map<String, String> headers = new HashMap<String, String>();
+  private final List<AsyncListener> listeners = new ArrayList<AsyncListener>();
+  private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+  private int status = 200;
+  private int completions;
+  private boolean asyncStarted;
+  private final HttpServletResponse response = fake(HttpServletResponse.class, new InvocationHandler() {
+    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+      if (method.getName().equals("setStatus")) {
+        status = (Integer) args[0];
+      } else if (method.getName().equals("getOutputStream")) {
+        return new ServletOutputStream() {
+          public void write(final int b) {
+            body.write(b);
+          }
+        };
+      }
+      return defaultValue(method);
+    }
+  });
+  private final AsyncContext async = fake(AsyncContext.class, new InvocationHandler() {
+    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+      if (method.getName().equals("getRequest")) {
+        return request;
+      } else if (method.getName().equals("getResponse")) {
+        return response;
+      } else if (method.getName().equals("addListener")) {
+        listeners.add((AsyncListener) args[0]);
+      } else if (method.getName().equals("complete")) {
+        completions++;
+      }
+      return defaultValue(method);
+    }
+  });
+  private final HttpServletRequest request = fake(HttpServletRequest.class, new InvocationHandler() {
+    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+      if (method.getName().equals("getMethod")) {
+        return "POST";
+      } else if (method.getName().equals("isAsyncSupported")) {
+        return true;
+      } else if (method.getName().equals("getHeader")) {
+        return headers.get(args[0]);
+      } else if (method.getName().equals("startAsync")) {
+        asyncStarted = true;
+        return async;
+      }
+      return defaultValue(method);
+    }
+  });
+
+  @Before
+  public void setup() throws Exception {
+    final ServletContext context = fake(ServletContext.class, new InvocationHandler() {
+      public Object invoke(final Object proxy, final Method method, final Object[] args) {
+        return defaultValue(method);
+      }
+    });
+    servlet.init(fake(ServletConfig.class, new InvocationHandler() {
+      public Object invoke(final Object proxy, final Method method, final Object[] args) {
+        if (method.getName().equals("getServletContext")) {
+          return context;
+        } else if (method.getName().equals("getServletName")) {
+          return "dispatch";
+        } else if (method.getName().equals("getInitParameterNames")) {
+          return Collections.enumeration(new ArrayList<String>());
+        }
+        return defaultValue(method);
+      }
+    }));
+    servlet.actionDispatch = held;
+  }
+
+  @Test
+  public void rejectsRequestsWithoutThePermutationHeader() throws Exception {
+    servlet.service(request, response);
+    assertThat(status, is(500));
+    assertThat(asyncStarted, is(false));
+  }
+
+  @Test
+  public void writesResults() throws Exception {
+    servlet.dispatch(request, response, newRpcRequest());
+    held.callback.onSuccess(new GetTestResult());
+    assertThat(completions, is(1));
+    assertTrue(body(), body().startsWith("//OK"));
+  }
+
+  @Test
+  public void failsRequestsThatTimeOut() throws Exception {
+    servlet.dispatch(request, response, newRpcRequest());
+    for (final AsyncListener l : listeners) {
+      l.onTimeout(new AsyncEvent(async));
+    }
+    assertThat(completions, is(1));
+    assertTrue(body(), body().startsWith("//EX"));
+    assertTrue(body(), body().contains("The server timed out."));
+    // a late result is ignored
+    held.callback.onSuccess(new GetTestResult());
+    assertThat(completions, is(1));
+  }
+
+  @Test
+  public void failsRequestsThatTheExecutorRejects() throws Exception {
+    servlet.reject = true;
+    servlet.dispatch(request, response, newRpcRequest());
+    assertThat(completions, is(1));
+    assertThat(held.callback, is(nullValue()));
+    assertTrue(body(), body().startsWith("//EX"));
+    assertTrue(body(), body().contains("A server error occured."));
+  }
+
+  @Test
+  public void completesRequestsThatError() throws Exception {
+    servlet.dispatch(request, response, newRpcRequest());
+    for (final AsyncListener l : listeners) {
+      l.onError(new AsyncEvent(async, new IOException("reset")));
+    }
+    assertThat(completions, is(1));
+    assertThat(body(), is(""));
+    // a late result is ignored
+    held.callback.onSuccess(new GetTestResult());
+    assertThat(completions, is(1));
+    assertThat(body(), is(""));
+  }
+
+  @Test
+  public void deltasStartFromTheFirstExecute() throws Exception {
+    final RowsResult v1 = rows("a=1", "b=2", "c=3");
+    servlet.dispatch(request, response, newRpcRequest());
+    held.callback.onSuccess(v1);
+    servlet.dispatch(request, response, newVersionedRpcRequest(v1.getVersion()));
+    held.callback.onSuccess(rows("a=1", "b=4", "c=3"));
+    assertThat(servlet.versions.last, is(instanceOf(DeltaResult.class)));
+  }
+
+  @Test
+  public void deltasStartFromTheFirstSynchronousExecute() throws Exception {
+    final RowsResult v1 = rows("a=1", "b=2", "c=3");
+    final QueuedDispatch queued = new QueuedDispatch();
+    queued.results.add(v1);
+    queued.results.add(rows("a=1", "b=4", "c=3"));
+    servlet.actionDispatch = queued;
+    assertThat(servlet.execute("session", new GetTestAction("a")), is((Result) v1));
+    assertThat(servlet.executeVersioned("session", new GetTestAction("a"), v1.getVersion()), is(instanceOf(DeltaResult.class)));
+  }
+
+  private String body() throws Exception {
+    return body.toString("UTF-8");
+  }
+
+  private static RPCRequest newRpcRequest() throws Exception {
+    final Method execute = DispatchService.class.getMethod("execute", String.class, Action.class);
+    return new RPCRequest(execute, new Object[] { "session", new GetTestAction("a") }, RPC.getDefaultSerializationPolicy(), 0);
+  }
+
+  private static RPCRequest newVersionedRpcRequest(final String knownVersion) throws Exception {
+    final Method execute = DispatchService.class.getMethod("executeVersioned", String.class, Action.class, String.class);
+    return new RPCRequest(execute, new Object[] { "session", new GetTestAction("a"), knownVersion }, RPC.getDefaultSerializationPolicy(), 0);
+  }
+
+  private static <T> T fake(final Class<T> type, final InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+  }
+
+  private static Object defaultValue(final Method method) {
+    if (method.getReturnType() == boolean.class) {
+      return false;
+    } else if (method.getReturnType() == int.class) {
+      return 0;
+    } else if (method.getReturnType() == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+
+  /** Runs actions on the calling thread, or rejects them, so the tests are deterministic. */
+  private static class TestServlet extends AbstractAsyncDispatchServiceServlet {
+    private static final long serialVersionUID = 1L;
+    private transient ActionDispatch actionDispatch;
+    private final transient RecordedVersions versions = new RecordedVersions();
+    private boolean reject;
+
+    @Override
+    protected ResultVersions getResultVersions() {
+      return versions;
+    }
+
+    @Override
+    protected SessionIdValidator getSessionValidator() {
+      return null;
+    }
+
+    @Override
+    protected ActionDispatch getActionDispatch() {
+      return actionDispatch;
+    }
+
+    @Override
+    protected ExecutorService createExecutor() {
+      return new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(1)) {
+        @Override
+        public void execute(final Runnable command) {
+          if (reject) {
+            throw new RejectedExecutionException("full");
+          }
+          command.run();
+        }
+      };
+    }
+  }
+
+  /** Records the last response, as our test results can't be encoded with the default serialization policy. */
+  private static class RecordedVersions extends ResultVersions {
+    private Result last;
+
+    private RecordedVersions() {
+      super(10);
+    }
+
+    @Override
+    public Result respond(final Action<?> action, final Result result, final String knownVersion) {
+      last = super.respond(action, result, knownVersion);
+      return last;
+    }
+  }
+
+  /** Returns queued results synchronously. */
+  private static class QueuedDispatch implements ActionDispatch {
+    private final List<Result> results = new ArrayList<Result>();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A extends Action<R>, R extends Result> R execute(A action, ExecutionContext context) throws ActionException {
+      return (R) results.remove(0);
+    }
+
+    @Override
+    public boolean skipCSRFCheck(final Action<?> action) {
+      return false;
+    }
+  }
+
+  /** Holds on to the callback, so tests can decide when (or if) the action finishes. */
+  private static class HeldDispatch implements AsyncActionDispatch {
+    private AsyncCallback<Result> callback;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A extends Action<R>, R extends Result> void executeAsync(A action, ExecutionContext context, AsyncCallback<R> callback) {
+      this.callback = (AsyncCallback<Result>) callback;
+    }
+
+    @Override
+    public <A extends Action<R>, R extends Result> R execute(A action, ExecutionContext context) throws ActionException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean skipCSRFCheck(final Action<?> action) {
+      return false;
+    }
+  }
+
+}
@@ -4,19 +4,30 @@ import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.tessell.model.properties.NewProperty.stringProperty;
 
+import org.junit.BeforeClass;
 import org.junit.Test;
 import org.tessell.dispatch.client.util.OutstandingDispatchAsync;
 import org.tessell.dispatch.client.util.StubOutstandingDispatchAsync;
 import org.tessell.dispatch.shared.Action;
 import org.tessell.dispatch.shared.Result;
 import org.tessell.model.commands.DispatchUiCommand;
+import org.tessell.model.properties.StringProperty;
+import org.tessell.model.properties.UndoLog;
 import org.tessell.tests.model.validation.rules.AbstractRuleTest;
+import org.tessell.widgets.StubGWTBridge;
+import org.tessell.widgets.StubScheduler;
 
 public class DispatchUiCommandTest extends AbstractRuleTest {
 
   final StubOutstandingDispatchAsync async = new StubOutstandingDispatchAsync();
 
+  @BeforeClass
+  public static void installScheduler() {
+    StubGWTBridge.install();
+  }
+
   @Test
   public void activeIsTrueThenFalseWhenRpcIsSuccessful() {
     DummyUiCommand command = new DummyUiCommand(async);
@@ -113,6 +124,105 @@ public class DispatchUiCommandTest extends AbstractRuleTest {
     assertThat(command.wasActiveInOnResult, is(false));
   }
 
+  @Test
+  public void debounceOnlySendsTheLastExecution() {
+    DummyUiCommand command = new DummyUiCommand(async);
+    command.setDebounce(100);
+    command.execute();
+    StubScheduler.get().advance(50);
+    command.execute();
+    StubScheduler.get().advance(50);
+    // the first execution was superseded before its delay was up
+    assertThat(async.getCalls().size(), is(0));
+
+    StubScheduler.get().advance(50);
+    assertThat(async.getCalls().size(), is(1));
+    assertThat(async.getActions().get(0), is(command.lastAction));
+  }
+
+  @Test
+  public void throttleSendsAtMostOncePerPeriod() {
+    DummyUiCommand command = new DummyUiCommand(async);
+    command.setThrottle(100);
+    command.execute();
+    assertThat(async.getCalls().size(), is(1));
+
+    command.execute();
+    command.execute();
+    assertThat(async.getCalls().size(), is(1));
+
+    // the latest execution is sent at the end of the period
+    StubScheduler.get().advance(100);
+    assertThat(async.getCalls().size(), is(2));
+    assertThat(async.getActions().get(1), is(command.lastAction));
+
+    // and with nothing else pending, the throttle ends
+    StubScheduler.get().advance(100);
+    command.execute();
+    assertThat(async.getCalls().size(), is(3));
+  }
+
+  @Test
+  public void dropWhileActiveIgnoresExecutions() {
+    DummyUiCommand command = new DummyUiCommand(async);
+    command.setDropWhileActive(true);
+    command.execute();
+    command.execute();
+    assertThat(async.getCalls().size(), is(1));
+
+    async.getCalls().get(0).onSuccess(null);
+    command.execute();
+    assertThat(async.getCalls().size(), is(2));
+  }
+
+  @Test
+  public void latestWinsIgnoresStaleResults() {
+    DummyUiCommand command = new DummyUiCommand(async);
+    command.setLatestWins(true);
+    command.execute();
+    command.execute();
+
+    async.getCalls().get(0).onSuccess(null);
+    assertThat(command.onResultCalls, is(0));
+    assertThat(command.active().get(), is(true));
+
+    async.getCalls().get(1).onSuccess(null);
+    assertThat(command.onResultCalls, is(1));
+    assertThat(command.active().get(), is(false));
+  }
+
+  @Test
+  public void latestWinsIgnoresOutOfOrderStaleResults() {
+    DummyUiCommand command = new DummyUiCommand(async);
+    command.setLatestWins(true);
+    command.execute();
+    command.execute();
+
+    async.getCalls().get(1).onSuccessOutOfOrder(null);
+    assertThat(command.onResultCalls, is(1));
+    async.getCalls().get(0).onFailureOutOfOrder(null);
+    assertThat(command.onResultCalls, is(1));
+  }
+
+  @Test
+  public void optimisticChangesAreRolledBackOnFailure() {
+    final StringProperty name = stringProperty("name", "a");
+    OptimisticUiCommand command = new OptimisticUiCommand(async, name, "b");
+    command.execute();
+    assertThat(name.get(), is("b"));
+    async.getCalls().get(0).onFailure(null);
+    assertThat(name.get(), is("a"));
+  }
+
+  @Test
+  public void optimisticChangesAreKeptOnSuccess() {
+    final StringProperty name = stringProperty("name", "a");
+    OptimisticUiCommand command = new OptimisticUiCommand(async, name, "b");
+    command.execute();
+    async.getCalls().get(0).onSuccess(null);
+    assertThat(name.get(), is("b"));
+  }
+
   /** Fails depending on the instance variable {@code fail}. */
   private final class DummyUiCommand extends DispatchUiCommand<Action<Result>, Result> {
     private int createActionCalls = 0;
@@ -120,6 +230,7 @@ public class DispatchUiCommandTest extends AbstractRuleTest {
     private boolean hasNewerAction = false;
     private boolean hasNewerResult = false;
     private boolean wasActiveInOnResult;
+    private Action<Result> lastAction;
 
     public DummyUiCommand(OutstandingDispatchAsync async) {
       super(async);
@@ -128,8 +239,9 @@ public class DispatchUiCommandTest extends AbstractRuleTest {
     @Override
     protected Action<Result> createAction() {
       createActionCalls++;
-      return new Action<Result>() {
+      lastAction = new Action<Result>() {
       };
+      return lastAction;
     }
 
     @Override
@@ -141,4 +253,31 @@ public class DispatchUiCommandTest extends AbstractRuleTest {
     }
   }
 
+  /** Optimistically sets {@code property} to {@code value}. */
+  private final class OptimisticUiCommand extends DispatchUiCommand<Action<Result>, Result> {
+    private final StringProperty property;
+    private final String value;
+
+    private OptimisticUiCommand(OutstandingDispatchAsync async, StringProperty property, String value) {
+      super(async);
+      this.property = property;
+      this.value = value;
+    }
+
+    @Override
+    protected Action<Result> createAction() {
+      return new Action<Result>() {
+      };
+    }
+
+    @Override
+    protected void applyOptimistically(Action<Result> action, UndoLog undo) {
+      undo.set(property, value);
+    }
+
+    @Override
+    protected void onResult() {
+    }
+  }
+
 }
@@ -0,0 +1,150 @@
+package org.tessell.tests.model.dsl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.tessell.model.properties.NewProperty.booleanProperty;
+import static org.tessell.model.properties.NewProperty.stringProperty;
+import static org.tessell.testing.TessellMatchers.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tessell.gwt.user.client.ui.StubTextBox;
+import org.tessell.model.dsl.Binder;
+import org.tessell.model.properties.BooleanProperty;
+import org.tessell.model.properties.StringProperty;
+import org.tessell.widgets.StubGWTBridge;
+import org.tessell.widgets.StubScheduler;
+import org.tessell.widgets.StubWidget;
+import org.tessell.widgets.StubWidgetsProvider;
+
+import com.google.gwt.event.logical.shared.ValueChangeEvent;
+import com.google.gwt.event.logical.shared.ValueChangeHandler;
+
+public class BatchedBinderTest {
+
+  @BeforeClass
+  public static void install() {
+    StubWidgetsProvider.install();
+    StubGWTBridge.install();
+  }
+
+  final Binder binder = new Binder();
+  final StringProperty s = stringProperty("s");
+  final StubTextBox box = new StubTextBox();
+  final int[] changes = { 0 };
+
+  {
+    binder.setBatched(true);
+    box.addValueChangeHandler(new ValueChangeHandler<String>() {
+      public void onValueChange(ValueChangeEvent<String> event) {
+        changes[0]++;
+      }
+    });
+  }
+
+  @Test
+  public void writesAreCoalescedUntilTheEndOfTheEventLoop() {
+    binder.bind(s).to(box);
+    StubScheduler.get().runWithDeferred(new Runnable() {
+      public void run() {
+        s.set("a");
+        s.set("b");
+        s.set("c");
+        assertThat(box.getValue(), is(""));
+        assertThat(binder.getPendingWriteCount(), is(1));
+      }
+    });
+    assertThat(box.getValue(), is("c"));
+    assertThat(changes[0], is(1));
+    assertThat(binder.getPendingWriteCount(), is(0));
+  }
+
+  @Test
+  public void writesAreAppliedRightAwayOutsideOfAnEventLoop() {
+    binder.bind(s).to(box);
+    s.set("a");
+    assertThat(box.getValue(), is("a"));
+  }
+
+  @Test
+  public void writesCanBeFlushedEarly() {
+    binder.bind(s).to(box);
+    StubScheduler.get().runWithDeferred(new Runnable() {
+      public void run() {
+        s.set("a");
+        binder.flush();
+        assertThat(box.getValue(), is("a"));
+      }
+    });
+    assertThat(changes[0], is(1));
+  }
+
+  @Test
+  public void widgetChangesStillUpdateThePropertyImmediately() {
+    binder.bind(s).to(box);
+    StubScheduler.get().runWithDeferred(new Runnable() {
+      public void run() {
+        box.type("a");
+        assertThat(s.get(), is("a"));
+      }
+    });
+  }
+
+  @Test
+  public void lastDisplayWriteWins() {
+    final BooleanProperty b = booleanProperty("b", true);
+    final StubWidget w = new StubWidget();
+    binder.when(b).is(true).show(w);
+    StubScheduler.get().runWithDeferred(new Runnable() {
+      public void run() {
+        b.set(false);
+        b.set(true);
+        b.set(false);
+        assertThat(w, is(shown()));
+      }
+    });
+    assertThat(w, is(hidden()));
+  }
+
+  @Test
+  public void stylesAreTrackedSeparately() {
+    final BooleanProperty b = booleanProperty("b", false);
+    final StubWidget w = new StubWidget();
+    binder.when(b).is(true).set("a").on(w);
+    binder.when(b).is(true).set("b").on(w);
+    StubScheduler.get().runWithDeferred(new Runnable() {
+      public void run() {
+        b.set(true);
+        assertThat(binder.getPendingWriteCount(), is(2));
+      }
+    });
+    assertThat(w, hasStyle("a"));
+    assertThat(w, hasStyle("b"));
+  }
+
+  @Test
+  public void unbindingFlushesPendingWrites() {
+    binder.bind();
+    binder.bind(s).to(box);
+    StubScheduler.get().runWithDeferred(new Runnable() {
+      public void run() {
+        s.set("a");
+        binder.unbind();
+        assertThat(box.getValue(), is("a"));
+      }
+    });
+  }
+
+  @Test
+  public void turningOffBatchingFlushesPendingWrites() {
+    binder.bind(s).to(box);
+    StubScheduler.get().runWithDeferred(new Runnable() {
+      public void run() {
+        s.set("a");
+        binder.setBatched(false);
+        assertThat(box.getValue(), is("a"));
+      }
+    });
+  }
+
+}
@@ -1,5 +1,6 @@
 package org.tessell.tests.model.dsl;
 
+import static joist.util.Copy.list;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.tessell.model.properties.NewProperty.listProperty;
@@ -11,16 +12,21 @@ import org.tessell.gwt.user.client.ui.IsWidget;
 import org.tessell.gwt.user.client.ui.StubFlowPanel;
 import org.tessell.gwt.user.client.ui.StubLabel;
 import org.tessell.model.dsl.Binder;
+import org.tessell.model.dsl.ListPropertyBinder.ListKeyFunction;
 import org.tessell.model.dsl.ListPropertyBinder.ListPresenterFactory;
 import org.tessell.model.dsl.ListPropertyBinder.ListViewFactory;
+import org.tessell.model.dsl.ListPropertyBinder.ListViewUpdater;
+import org.tessell.model.dsl.ListPropertyBinder.ValueKeys;
 import org.tessell.model.properties.ListProperty;
 import org.tessell.presenter.BasicPresenter;
 import org.tessell.presenter.Presenter;
+import org.tessell.presenter.PresenterPool;
+import org.tessell.presenter.ReusablePresenter;
 
 public class ListPropertyBinderTest {
 
   final Binder binder = new Binder();
-  final StubFlowPanel panel = new StubFlowPanel();
+  final CountingPanel panel = new CountingPanel();
   final ListProperty<String> names = listProperty("names");
   final ListViewFactory<String> viewFactory = new ListViewFactory<String>() {
     public IsWidget create(String value) {
@@ -38,6 +44,29 @@ public class ListPropertyBinderTest {
     }
   };
 
+  final ArrayList<LabelPresenter> created = new ArrayList<LabelPresenter>();
+  final ListPresenterFactory<String> reusableFactory = new ListPresenterFactory<String>() {
+    public Presenter create(String value) {
+      LabelPresenter p = new LabelPresenter(value);
+      created.add(p);
+      return p;
+    }
+  };
+  final ValueKeys<String> values = new ValueKeys<String>();
+
+  final ListViewFactory<Row> rowFactory = new ListViewFactory<Row>() {
+    public IsWidget create(Row value) {
+      StubLabel label = new StubLabel();
+      label.setText(value.name);
+      return label;
+    }
+  };
+  final ListKeyFunction<Row> rowKeys = new ListKeyFunction<Row>() {
+    public Object key(Row value) {
+      return value.id;
+    }
+  };
+
   @Test
   public void initialNamesAreAddedToPanel() {
     names.add("one");
@@ -101,6 +130,253 @@ public class ListPropertyBinderTest {
     assertThat(parent.getChildren().size(), is(1));
   }
 
+  @Test
+  public void insertedNamesKeepTheirPosition() {
+    names.set(list("one", "three"));
+    binder.bind(names).to(panel, viewFactory, values);
+    names.set(list("zero", "one", "two", "three"));
+    assertLabels("zero", "one", "two", "three");
+  }
+
+  @Test
+  public void duplicateNamesGetTheirOwnViews() {
+    binder.bind(names).to(panel, viewFactory, values);
+    names.set(list("a", "a", "b"));
+    assertLabels("a", "a", "b");
+    names.set(list("a", "b"));
+    assertLabels("a", "b");
+  }
+
+  @Test
+  public void reloadedListReusesViewsByKey() {
+    final ListProperty<Row> rows = listProperty("rows");
+    rows.set(list(new Row(1, "a"), new Row(2, "b"), new Row(3, "c")));
+    binder.bind(rows).to(panel, rowFactory, rowKeys);
+    final IsWidget one = panel.getIsWidget(0);
+    final IsWidget three = panel.getIsWidget(2);
+
+    // reload with new instances, 3 moved to the front, 2 deleted and 4 added
+    panel.inserts = 0;
+    panel.removes = 0;
+    rows.set(list(new Row(3, "c"), new Row(1, "a"), new Row(4, "d")));
+    assertLabels("c", "a", "d");
+    assertThat(panel.getIsWidget(0), is(three));
+    assertThat(panel.getIsWidget(1), is(one));
+    // only 3 moved (1 stayed), 2 was removed, and 4 was inserted
+    assertThat(panel.removes, is(2));
+    assertThat(panel.inserts, is(2));
+  }
+
+  @Test
+  public void changedValuesGetNewViews() {
+    final ListProperty<Row> rows = listProperty("rows");
+    rows.set(list(new Row(1, "a"), new Row(2, "b")));
+    binder.bind(rows).to(panel, rowFactory, rowKeys);
+    final IsWidget one = panel.getIsWidget(0);
+    rows.set(list(new Row(1, "a"), new Row(2, "c")));
+    assertLabels("a", "c");
+    assertThat(panel.getIsWidget(0), is(one));
+  }
+
+  @Test
+  public void reloadedInstancesWithoutEqualsKeepTheirViews() {
+    final ListProperty<Dto> dtos = listProperty("dtos");
+    dtos.set(list(new Dto(1, "a"), new Dto(2, "b")));
+    binder.bind(dtos).to(panel, new ListViewFactory<Dto>() {
+      public IsWidget create(Dto value) {
+        StubLabel label = new StubLabel();
+        label.setText(value.name);
+        return label;
+      }
+    }, new ListKeyFunction<Dto>() {
+      public Object key(Dto value) {
+        return value.id;
+      }
+    }, new ListViewUpdater<Dto>() {
+      public void update(IsWidget view, Dto value) {
+        ((StubLabel) view).setText(value.name);
+      }
+    });
+    final IsWidget one = panel.getIsWidget(0);
+    final IsWidget two = panel.getIsWidget(1);
+
+    panel.inserts = 0;
+    panel.removes = 0;
+    dtos.set(list(new Dto(1, "a"), new Dto(2, "c")));
+    assertLabels("a", "c");
+    assertThat(panel.getIsWidget(0), is(one));
+    assertThat(panel.getIsWidget(1), is(two));
+    assertThat(panel.inserts, is(0));
+    assertThat(panel.removes, is(0));
+  }
+
+  @Test
+  public void reusablePresentersAreReboundToChangedValues() {
+    ParentPresenter parent = bind(new ParentPresenter());
+    names.set(list("a1", "b1"));
+    binder.bind(names).to(parent, panel, reusableFactory, new ListKeyFunction<String>() {
+      public Object key(String value) {
+        return value.charAt(0);
+      }
+    });
+    names.set(list("a2", "b1"));
+    assertLabels("a2", "b1");
+    assertThat(created.size(), is(2));
+    assertThat(created.get(0).isBound(), is(true));
+  }
+
+  @Test
+  public void addsAndRemovesOnlyTouchTheirRows() {
+    final int[] keyed = { 0 };
+    binder.bind(names).to(panel, viewFactory, new ListKeyFunction<String>() {
+      public Object key(String value) {
+        keyed[0]++;
+        return value;
+      }
+    });
+    names.add("a");
+    names.add("b");
+    names.add("c");
+    names.remove("b");
+    assertLabels("a", "c");
+    assertThat(panel.inserts, is(3));
+    assertThat(panel.removes, is(1));
+    // no full reconcile re-keyed the existing rows
+    assertThat(keyed[0], is(3));
+  }
+
+  @Test
+  public void nonKeyedPanelsAppendNewValues() {
+    names.set(list("a", "c"));
+    binder.bind(names).to(panel, viewFactory);
+    names.set(list("a", "b", "c"));
+    assertLabels("a", "c", "b");
+  }
+
+  @Test
+  public void reversingMovesAllButOne() {
+    names.set(list("a", "b", "c", "d"));
+    binder.bind(names).to(panel, viewFactory, values);
+    panel.inserts = 0;
+    names.set(list("d", "c", "b", "a"));
+    assertLabels("d", "c", "b", "a");
+    assertThat(panel.inserts, is(3));
+  }
+
+  @Test
+  public void otherWidgetsInThePanelAreLeftAlone() {
+    final StubLabel header = new StubLabel();
+    panel.add(header);
+    names.set(list("a", "b"));
+    binder.bind(names).to(panel, viewFactory, values);
+    names.set(list("b", "c"));
+    assertThat(panel.getIsWidget(0), is((IsWidget) header));
+    assertLabel(panel.getIsWidget(1), "b");
+    assertLabel(panel.getIsWidget(2), "c");
+  }
+
+  @Test
+  public void presentersAreReusedByKey() {
+    ParentPresenter parent = bind(new ParentPresenter());
+    names.set(list("a", "b"));
+    binder.bind(names).to(parent, panel, presenterFactory, values);
+    final IsWidget b = panel.getIsWidget(1);
+    names.set(list("b", "c"));
+    assertThat(panel.getIsWidget(0), is(b));
+    assertLabel(panel.getIsWidget(1), "c");
+    assertThat(parent.getChildren().size(), is(2));
+  }
+
+  @Test
+  public void pooledPresentersAreReboundToNewValues() {
+    ParentPresenter parent = bind(new ParentPresenter());
+    PresenterPool<String> pool = new PresenterPool<String>(10);
+    names.set(list("a", "b"));
+    binder.bind(names).to(parent, panel, reusableFactory, values, pool);
+    names.set(list("c", "d"));
+    assertLabels("c", "d");
+    assertThat(created.size(), is(2));
+    assertThat(parent.getChildren().size(), is(2));
+    assertThat(pool.getReusedCount(), is(2));
+    assertThat(pool.getCreatedCount(), is(2));
+    assertThat(pool.getReuseRate(), is(0.5));
+  }
+
+  @Test
+  public void pooledPresentersAreSuspendedWhileIdle() {
+    ParentPresenter parent = bind(new ParentPresenter());
+    PresenterPool<String> pool = new PresenterPool<String>(10);
+    names.set(list("a"));
+    binder.bind(names).to(parent, panel, reusableFactory, values, pool);
+    names.set(new ArrayList<String>());
+    assertThat(pool.size(), is(1));
+    assertThat(created.get(0).isSuspended(), is(true));
+    assertThat(parent.getChildren().size(), is(0));
+    names.set(list("b"));
+    assertThat(created.get(0).isBound(), is(true));
+    assertLabels("b");
+  }
+
+  @Test
+  public void poolIsLimitedToItsHighWaterMark() {
+    ParentPresenter parent = bind(new ParentPresenter());
+    PresenterPool<String> pool = new PresenterPool<String>(1);
+    names.set(list("a", "b", "c"));
+    binder.bind(names).to(parent, panel, reusableFactory, values, pool);
+    names.set(new ArrayList<String>());
+    assertThat(pool.size(), is(1));
+    assertThat(pool.getDiscardedCount(), is(2));
+    int unbound = 0;
+    for (LabelPresenter p : created) {
+      if (!p.isBound() && !p.isSuspended()) {
+        unbound++;
+      }
+    }
+    assertThat(unbound, is(2));
+  }
+
+  @Test
+  public void trimmingThePoolUnbindsIdlePresenters() {
+    ParentPresenter parent = bind(new ParentPresenter());
+    PresenterPool<String> pool = new PresenterPool<String>(10);
+    names.set(list("a", "b"));
+    binder.bind(names).to(parent, panel, reusableFactory, values, pool);
+    names.set(new ArrayList<String>());
+    pool.trimTo(0);
+    assertThat(pool.size(), is(0));
+    assertThat(created.get(0).isSuspended(), is(false));
+    assertThat(created.get(1).isSuspended(), is(false));
+  }
+
+  @Test
+  public void presentersThatCannotBeSuspendedAreNotPooled() {
+    ParentPresenter parent = bind(new ParentPresenter());
+    PresenterPool<String> pool = new PresenterPool<String>(10);
+    final ArrayList<PlainPresenter> plain = new ArrayList<PlainPresenter>();
+    names.set(list("a"));
+    binder.bind(names).to(parent, panel, new ListPresenterFactory<String>() {
+      public Presenter create(String value) {
+        PlainPresenter p = new PlainPresenter(value);
+        plain.add(p);
+        return p;
+      }
+    }, values, pool);
+    names.set(new ArrayList<String>());
+    assertThat(pool.size(), is(0));
+    assertThat(plain.get(0).isBound(), is(false));
+    // so the next row gets a new presenter instead of rebinding an unbound one
+    names.set(list("b"));
+    assertThat(plain.size(), is(2));
+    assertLabels("b");
+  }
+
+  private void assertLabels(String... texts) {
+    assertThat(panel.getWidgetCount(), is(texts.length));
+    for (int i = 0; i < texts.length; i++) {
+      assertLabel(panel.getIsWidget(i), texts[i]);
+    }
+  }
+
   private static void assertLabel(IsWidget label, String text) {
     assertThat(((StubLabel) label).getText(), is(text));
   }
@@ -115,8 +391,120 @@ public class ListPropertyBinderTest {
     }
   }
 
+  /** A row presenter that sets its label from its value on bind. */
+  private static final class LabelPresenter extends BasicPresenter<StubLabel> implements ReusablePresenter<String> {
+    private String value;
+
+    private LabelPresenter(String value) {
+      super(new StubLabel());
+      this.value = value;
+    }
+
+    @Override
+    public void rebind(String value) {
+      this.value = value;
+      view.setText(value);
+    }
+
+    @Override
+    protected void onBind() {
+      super.onBind();
+      view.setText(value);
+    }
+  }
+
+  /** A reusable presenter that isn't an {@code AbstractBound}, so can only be bound once. */
+  private static final class PlainPresenter implements ReusablePresenter<String> {
+    private final StubLabel label = new StubLabel();
+    private boolean bound;
+    private boolean unbound;
+
+    private PlainPresenter(String value) {
+      label.setText(value);
+    }
+
+    @Override
+    public void rebind(String value) {
+      label.setText(value);
+    }
+
+    @Override
+    public void bind() {
+      if (unbound) {
+        throw new IllegalStateException("already unbound");
+      }
+      bound = true;
+    }
+
+    @Override
+    public void unbind() {
+      bound = false;
+      unbound = true;
+    }
+
+    @Override
+    public boolean isBound() {
+      return bound;
+    }
+
+    @Override
+    public IsWidget getView() {
+      return label;
+    }
+  }
+
   private static <P extends Presenter> P bind(P p) {
     p.bind();
     return p;
   }
+
+  /** A row from the server, reloaded as new but equal instances. */
+  private static class Row {
+    private final int id;
+    private final String name;
+
+    private Row(int id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Row && ((Row) other).id == id && ((Row) other).name.equals(name);
+    }
+
+    @Override
+    public int hashCode() {
+      return id;
+    }
+  }
+
+  /** A row from the server that, like most DTOs, doesn't override {@code equals}. */
+  private static class Dto {
+    private final int id;
+    private final String name;
+
+    private Dto(int id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+  }
+
+  /** Counts removes/inserts, to check rows aren't needlessly moved. */
+  private static class CountingPanel extends StubFlowPanel {
+    private int inserts;
+    private int removes;
+
+    @Override
+    public void insert(com.google.gwt.user.client.ui.IsWidget widget, int beforeIndex) {
+      inserts++;
+      super.insert(widget, beforeIndex);
+    }
+
+    @Override
+    public boolean remove(int index) {
+      removes++;
+      return super.remove(index);
+    }
+  }
 }
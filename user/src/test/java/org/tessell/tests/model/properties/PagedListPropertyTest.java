@@ -0,0 +1,131 @@
+package org.tessell.tests.model.properties;
+
+import static joist.util.Copy.list;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.tessell.dispatch.client.GetPageAction;
+import org.tessell.dispatch.client.GetPageResult;
+import org.tessell.dispatch.client.util.StubOutstandingDispatchAsync;
+import org.tessell.model.properties.PagedListProperty;
+import org.tessell.util.ActionCache;
+
+public class PagedListPropertyTest {
+
+  final StubOutstandingDispatchAsync async = new StubOutstandingDispatchAsync();
+  final Pages p = new Pages();
+
+  @Test
+  public void loadsTheFirstPage() {
+    p.loadNextPage();
+    assertThat(p.loading().get(), is(true));
+    assertThat(async.getAction(GetPageAction.class).getCursor(), is(nullValue()));
+    assertThat(async.getAction(GetPageAction.class).getPageSize(), is(2));
+
+    respond(0, "2", "a", "b");
+    assertThat(p.get(), is(list("a", "b")));
+    assertThat(p.loading().get(), is(false));
+    assertThat(p.hasMore().get(), is(true));
+  }
+
+  @Test
+  public void prefetchesTheNextPage() {
+    p.loadNextPage();
+    respond(0, "2", "a", "b");
+    // the second page is already being fetched
+    assertThat(async.getActions(GetPageAction.class).size(), is(2));
+    assertThat(async.getAction(GetPageAction.class).getCursor(), is("2"));
+    respond(1, null, "c");
+    // but not appended until asked for
+    assertThat(p.get(), is(list("a", "b")));
+
+    p.loadNextPage();
+    assertThat(p.get(), is(list("a", "b", "c")));
+    assertThat(p.hasMore().get(), is(false));
+    assertThat(p.loading().get(), is(false));
+  }
+
+  @Test
+  public void appendsAnInFlightPrefetchOnceItArrives() {
+    p.loadNextPage();
+    respond(0, "2", "a", "b");
+    p.loadNextPage();
+    assertThat(p.loading().get(), is(true));
+    // we didn't send a duplicate request
+    assertThat(async.getActions(GetPageAction.class).size(), is(2));
+
+    respond(1, null, "c");
+    assertThat(p.get(), is(list("a", "b", "c")));
+    assertThat(p.loading().get(), is(false));
+  }
+
+  @Test
+  public void doesNotLoadPastTheLastPage() {
+    p.loadNextPage();
+    respond(0, null, "a");
+    p.loadNextPage();
+    assertThat(async.getActions(GetPageAction.class).size(), is(1));
+  }
+
+  @Test
+  public void resetIgnoresInFlightPages() {
+    p.loadNextPage();
+    p.reset();
+    respond(0, "2", "a", "b");
+    assertThat(p.get().size(), is(0));
+    assertThat(p.loading().get(), is(false));
+  }
+
+  @Test
+  public void retriesFailedPrefetchesWhenAskedFor() {
+    p.loadNextPage();
+    respond(0, "2", "a", "b");
+    async.getCallback(GetPageAction.class, 1).onFailure(new RuntimeException());
+    p.loadNextPage();
+    assertThat(async.getActions(GetPageAction.class).size(), is(3));
+    assertThat(async.getAction(GetPageAction.class, 2).getCursor(), is("2"));
+  }
+
+  @Test
+  public void reusesPagesFromTheActionCache() {
+    ActionCache<GetPageAction, GetPageResult, GetPageResult> cache = new ActionCache<GetPageAction, GetPageResult, GetPageResult>(async) {
+      public GetPageResult derive(GetPageResult result) {
+        return result;
+      }
+    };
+    Pages p1 = new Pages(cache);
+    p1.setPrefetch(false);
+    p1.loadNextPage();
+    respond(0, null, "a");
+
+    Pages p2 = new Pages(cache);
+    p2.loadNextPage();
+    assertThat(p2.get(), is(list("a")));
+    assertThat(async.getActions(GetPageAction.class).size(), is(1));
+  }
+
+  private void respond(int index, String nextCursor, String... items) {
+    async.getCallback(GetPageAction.class, index).onSuccess(new GetPageResult(new ArrayList<String>(Arrays.asList(items)), nextCursor));
+  }
+
+  private class Pages extends PagedListProperty<GetPageAction, GetPageResult, String> {
+    private Pages() {
+      super("pages", async, 2);
+    }
+
+    private Pages(ActionCache<GetPageAction, GetPageResult, GetPageResult> cache) {
+      super("pages", async, cache, 2);
+    }
+
+    @Override
+    protected GetPageAction createAction(String cursor, int pageSize) {
+      return new GetPageAction(cursor, pageSize);
+    }
+  }
+
+}
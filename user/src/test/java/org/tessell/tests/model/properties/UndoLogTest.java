@@ -0,0 +1,86 @@
+package org.tessell.tests.model.properties;
+
+import static joist.util.Copy.list;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.tessell.model.properties.NewProperty.integerProperty;
+import static org.tessell.model.properties.NewProperty.listProperty;
+import static org.tessell.model.properties.NewProperty.stringProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.tessell.model.events.PropertyChangedEvent;
+import org.tessell.model.events.PropertyChangedHandler;
+import org.tessell.model.properties.IntegerProperty;
+import org.tessell.model.properties.ListProperty;
+import org.tessell.model.properties.StringProperty;
+import org.tessell.model.properties.UndoLog;
+import org.tessell.tests.model.properties.ListPropertyTest.CountingChanges;
+
+public class UndoLogTest {
+
+  final StringProperty name = stringProperty("name", "a");
+  final IntegerProperty age = integerProperty("age", 1);
+  final ListProperty<String> tags = listProperty("tags", new ArrayList<String>(list("x")));
+  final UndoLog undo = new UndoLog();
+
+  @Test
+  public void rollbackRestoresOldValues() {
+    undo.set(name, "b");
+    undo.set(name, "c");
+    undo.set(age, 2);
+    assertThat(name.get(), is("c"));
+    undo.rollback();
+    assertThat(name.get(), is("a"));
+    assertThat(age.get(), is(1));
+    assertThat(undo.isEmpty(), is(true));
+  }
+
+  @Test
+  public void rollbackRestoresListContents() {
+    undo.add(tags, "y");
+    undo.remove(tags, "x");
+    assertThat(tags.get(), is((List<String>) list("y")));
+    undo.rollback();
+    assertThat(tags.get(), is((List<String>) list("x")));
+  }
+
+  @Test
+  public void rollbackFiresEventsAfterAllValuesAreRestored() {
+    undo.set(name, "b");
+    undo.set(age, 2);
+    final List<String> seen = new ArrayList<String>();
+    name.addPropertyChangedHandler(new PropertyChangedHandler<String>() {
+      public void onPropertyChanged(PropertyChangedEvent<String> event) {
+        seen.add(name.get() + " " + age.get());
+      }
+    });
+    CountingChanges<Integer> ageChanges = new CountingChanges<Integer>();
+    age.addPropertyChangedHandler(ageChanges);
+    undo.rollback();
+    // age was already restored when name's handler ran
+    assertThat(seen, is((List<String>) list("a 1")));
+    assertThat(ageChanges.count, is(1));
+  }
+
+  @Test
+  public void rollbackLeavesAloneNewerChanges() {
+    undo.set(name, "b");
+    undo.set(age, 2);
+    name.set("c");
+    undo.rollback();
+    assertThat(name.get(), is("c"));
+    assertThat(age.get(), is(1));
+  }
+
+  @Test
+  public void commitForgetsOldValues() {
+    undo.set(name, "b");
+    undo.commit();
+    undo.rollback();
+    assertThat(name.get(), is("b"));
+  }
+
+}
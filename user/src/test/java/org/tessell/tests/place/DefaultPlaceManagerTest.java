@@ -5,13 +5,19 @@ import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 import org.tessell.bus.StubEventBus;
+import org.tessell.gwt.user.client.ui.IsWidget;
 import org.tessell.place.DefaultPlaceManager;
 import org.tessell.place.PlaceRequest;
+import org.tessell.place.Prefetch;
 import org.tessell.place.events.PlaceChangedEvent;
 import org.tessell.place.history.StubHistory;
 import org.tessell.place.tokenizer.DefaultTokenizer;
+import org.tessell.presenter.BasicPresenter;
 
 public class DefaultPlaceManagerTest {
 
@@ -31,4 +37,61 @@ public class DefaultPlaceManagerTest {
     assertThat(bus.getEvent(PlaceChangedEvent.class, 0), not(nullValue()));
   }
 
+  @Test
+  public void deregisteringAPlaceEvictsItsPresenters() {
+    DummyPlace p = new DummyPlace("someplace");
+    manager.registerPlace(p);
+    bus.fireEvent(new PlaceRequest("someplace").asEvent());
+    assertThat(manager.getCurrentRequest(), is(new PlaceRequest("someplace")));
+
+    manager.getPresenterCache().put(manager.getCurrentRequest(), new BasicPresenter<IsWidget>(null) {
+    });
+    manager.getPresenterCache().put(new PlaceRequest("other"), new BasicPresenter<IsWidget>(null) {
+    });
+    manager.deregisterPlace(p);
+    assertThat(manager.getPresenterCache().size(), is(1));
+  }
+
+  @Test
+  public void prefetchesAreLimitedAndDeduped() {
+    PrefetchingPlace a = new PrefetchingPlace("a");
+    PrefetchingPlace b = new PrefetchingPlace("b");
+    manager.registerPlace(a);
+    manager.registerPlace(b);
+    manager.setMaxConcurrentPrefetches(1);
+
+    manager.prefetch(new PlaceRequest("a"));
+    manager.prefetch(new PlaceRequest("a"));
+    manager.prefetch(new PlaceRequest("b"));
+    manager.prefetch(new PlaceRequest("unknown"));
+    assertThat(a.prefetches.size(), is(1));
+    assertThat(b.prefetches.size(), is(0));
+    assertThat(manager.getActivePrefetches(), is(1));
+
+    // once a finishes, b starts
+    a.prefetches.get(0).done();
+    assertThat(b.prefetches.size(), is(1));
+    b.prefetches.get(0).done();
+    assertThat(manager.getActivePrefetches(), is(0));
+
+    // and a can be prefetched again
+    manager.prefetch(new PlaceRequest("a"));
+    assertThat(a.prefetches.size(), is(2));
+  }
+
+  /** A place that leaves its prefetches running until the test finishes them. */
+  private static class PrefetchingPlace extends DummyPlace {
+    private final List<Prefetch> prefetches = new ArrayList<Prefetch>();
+
+    private PrefetchingPlace(String name) {
+      super(name);
+    }
+
+    @Override
+    public void prefetch(PlaceRequest request, Prefetch prefetch) {
+      prefetch.start();
+      prefetches.add(prefetch);
+    }
+  }
+
 }
@@ -0,0 +1,94 @@
+package org.tessell.tests.place.tokenizer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.tessell.place.PlaceRequest;
+import org.tessell.place.tokenizer.RouteTokenizer;
+
+public class RouteTokenizerTest {
+
+  final RouteTokenizer t = new RouteTokenizer();
+
+  {
+    t.addRoute("orders", "orders");
+    t.addRoute("order", "orders/{id:long}");
+    t.addRoute("orderByName", "orders/{name}");
+    t.addRoute("line", "orders/{id:long}/lines/{lineId}");
+    t.addRoute("newOrder", "orders/new");
+  }
+
+  @Test
+  public void matchesLiterals() throws Exception {
+    assertThat(t.toPlaceRequest("orders").getName(), is("orders"));
+    assertThat(t.toPlaceRequest("orders/new").getName(), is("newOrder"));
+  }
+
+  @Test
+  public void matchesTypedParameters() throws Exception {
+    final PlaceRequest r = t.toPlaceRequest("orders/12/lines/a+b");
+    assertThat(r.getName(), is("line"));
+    assertThat(r.getTypedParameter("id"), is((Object) Long.valueOf(12)));
+    assertThat(r.getLongParameter("id", null), is(12L));
+    assertThat(r.getParameter("id", null), is("12"));
+    assertThat(r.getParameter("lineId", null), is("a b"));
+  }
+
+  @Test
+  public void fallsBackToUntypedParameters() throws Exception {
+    assertThat(t.toPlaceRequest("orders/12").getName(), is("order"));
+    final PlaceRequest r = t.toPlaceRequest("orders/bob");
+    assertThat(r.getName(), is("orderByName"));
+    assertThat(r.getParameter("name", null), is("bob"));
+  }
+
+  @Test
+  public void backtracksWhenTypedParameterDoesNotLeadToARoute() throws Exception {
+    t.addRoute("byNameDetails", "orders/{name}/details");
+    final PlaceRequest r = t.toPlaceRequest("orders/12/details");
+    assertThat(r.getName(), is("byNameDetails"));
+    assertThat(r.getParameter("name", null), is("12"));
+  }
+
+  @Test
+  public void extraParameters() throws Exception {
+    final PlaceRequest r = t.toPlaceRequest("orders/12;tab=lines;x=");
+    assertThat(r.getName(), is("order"));
+    assertThat(r.getParameter("tab", null), is("lines"));
+    assertThat(r.getParameterNames().contains("x"), is(true));
+    assertThat(t.toHistoryToken(r), is("orders/12;tab=lines;x="));
+  }
+
+  @Test
+  public void reverseRouting() throws Exception {
+    assertThat(t.toHistoryToken(new PlaceRequest("line").with("id", 1).with("lineId", "a/b")), is("orders/1/lines/a%2Fb"));
+    assertThat(t.toPlaceRequest("orders/1/lines/a%2Fb").getParameter("lineId", null), is("a/b"));
+  }
+
+  @Test
+  public void unmatchedUsesTheFallback() throws Exception {
+    assertThat(t.toPlaceRequest("other;a=b").getName(), is("other"));
+    assertThat(t.toHistoryToken(new PlaceRequest("other").with("a", "b")), is("other;a=b"));
+    // missing a route parameter
+    assertThat(t.toHistoryToken(new PlaceRequest("order")), is("order"));
+  }
+
+  @Test
+  public void duplicateRoutesFail() {
+    try {
+      t.addRoute("order2", "orders/{other:long}");
+      fail();
+    } catch (final IllegalStateException ise) {
+      assertThat(ise.getMessage(), is("orders/{other:long} is already used by order"));
+    }
+  }
+
+  @Test
+  public void removedRoutesNoLongerMatch() throws Exception {
+    t.removeRoute("newOrder");
+    assertThat(t.toPlaceRequest("orders/new").getName(), is("orderByName"));
+  }
+
+}
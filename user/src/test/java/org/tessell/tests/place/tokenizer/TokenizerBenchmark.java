@@ -0,0 +1,97 @@
+package org.tessell.tests.place.tokenizer;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+
+import org.tessell.place.PlaceRequest;
+import org.tessell.place.tokenizer.DefaultTokenizer;
+import org.tessell.place.tokenizer.Tokenizer;
+import org.tessell.place.tokenizer.TokenizerException;
+
+/**
+ * Times a parse/format round trip of a six-parameter token through {@link DefaultTokenizer} and the JVM {@code Codec},
+ * against {@link SplitTokenizer}, a copy of the previous {@code String.split}/{@code URLEncoder}-based implementation.
+ *
+ * Args (all optional): {@code iterations rounds}, defaulting to {@code 200000 10}.
+ */
+public class TokenizerBenchmark {
+
+  private static final String token = "orders;id=12;sort=name+asc;filter=omaha%2C+ne;page=3;size=50;q=a%26b+c";
+
+  public static void main(final String[] args) throws Exception {
+    final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    final Tokenizer current = new DefaultTokenizer();
+    final Tokenizer split = new SplitTokenizer();
+    if (!current.toHistoryToken(current.toPlaceRequest(token)).equals(split.toHistoryToken(split.toPlaceRequest(token)))) {
+      throw new IllegalStateException("The tokenizers disagree on " + token);
+    }
+    for (int round = 0; round < rounds; round++) {
+      System.out.println("round " + round + ": current " + time(current, iterations) + "ns, split " + time(split, iterations) + "ns");
+    }
+  }
+
+  /** @return the average nanoseconds per round trip */
+  private static long time(final Tokenizer tokenizer, final int iterations) throws TokenizerException {
+    int length = 0;
+    final long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      length += tokenizer.toHistoryToken(tokenizer.toPlaceRequest(token)).length();
+    }
+    final long nanos = System.nanoTime() - start;
+    if (length == 0) {
+      throw new IllegalStateException(); // keep the JIT from skipping the loop
+    }
+    return nanos / iterations;
+  }
+
+  /** The tokenizer before single-pass parsing and encoding, as a baseline. */
+  private static class SplitTokenizer extends DefaultTokenizer {
+    @Override
+    public PlaceRequest toPlaceRequest(final String token) throws TokenizerException {
+      final int paramSepIndex = token.indexOf(";");
+      if (paramSepIndex == -1) {
+        return new PlaceRequest(unescape(token));
+      }
+      PlaceRequest request = new PlaceRequest(unescape(token.substring(0, paramSepIndex)));
+      for (final String paramToken : token.substring(paramSepIndex + 1).split(";")) {
+        final String[] param = paramToken.split("=");
+        if (param.length == 1) {
+          request = request.with(unescape(param[0]), "");
+        } else if (param.length == 2) {
+          request = request.with(unescape(param[0]), unescape(param[1]));
+        } else {
+          throw new TokenizerException("Parameters require a single '=' between the key and value.");
+        }
+      }
+      return request;
+    }
+
+    @Override
+    protected String escape(final String value) {
+      try {
+        return URLEncoder.encode(value, "UTF-8")//
+          .replaceAll("\\+", "%20")
+          .replaceAll("\\%21", "!")
+          .replaceAll("\\%27", "'")
+          .replaceAll("\\%28", "(")
+          .replaceAll("\\%29", ")")
+          .replaceAll("\\%7E", "~")
+          .replace("%20", "+");
+      } catch (final UnsupportedEncodingException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    protected String unescape(final String value) {
+      try {
+        return URLDecoder.decode(value.replace("+", "%20"), "UTF-8");
+      } catch (final UnsupportedEncodingException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+}
@@ -3,10 +3,15 @@ package org.tessell.tests.place.tokenizer;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+
 import org.junit.Test;
 import org.tessell.place.PlaceRequest;
+import org.tessell.place.tokenizer.Codec;
 import org.tessell.place.tokenizer.DefaultTokenizer;
 import org.tessell.place.tokenizer.Tokenizer;
+import org.tessell.place.tokenizer.TokenizerException;
 
 public class TokenizerTest {
 
@@ -31,6 +36,34 @@ public class TokenizerTest {
     assertRoundTripWithAmp(new PlaceRequest("city and state").with("city", "omaha").with("state", "ne"), "city+and+state&city=omaha&state=ne");
   }
 
+  @Test
+  public void emptyAndMissingValues() throws Exception {
+    assertThat(f.toPlaceRequest("foo;a;b=;;c=d").toString(), is("foo;a=;b=;c=d"));
+    assertThat(f.toPlaceRequest("foo;").toString(), is("foo"));
+  }
+
+  @Test(expected = TokenizerException.class)
+  public void multipleValueSeparatorsFail() throws Exception {
+    f.toPlaceRequest("foo;a=b=c");
+  }
+
+  @Test
+  public void codecMatchesUrlEncoder() throws Exception {
+    for (final String s : new String[] { "", "abc", "a b", "a+b", "!'()~*-_.", "a/b;c=d&e?f#g", "100%", "\u00e9\u4e2d", "\ud83d\ude00", "\ud800x" }) {
+      final String encoded = URLEncoder.encode(s, "UTF-8")
+        .replaceAll("\\+", "%20")
+        .replaceAll("\\%21", "!")
+        .replaceAll("\\%27", "'")
+        .replaceAll("\\%28", "(")
+        .replaceAll("\\%29", ")")
+        .replaceAll("\\%7E", "~");
+      assertThat(Codec.encodePathSegment(s), is(encoded));
+      assertThat(Codec.encodeQueryString(s), is(encoded.replace("%20", "+")));
+      assertThat(Codec.decodePathSegment(encoded), is(URLDecoder.decode(encoded, "UTF-8")));
+      assertThat(Codec.decodeQueryString(Codec.encodeQueryString(s)), is(URLDecoder.decode(encoded, "UTF-8")));
+    }
+  }
+
   private void assertRoundTrip(final PlaceRequest placeRequest, final String token) throws Exception {
     assertThat(f.toHistoryToken(placeRequest), is(token));
     assertThat(f.toPlaceRequest(token).toString(), is(placeRequest.toString()));
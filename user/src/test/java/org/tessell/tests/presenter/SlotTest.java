@@ -1,13 +1,25 @@
 package org.tessell.tests.presenter;
 
+import static joist.util.Copy.list;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.tessell.model.properties.NewProperty.listProperty;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 import org.tessell.gwt.user.client.ui.IsWidget;
+import org.tessell.gwt.user.client.ui.StubFlowPanel;
+import org.tessell.gwt.user.client.ui.StubLabel;
+import org.tessell.model.dsl.ListPropertyBinder.ListPresenterFactory;
+import org.tessell.model.dsl.ListPropertyBinder.ValueKeys;
+import org.tessell.model.properties.ListProperty;
+import org.tessell.place.PlaceRequest;
 import org.tessell.presenter.BasicPresenter;
 import org.tessell.presenter.Presenter;
+import org.tessell.presenter.PresenterCache;
 import org.tessell.presenter.Slot;
 
 public class SlotTest {
@@ -68,11 +80,118 @@ public class SlotTest {
     assertThat(p.getCurrent(), is((Presenter) c1b));
   }
 
+  @Test
+  public void cachedChildrenAreSuspendedAndResumed() {
+    final PresenterCache cache = new PresenterCache(1);
+    final ChildPresenter c1 = new ChildPresenter();
+    final ChildPresenter c2 = new ChildPresenter();
+    final ParentPresenter p = new ParentPresenter(cache);
+    p.bind();
+
+    cache.put(new PlaceRequest("c1"), c1);
+    p.set(c1);
+    p.set(c2);
+    // c1 was suspended instead of unbound
+    assertThat(c1.isSuspended(), is(true));
+    assertThat(c1.wasUnbound, is(false));
+
+    // so it can be shown again, without calling onBind again
+    p.set(c1);
+    assertThat(c1.isBound(), is(true));
+    assertThat(c1.bindCalls, is(1));
+    assertThat(c2.wasUnbound, is(true));
+  }
+
+  @Test
+  public void evictedChildrenAreUnbound() {
+    final PresenterCache cache = new PresenterCache(1);
+    final ChildPresenter c1 = new ChildPresenter();
+    final ChildPresenter c2 = new ChildPresenter();
+    final ParentPresenter p = new ParentPresenter(cache);
+    p.bind();
+
+    cache.put(new PlaceRequest("c1"), c1);
+    p.set(c1);
+    cache.put(new PlaceRequest("c2"), c2);
+    // c1 was evicted while still shown, so is left bound
+    assertThat(c1.isBound(), is(true));
+    p.set(c2);
+    // and then unbound as usual
+    assertThat(c1.isBound(), is(false));
+    assertThat(c1.isSuspended(), is(false));
+
+    // c2 is suspended, then evicted
+    p.set(new ChildPresenter());
+    assertThat(c2.isSuspended(), is(true));
+    cache.clear();
+    assertThat(c2.isSuspended(), is(false));
+    try {
+      c2.bind();
+      fail();
+    } catch (final IllegalStateException ise) {
+      assertThat(ise.getMessage().startsWith("This instance has already been unbound"), is(true));
+    }
+  }
+
+  @Test
+  public void evictingASuspendedChildUnbindsItsChildren() {
+    final PresenterCache cache = new PresenterCache(1);
+    final ChildPresenter grandchild = new ChildPresenter();
+    final ChildPresenter c1 = new ChildPresenter();
+    c1.addPresenter(grandchild);
+    final ParentPresenter p = new ParentPresenter(cache);
+    p.bind();
+
+    cache.put(new PlaceRequest("c1"), c1);
+    p.set(c1);
+    p.set(new ChildPresenter());
+    assertThat(c1.isSuspended(), is(true));
+    assertThat(grandchild.isSuspended(), is(true));
+    assertThat(c1.wasUnbound, is(false));
+
+    cache.clear();
+    // c1's onUnbind was called, which unbound its children too
+    assertThat(c1.wasUnbound, is(true));
+    assertThat(grandchild.wasUnbound, is(true));
+    assertThat(grandchild.isSuspended(), is(false));
+    try {
+      grandchild.bind();
+      fail();
+    } catch (final IllegalStateException ise) {
+      assertThat(ise.getMessage().startsWith("This instance has already been unbound"), is(true));
+    }
+  }
+
+  @Test
+  public void resumedChildrenKeepTheirListRows() {
+    final PresenterCache cache = new PresenterCache(1);
+    final ListPresenter c1 = new ListPresenter();
+    c1.names.set(list("a", "b"));
+    final ParentPresenter p = new ParentPresenter(cache);
+    p.bind();
+
+    cache.put(new PlaceRequest("c1"), c1);
+    p.set(c1);
+    p.set(new ChildPresenter());
+    assertThat(c1.isSuspended(), is(true));
+    // the list changes while c1 is hidden
+    c1.names.add("c");
+
+    p.set(c1);
+    assertThat(c1.labels(), is((List<String>) list("a", "b", "c")));
+    assertThat(c1.rows(), is(3));
+  }
+
   public class ParentPresenter extends BasicPresenter<IsWidget> {
-    private final Slot<Presenter> current = new Slot<Presenter>(this);
+    private final Slot<Presenter> current;
 
     public ParentPresenter(final Presenter... children) {
+      this((PresenterCache) null, children);
+    }
+
+    public ParentPresenter(final PresenterCache cache, final Presenter... children) {
       super(null);
+      current = new Slot<Presenter>(this, cache);
       for (final Presenter child : children) {
         addPresenter(child);
       }
@@ -87,9 +206,44 @@ public class SlotTest {
     }
   }
 
+  /** Binds a row presenter for each name in {@code names}. */
+  public class ListPresenter extends BasicPresenter<StubFlowPanel> {
+    private final ListProperty<String> names = listProperty("names");
+
+    public ListPresenter() {
+      super(new StubFlowPanel());
+    }
+
+    @Override
+    public void onBind() {
+      super.onBind();
+      binder.bind(names).to(this, view, new ListPresenterFactory<String>() {
+        public Presenter create(final String value) {
+          final StubLabel label = new StubLabel();
+          label.setText(value);
+          return new BasicPresenter<StubLabel>(label) {
+          };
+        }
+      }, new ValueKeys<String>());
+    }
+
+    private List<String> labels() {
+      final List<String> labels = new ArrayList<String>();
+      for (int i = 0; i < view.getWidgetCount(); i++) {
+        labels.add(((StubLabel) view.getIsWidget(i)).getText());
+      }
+      return labels;
+    }
+
+    private int rows() {
+      return children().size();
+    }
+  }
+
   public class ChildPresenter extends BasicPresenter<IsWidget> {
     public boolean wasBound = false;
     public boolean wasUnbound = false;
+    public int bindCalls = 0;
 
     public ChildPresenter() {
       super(null);
@@ -99,6 +253,7 @@ public class SlotTest {
     public void onBind() {
       super.onBind();
       wasBound = true;
+      bindCalls++;
     }
 
     @Override
@@ -0,0 +1,128 @@
+package org.tessell.util;
+
+import static joist.util.Copy.list;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.tessell.bus.StubEventBus;
+import org.tessell.dispatch.client.GetTestAction;
+import org.tessell.dispatch.client.GetTestResult;
+import org.tessell.dispatch.client.StubDispatchAsync;
+import org.tessell.dispatch.client.SuccessCallback;
+import org.tessell.dispatch.client.events.DispatchUnhandledFailureEvent;
+import org.tessell.dispatch.client.util.StubOutstandingDispatchAsync;
+
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+public class ActionCacheTest {
+
+  final StubEventBus bus = new StubEventBus();
+  final StubOutstandingDispatchAsync async = new StubOutstandingDispatchAsync(bus, new StubDispatchAsync());
+  final ActionCache<GetTestAction, GetTestResult, GetTestResult> cache = new ActionCache<GetTestAction, GetTestResult, GetTestResult>(async) {
+    public GetTestResult derive(GetTestResult result) {
+      return result;
+    }
+  };
+  final GetTestAction action = new GetTestAction("a");
+
+  @Test
+  public void queuesCallbacksUntilTheResultArrives() {
+    final Callback c1 = new Callback();
+    final Callback c2 = new Callback();
+    cache.executeWithFailure(action, c1);
+    cache.executeWithFailure(action, c2);
+    assertThat(async.getActions(GetTestAction.class).size(), is(1));
+
+    final GetTestResult result = new GetTestResult();
+    async.getCallback(GetTestAction.class).onSuccess(result);
+    assertThat(c1.results.get(0), is(sameInstance(result)));
+    assertThat(c2.results.get(0), is(sameInstance(result)));
+    assertThat(cache.isCached(action), is(true));
+  }
+
+  @Test
+  public void passesFailuresToQueuedCallbacks() {
+    final Callback c1 = new Callback();
+    final Callback c2 = new Callback();
+    cache.executeWithFailure(action, c1);
+    cache.executeWithFailure(action, c2);
+    final RuntimeException failure = new RuntimeException("failed");
+    async.getCallback(GetTestAction.class).onFailure(failure);
+    assertThat(c1.failures, is(list((Throwable) failure)));
+    assertThat(c2.failures, is(list((Throwable) failure)));
+    // handled by the callbacks, so not reported as unhandled
+    assertThat(bus.getEvents(DispatchUnhandledFailureEvent.class).size(), is(0));
+  }
+
+  @Test
+  public void doesNotCacheFailures() {
+    cache.executeWithFailure(action, new Callback());
+    async.getCallback(GetTestAction.class).onFailure(new RuntimeException("failed"));
+    assertThat(cache.isCached(action), is(false));
+
+    final Callback retry = new Callback();
+    cache.executeWithFailure(action, retry);
+    assertThat(async.getActions(GetTestAction.class).size(), is(2));
+    final GetTestResult result = new GetTestResult();
+    async.getCallback(GetTestAction.class, 1).onSuccess(result);
+    assertThat(retry.results.get(0), is(sameInstance(result)));
+  }
+
+  @Test
+  public void firesOneUnhandledFailureForSuccessOnlyCallers() {
+    final List<GetTestResult> results = new ArrayList<GetTestResult>();
+    final SuccessCallback<GetTestResult> onSuccess = new SuccessCallback<GetTestResult>() {
+      public void onSuccess(GetTestResult result) {
+        results.add(result);
+      }
+    };
+    cache.execute(action, onSuccess);
+    cache.execute(action, onSuccess);
+    final Callback handled = new Callback();
+    cache.executeWithFailure(action, handled);
+    async.getCallback(GetTestAction.class).onFailure(new RuntimeException("failed"));
+    assertThat(results.size(), is(0));
+    assertThat(handled.failures.size(), is(1));
+    assertThat(bus.getEvents(DispatchUnhandledFailureEvent.class).size(), is(1));
+    assertThat(bus.getEvent(DispatchUnhandledFailureEvent.class, 0).getAction(), is(sameInstance((Object) action)));
+  }
+
+  @Test
+  public void firesAnUnhandledFailureWhenNoOneIsWaiting() {
+    cache.execute(action);
+    async.getCallback(GetTestAction.class).onFailure(new RuntimeException("failed"));
+    assertThat(bus.getEvents(DispatchUnhandledFailureEvent.class).size(), is(1));
+  }
+
+  @Test
+  public void ignoresAStaleFailureAfterAReset() {
+    cache.executeWithFailure(action, new Callback());
+    cache.reset();
+    final Callback c2 = new Callback();
+    cache.executeWithFailure(action, c2);
+    final GetTestResult result = new GetTestResult();
+    async.getCallback(GetTestAction.class, 1).onSuccess(result);
+    // the first call failing later doesn't evict the second call's result
+    async.getCallback(GetTestAction.class, 0).onFailure(new RuntimeException("failed"));
+    assertThat(cache.isCached(action), is(true));
+  }
+
+  private static class Callback implements AsyncCallback<GetTestResult> {
+    private final List<GetTestResult> results = new ArrayList<GetTestResult>();
+    private final List<Throwable> failures = new ArrayList<Throwable>();
+
+    public void onSuccess(GetTestResult result) {
+      results.add(result);
+    }
+
+    public void onFailure(Throwable caught) {
+      failures.add(caught);
+    }
+  }
+
+}
@@ -0,0 +1,113 @@
+package org.tessell.widgets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.tessell.model.properties.NewProperty.listProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.tessell.gwt.user.client.ui.IsWidget;
+import org.tessell.gwt.user.client.ui.StubLabel;
+import org.tessell.model.dsl.Binder;
+import org.tessell.model.properties.ListProperty;
+import org.tessell.widgets.IsVirtualList.RowRenderer;
+
+public class StubVirtualListTest {
+
+  final StubVirtualList<Integer> list = new StubVirtualList<Integer>();
+  int created = 0;
+
+  {
+    list.setViewportHeight(100);
+    list.setEstimatedRowHeight(10);
+    list.setOverscan(2);
+    list.setRenderer(new RowRenderer<Integer>() {
+      public IsWidget createView() {
+        created++;
+        return new StubLabel();
+      }
+
+      public void render(IsWidget view, Integer value) {
+        ((StubLabel) view).setText(String.valueOf(value));
+      }
+    });
+  }
+
+  @Test
+  public void onlyRendersVisibleRows() {
+    list.setRows(rows(20000));
+    // 10 rows in the viewport, plus 2 below
+    assertRendered(0, 12);
+    assertThat(list.getTopSpacer(), is(0));
+    assertThat(list.getBottomSpacer(), is((20000 - 12) * 10));
+  }
+
+  @Test
+  public void recyclesViewsWhenScrolling() {
+    list.setRows(rows(20000));
+    list.scrollTo(5000);
+    // rows 500-509 are visible, plus 2 above and below
+    assertRendered(498, 14);
+    assertThat(list.getTopSpacer(), is(4980));
+    list.scrollTo(100000);
+    assertRendered(9998, 14);
+    // only a screenful of views was ever created
+    assertThat(created, is(14));
+  }
+
+  @Test
+  public void usesMeasuredHeights() {
+    list.setRenderer(new RowRenderer<Integer>() {
+      public IsWidget createView() {
+        return new StubLabel();
+      }
+
+      public void render(IsWidget view, Integer value) {
+        ((StubLabel) view).setText(String.valueOf(value));
+        // even rows are twice as tall
+        ((StubLabel) view).offsetHeight = value % 2 == 0 ? 20 : 10;
+      }
+    });
+    list.setRows(rows(1000));
+    // rows 0-6 fill the 100px viewport (20+10+20+10+20+10+20), plus 2 below
+    assertRendered(0, 9);
+    // rows 9-11 were also measured (10+20+10), by the first pass that used estimated heights
+    assertThat(list.getBottomSpacer(), is(40 + 988 * 10));
+    list.scrollToRow(3);
+    assertThat(list.getScrollTop(), is(50));
+  }
+
+  @Test
+  public void bindsToListProperty() {
+    final ListProperty<Integer> numbers = listProperty("numbers", rows(3));
+    new Binder().bind(numbers).to(list);
+    assertRendered(0, 3);
+    numbers.add(3);
+    assertRendered(0, 4);
+    numbers.remove(0);
+    assertThat(text(0), is("1"));
+  }
+
+  private void assertRendered(int first, int count) {
+    assertThat(list.getFirstRenderedRow(), is(first));
+    assertThat(list.getRenderedViews().size(), is(count));
+    for (int i = 0; i < count; i++) {
+      assertThat(text(i), is(String.valueOf(first + i)));
+    }
+  }
+
+  private String text(int i) {
+    return ((StubLabel) list.getRenderedViews().get(i)).getText();
+  }
+
+  private static List<Integer> rows(int size) {
+    final List<Integer> rows = new ArrayList<Integer>();
+    for (int i = 0; i < size; i++) {
+      rows.add(i);
+    }
+    return rows;
+  }
+
+}